@@ -39,6 +39,15 @@ public class WebSecurityConfig {
                                 "/webjars/**",
                                 "/favicon.ico")
                         .permitAll()
+                        // Bulk import, export and analytics - ADMIN only
+                        .requestMatchers("/api/import/**").hasRole("ADMIN")
+                        .requestMatchers("/api/export/**").hasRole("ADMIN")
+                        .requestMatchers("/api/analytics/**").hasRole("ADMIN")
+                        // Internal counters of caches and background workers - ADMIN only
+                        .requestMatchers("/api/stats/user-cache", "/api/stats/name-propagation", "/api/stats/events",
+                                "/api/stats/reminders").hasRole("ADMIN")
+                        // Auto-scheduling of pending requests - ADMIN and DOCTOR
+                        .requestMatchers("/api/scheduling/**").hasAnyRole("ADMIN", "DOCTOR")
                         // Doctor management - ADMIN only
                         .requestMatchers("/doctors/**").hasRole("ADMIN")
                         // Patient management - ADMIN, DOCTOR (view only), or PATIENT (own data)
@@ -2,6 +2,7 @@ package com.hendisantika.controller;
 
 import com.hendisantika.entity.User;
 import com.hendisantika.repository.UserRepository;
+import com.hendisantika.service.UserPrincipalCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -19,6 +20,9 @@ public class AdminUtilController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
     /**
      * Initialize test users in MongoDB
      * Access via: http://localhost:8080/admin/init-users
@@ -29,6 +33,7 @@ public class AdminUtilController {
         try {
             // Delete existing users to avoid duplicates
             userRepository.deleteAll();
+            userPrincipalCache.clear();
 
             // Create test users with plaintext passwords
             User admin = new User();
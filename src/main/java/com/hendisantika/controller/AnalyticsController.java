@@ -0,0 +1,114 @@
+package com.hendisantika.controller;
+
+import com.hendisantika.service.AppointmentAnalyticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * Appointment analytics REST Controller (ADMIN only)
+ * Every endpoint takes either a month (yyyy-MM) or a from / to date range
+ * (to exclusive) and defaults to the current month.
+ */
+@RestController
+@RequestMapping("/api/analytics")
+public class AnalyticsController {
+
+    @Autowired
+    private AppointmentAnalyticsService analyticsService;
+
+    /**
+     * Appointments per doctor per day or per ISO week
+     */
+    @GetMapping("/volume")
+    public ResponseEntity<?> getVolume(@RequestParam(required = false) String month,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(required = false) String doctorId) {
+        AppointmentAnalyticsService.Granularity parsed;
+        try {
+            parsed = AppointmentAnalyticsService.Granularity.valueOf(granularity.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Granularité inconnue : " + granularity));
+        }
+        String doctor = doctorId == null || doctorId.isBlank() ? null : doctorId.trim();
+        return inRange(month, from, to, (start, end) -> analyticsService.volume(start, end, parsed, doctor));
+    }
+
+    /**
+     * Cancellation rate per specialization
+     */
+    @GetMapping("/cancellations")
+    public ResponseEntity<?> getCancellationRates(@RequestParam(required = false) String month,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        return inRange(month, from, to, analyticsService::cancellationRates);
+    }
+
+    /**
+     * Hours between booking and appointment, overall and per specialization
+     */
+    @GetMapping("/lead-time")
+    public ResponseEntity<?> getLeadTime(@RequestParam(required = false) String month,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        return inRange(month, from, to, analyticsService::leadTime);
+    }
+
+    /**
+     * Hours between a request and its approval or denial, per status and per doctor
+     */
+    @GetMapping("/approval-latency")
+    public ResponseEntity<?> getApprovalLatency(@RequestParam(required = false) String month,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        return inRange(month, from, to, analyticsService::approvalLatency);
+    }
+
+    /**
+     * Drop the cached results so the next call recomputes them
+     */
+    @PostMapping("/cache/clear")
+    public ResponseEntity<?> viderCache() {
+        analyticsService.clearCache();
+        return ResponseEntity.ok(Map.of("success", true));
+    }
+
+    private static ResponseEntity<?> inRange(String month, String from, String to,
+            BiFunction<String, String, ?> query) {
+        String start;
+        String end;
+        try {
+            if (month != null && !month.isBlank()) {
+                YearMonth yearMonth = YearMonth.parse(month.trim());
+                start = yearMonth.atDay(1).toString();
+                end = yearMonth.plusMonths(1).atDay(1).toString();
+            } else if (from != null && !from.isBlank() && to != null && !to.isBlank()) {
+                start = LocalDate.parse(from.trim()).toString();
+                end = LocalDate.parse(to.trim()).toString();
+            } else {
+                YearMonth current = YearMonth.now();
+                start = current.atDay(1).toString();
+                end = current.plusMonths(1).atDay(1).toString();
+            }
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Date invalide : " + e.getParsedString()));
+        }
+        if (start.compareTo(end) >= 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "from doit précéder to"));
+        }
+        return ResponseEntity.ok(query.apply(start, end));
+    }
+}
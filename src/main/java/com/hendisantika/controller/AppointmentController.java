@@ -1,24 +1,42 @@
 package com.hendisantika.controller;
 
+import com.hendisantika.dto.AppointmentSummary;
+import com.hendisantika.dto.DoctorSummary;
+import com.hendisantika.dto.PatientSummary;
 import com.hendisantika.entity.Appointment;
 import com.hendisantika.entity.Patient;
 import com.hendisantika.entity.Doctor;
-import com.hendisantika.entity.User;
 import com.hendisantika.repository.AppointmentRepository;
 import com.hendisantika.repository.PatientRepository;
 import com.hendisantika.repository.DoctorRepository;
-import com.hendisantika.repository.UserRepository;
+import com.hendisantika.service.AppointmentBookingService;
+import com.hendisantika.service.AppointmentChangeService;
+import com.hendisantika.service.CurrentUserService;
+import com.hendisantika.service.DirectoryService;
+import com.hendisantika.service.DoctorSlotIndex;
+import com.hendisantika.service.FreeSlotService;
+import com.hendisantika.service.LookupScope;
+import com.hendisantika.service.SearchService;
 import com.hendisantika.service.SequenceService;
+import com.hendisantika.service.UserPrincipal;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 /**
  * Appointment Controller with comprehensive RBAC
@@ -42,72 +60,100 @@ public class AppointmentController {
     private DoctorRepository doctorRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private CurrentUserService currentUserService;
 
     @Autowired
     private SequenceService sequenceService;
 
+    @Autowired
+    private DoctorSlotIndex doctorSlotIndex;
+
+    @Autowired
+    private FreeSlotService freeSlotService;
+
+    @Autowired
+    private AppointmentChangeService appointmentChangeService;
+
+    @Autowired
+    private AppointmentBookingService appointmentBookingService;
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private DirectoryService directoryService;
+
     /**
      * Get current logged-in user
      */
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication != null && authentication.isAuthenticated()) {
-            String username = authentication.getName();
-            Optional<User> user = userRepository.findByUsername(username);
-            return user.orElse(null);
-        }
-        return null;
+    private UserPrincipal getCurrentUser() {
+        return currentUserService.getCurrentUser();
     }
 
     /**
      * Check if user is admin
      */
     private boolean isAdmin() {
-        User user = getCurrentUser();
-        return user != null && "ADMIN".equals(user.getRole());
+        UserPrincipal user = getCurrentUser();
+        return user != null && user.isAdmin();
     }
 
     /**
      * Check if user is doctor
      */
     private boolean isDoctor() {
-        User user = getCurrentUser();
-        return user != null && "DOCTOR".equals(user.getRole());
+        UserPrincipal user = getCurrentUser();
+        return user != null && user.isDoctor();
     }
 
     /**
      * Check if user is patient
      */
     private boolean isPatient() {
-        User user = getCurrentUser();
-        return user != null && "PATIENT".equals(user.getRole());
+        UserPrincipal user = getCurrentUser();
+        return user != null && user.isPatient();
     }
 
     /**
-     * Display all appointments (filtered by role)
+     * Maximum page size accepted by the list page
+     */
+    private static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Display appointments one page at a time (filtered by role)
      * ADMIN: all | DOCTOR: own appointments | PATIENT: own appointments
      */
     @GetMapping("/list")
-    public String listerTousLesRendezVous(Model model) {
-        List<Appointment> appointments = appointmentRepository.findAll();
-        User currentUser = getCurrentUser();
+    public String listerTousLesRendezVous(@RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "desc") String sort,
+            Model model) {
+        Page<Appointment> appointmentPage = trouverPageRendezVous(getCurrentUser(), page, size, sort);
+
+        model.addAttribute("appointments", appointmentPage.getContent());
+        model.addAttribute("appointmentPage", appointmentPage);
+        model.addAttribute("sort", sort);
+        return "appointment-list";
+    }
 
-        if (isDoctor() && currentUser != null && currentUser.getDoctorId() != null) {
+    /**
+     * Load one page of appointments sorted by date then time, scoped to the
+     * current user's role by the MongoDB query itself
+     */
+    private Page<Appointment> trouverPageRendezVous(UserPrincipal currentUser, int page, int size, String sort) {
+        Sort.Direction direction = "asc".equalsIgnoreCase(sort) ? Sort.Direction.ASC : Sort.Direction.DESC;
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        Pageable pageable = PageRequest.of(Math.max(page, 0), pageSize, Sort.by(direction, "startAt"));
+
+        if (currentUser != null && currentUser.isDoctor() && currentUser.getDoctorId() != null) {
             // Doctors see only their appointments
-            appointments = appointments.stream()
-                    .filter(a -> a.getDoctorId().equals(currentUser.getDoctorId()))
-                    .collect(Collectors.toList());
-        } else if (isPatient() && currentUser != null && currentUser.getPatientId() != null) {
+            return appointmentRepository.findByDoctorId(currentUser.getDoctorId(), pageable);
+        } else if (currentUser != null && currentUser.isPatient() && currentUser.getPatientId() != null) {
             // Patients see only their appointments
-            appointments = appointments.stream()
-                    .filter(a -> a.getPatientId().equals(currentUser.getPatientId()))
-                    .collect(Collectors.toList());
+            return appointmentRepository.findByPatientId(currentUser.getPatientId(), pageable);
         }
         // ADMIN sees all appointments
-
-        model.addAttribute("appointments", appointments);
-        return "appointment-list";
+        return appointmentRepository.findAll(pageable);
     }
 
     /**
@@ -160,13 +206,9 @@ public class AppointmentController {
      */
     @GetMapping("/add")
     public String afficherFormulaireReserverRendezVous(Model model) {
-        User currentUser = getCurrentUser();
-        List<Patient> patients = patientRepository.findAll().stream()
-                .filter(Patient::isActive)
-                .collect(Collectors.toList());
-        List<Doctor> doctors = doctorRepository.findAll().stream()
-                .filter(Doctor::isActive)
-                .collect(Collectors.toList());
+        UserPrincipal currentUser = getCurrentUser();
+        List<PatientSummary> patients = directoryService.getActivePatients();
+        List<DoctorSummary> doctors = directoryService.getActiveDoctors();
         Appointment appointment = new Appointment();
 
         // Pre-fill based on user role
@@ -193,7 +235,7 @@ public class AppointmentController {
      */
     @PostMapping("/save")
     public String reserverRendezVous(@ModelAttribute Appointment appointment) {
-        User currentUser = getCurrentUser();
+        UserPrincipal currentUser = getCurrentUser();
 
         // DOCTOR can only create appointments with themselves as doctor
         if (isDoctor() && currentUser != null && currentUser.getDoctorId() != null) {
@@ -212,26 +254,44 @@ public class AppointmentController {
             return "redirect:/";
         }
 
-        appointment.setAppointmentId(sequenceService.getNextSequenceId("appointment_seq", "A"));
-        appointment.setCreatedAt(String.valueOf(System.currentTimeMillis()));
-        appointment.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
+        // The sequence ID, patient and doctor lookups are independent: run them concurrently
+        Supplier<String> appointmentId;
+        Supplier<Optional<Patient>> patientLookup;
+        Supplier<Optional<Doctor>> doctorLookup;
+        try (LookupScope scope = new LookupScope()) {
+            appointmentId = scope.fork(() -> sequenceService.getNextSequenceId("appointment_seq", "A"));
+            patientLookup = scope.fork(() -> patientRepository.findById(appointment.getPatientId()));
+            doctorLookup = scope.fork(() -> doctorRepository.findById(appointment.getDoctorId()));
+            scope.join();
+        }
+
+        appointment.setAppointmentId(appointmentId.get());
+        appointment.setCreatedAt(System.currentTimeMillis());
+        appointment.setUpdatedAt(System.currentTimeMillis());
         appointment.setStatus("Planifié");
 
-        // Fetch and set patient and doctor names
-        Optional<Patient> patient = patientRepository.findById(appointment.getPatientId());
+        // Set patient and doctor names
+        Optional<Patient> patient = patientLookup.get();
         if (patient.isPresent()) {
             Patient p = patient.get();
             appointment.setPatientName(p.getFirstName() + " " + p.getLastName());
         }
 
-        Optional<Doctor> doctor = doctorRepository.findById(appointment.getDoctorId());
+        Optional<Doctor> doctor = doctorLookup.get();
         if (doctor.isPresent()) {
             Doctor d = doctor.get();
             appointment.setDoctorName(d.getFirstName() + " " + d.getLastName());
             appointment.setDoctorSpecialization(d.getSpecialization());
+            if (appointment.getRoom() == null || appointment.getRoom().isBlank()) {
+                appointment.setRoom(d.getOfficeLocation());
+            }
         }
 
-        appointmentRepository.save(appointment);
+        // Doctor and room overlap are checked and claimed atomically with the save
+        AppointmentBookingService.BookingResult result = appointmentBookingService.book(appointment);
+        if (!result.isBooked()) {
+            return "redirect:/appointments/add?error=" + URLEncoder.encode(result.getError(), StandardCharsets.UTF_8);
+        }
         return "redirect:/calendar#calendar";
     }
 
@@ -240,7 +300,7 @@ public class AppointmentController {
      */
     @GetMapping("/edit/{id}")
     public String afficherFormulaireModifierRendezVous(@PathVariable String id, Model model) {
-        User currentUser = getCurrentUser();
+        UserPrincipal currentUser = getCurrentUser();
         Optional<Appointment> appointment = appointmentRepository.findById(id);
 
         if (!appointment.isPresent()) {
@@ -252,8 +312,8 @@ public class AppointmentController {
         // ADMIN can edit any appointment
         // DOCTOR can only edit their own appointments
         if (isAdmin() || (isDoctor() && currentUser != null && apt.getDoctorId().equals(currentUser.getDoctorId()))) {
-            List<Patient> patients = patientRepository.findAll();
-            List<Doctor> doctors = doctorRepository.findAll();
+            List<PatientSummary> patients = directoryService.getActivePatients();
+            List<DoctorSummary> doctors = directoryService.getActiveDoctors();
             model.addAttribute("appointment", apt);
             model.addAttribute("patients", patients);
             model.addAttribute("doctors", doctors);
@@ -268,7 +328,7 @@ public class AppointmentController {
      */
     @PostMapping("/update")
     public String modifierRendezVous(@ModelAttribute Appointment appointment) {
-        User currentUser = getCurrentUser();
+        UserPrincipal currentUser = getCurrentUser();
         Optional<Appointment> existingAppointment = appointmentRepository.findById(appointment.getId());
 
         if (!existingAppointment.isPresent()) {
@@ -292,8 +352,28 @@ public class AppointmentController {
         appointment.setPatientName(existing.getPatientName());
         appointment.setDoctorName(existing.getDoctorName());
         appointment.setDoctorSpecialization(existing.getDoctorSpecialization());
-        appointment.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
-        appointmentRepository.save(appointment);
+        appointment.setRoom(existing.getRoom());
+        if (appointment.getDurationMinutes() == null) {
+            appointment.setDurationMinutes(existing.getDurationMinutes());
+        }
+        if (appointment.getVersion() == null) {
+            appointment.setVersion(existing.getVersion());
+        }
+        appointment.setUpdatedAt(System.currentTimeMillis());
+        AppointmentBookingService.BookingResult result;
+        try {
+            // A new date, time or duration goes through the same conflict checks as a booking
+            result = appointmentBookingService.reschedule(existing, appointment);
+        } catch (OptimisticLockingFailureException e) {
+            // Someone else changed the appointment since the form was loaded
+            return "redirect:/appointments/edit/" + appointment.getId() + "?error="
+                    + URLEncoder.encode("Ce rendez-vous a été modifié entre-temps, veuillez recommencer",
+                            StandardCharsets.UTF_8);
+        }
+        if (!result.isBooked()) {
+            return "redirect:/appointments/edit/" + appointment.getId() + "?error="
+                    + URLEncoder.encode(result.getError(), StandardCharsets.UTF_8);
+        }
         return "redirect:/appointments/list";
     }
 
@@ -302,7 +382,7 @@ public class AppointmentController {
      */
     @PostMapping("/cancel/{id}")
     public String annulerRendezVous(@PathVariable String id, @RequestParam String reason) {
-        User currentUser = getCurrentUser();
+        UserPrincipal currentUser = getCurrentUser();
         Optional<Appointment> appointment = appointmentRepository.findById(id);
 
         if (!appointment.isPresent()) {
@@ -313,45 +393,47 @@ public class AppointmentController {
 
         // ADMIN can cancel any appointment
         if (isAdmin()) {
-            app.setStatus("Annulé");
-            app.setCancelledAt(String.valueOf(System.currentTimeMillis()));
-            app.setCancelledReason(reason);
-            app.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
-            appointmentRepository.save(app);
+            annuler(app, reason);
             return "redirect:/appointments/list";
         }
 
         // PATIENT can only cancel their own appointments
         if (isPatient() && currentUser != null && currentUser.getPatientId() != null) {
             if (app.getPatientId().equals(currentUser.getPatientId())) {
-                app.setStatus("Annulé");
-                app.setCancelledAt(String.valueOf(System.currentTimeMillis()));
-                app.setCancelledReason(reason);
-                app.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
-                appointmentRepository.save(app);
+                annuler(app, reason);
             }
         }
 
         // DOCTOR can only cancel their own appointments
         if (isDoctor() && currentUser != null && currentUser.getDoctorId() != null) {
             if (app.getDoctorId().equals(currentUser.getDoctorId())) {
-                app.setStatus("Annulé");
-                app.setCancelledAt(String.valueOf(System.currentTimeMillis()));
-                app.setCancelledReason(reason);
-                app.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
-                appointmentRepository.save(app);
+                annuler(app, reason);
             }
         }
 
         return "redirect:/appointments/list";
     }
 
+    /**
+     * Cancel and save, keeping a copy of the state before the change for the
+     * change notifications
+     */
+    private void annuler(Appointment app, String reason) {
+        Appointment previous = app.toBuilder().build();
+        app.setStatus("Annulé");
+        app.setCancelledAt(System.currentTimeMillis());
+        app.setCancelledReason(reason);
+        app.setUpdatedAt(System.currentTimeMillis());
+        appointmentChangeService.inTransaction(
+                () -> appointmentChangeService.appointmentSaved(previous, appointmentRepository.save(app)));
+    }
+
     /**
      * Delete appointment - ADMIN only
      */
     @GetMapping("/delete/{id}")
     public String supprimerRendezVous(@PathVariable String id) {
-        User currentUser = getCurrentUser();
+        UserPrincipal currentUser = getCurrentUser();
         Optional<Appointment> appointment = appointmentRepository.findById(id);
 
         if (!appointment.isPresent()) {
@@ -363,7 +445,10 @@ public class AppointmentController {
         // ADMIN can delete any appointment
         // DOCTOR can only delete their own appointments
         if (isAdmin() || (isDoctor() && currentUser != null && app.getDoctorId().equals(currentUser.getDoctorId()))) {
-            appointmentRepository.deleteById(id);
+            appointmentChangeService.inTransaction(() -> {
+                appointmentRepository.deleteById(id);
+                appointmentChangeService.appointmentDeleted(app);
+            });
             return "redirect:/calendar#calendar";
         }
 
@@ -375,7 +460,7 @@ public class AppointmentController {
      */
     @GetMapping("/view/{id}")
     public String afficherRendezVousParMedecinEtDate(@PathVariable String id, Model model) {
-        User currentUser = getCurrentUser();
+        UserPrincipal currentUser = getCurrentUser();
         Optional<Appointment> appointment = appointmentRepository.findById(id);
 
         if (!appointment.isPresent()) {
@@ -420,9 +505,11 @@ public class AppointmentController {
         Optional<Appointment> appointment = appointmentRepository.findById(id);
         if (appointment.isPresent()) {
             Appointment app = appointment.get();
+            Appointment previous = app.toBuilder().build();
             app.setStatus("Terminé");
-            app.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
-            appointmentRepository.save(app);
+            app.setUpdatedAt(System.currentTimeMillis());
+            appointmentChangeService.inTransaction(
+                    () -> appointmentChangeService.appointmentSaved(previous, appointmentRepository.save(app)));
         }
         return "redirect:/appointments/list";
     }
@@ -432,32 +519,9 @@ public class AppointmentController {
      */
     @GetMapping("/api/search")
     @ResponseBody
-    public ResponseEntity<List<Appointment>> rechercherRendezVous(@RequestParam String query) {
-        List<Appointment> allAppointments = appointmentRepository.findAll();
-        User currentUser = getCurrentUser();
-
-        // Filter by role
-        if (isDoctor() && currentUser != null && currentUser.getDoctorId() != null) {
-            allAppointments = allAppointments.stream()
-                    .filter(a -> a.getDoctorId().equals(currentUser.getDoctorId()))
-                    .collect(Collectors.toList());
-        } else if (isPatient() && currentUser != null && currentUser.getPatientId() != null) {
-            allAppointments = allAppointments.stream()
-                    .filter(a -> a.getPatientId().equals(currentUser.getPatientId()))
-                    .collect(Collectors.toList());
-        }
-
-        String lowerQuery = query.toLowerCase();
-
-        List<Appointment> results = allAppointments.stream()
-                .filter(a -> a.getPatientName().toLowerCase().contains(lowerQuery) ||
-                        a.getDoctorName().toLowerCase().contains(lowerQuery) ||
-                        a.getAppointmentId().toLowerCase().contains(lowerQuery) ||
-                        a.getDate().toLowerCase().contains(lowerQuery) ||
-                        a.getStatus().toLowerCase().contains(lowerQuery))
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(results);
+    public ResponseEntity<List<AppointmentSummary>> rechercherRendezVous(@RequestParam String query,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(searchService.searchAppointments(query, getCurrentUser(), limit));
     }
 
     /**
@@ -468,7 +532,9 @@ public class AppointmentController {
     public ResponseEntity<AvailabilityResponse> checkDoctorAvailability(
             @RequestParam String doctorId,
             @RequestParam String date,
-            @RequestParam String time) {
+            @RequestParam String time,
+            @RequestParam(required = false) Integer duration,
+            @RequestParam(required = false) Integer minGap) {
 
         Optional<Doctor> doctorOpt = doctorRepository.findById(doctorId);
 
@@ -505,43 +571,61 @@ public class AppointmentController {
                     doctor.getWorkingDays()));
         }
 
-        // Check if doctor already has an appointment at this time
-        List<Appointment> existingAppointments = appointmentRepository.findByDoctorId(doctorId);
-
-        // Parse the requested time
-        java.time.LocalTime requestedTime = java.time.LocalTime.parse(time);
+        // Check the doctor's and the office's booked intervals for this day in the slot index
+        int gap = minGap != null && minGap >= 0 ? minGap : doctorSlotIndex.getDefaultMinGapMinutes();
+        int length = duration != null && duration > 0 ? duration : doctorSlotIndex.getDefaultDurationMinutes();
+        int requestedMinute = DoctorSlotIndex.toMinuteOfDay(time);
+        if (requestedMinute < 0) {
+            return ResponseEntity.ok(new AvailabilityResponse(false, "Heure de rendez-vous invalide : " + time));
+        }
+        DoctorSlotIndex.Conflict conflict = doctorSlotIndex.findConflict(doctorId, doctor.getOfficeLocation(), date,
+                requestedMinute, length, gap);
 
-        for (Appointment existingApt : existingAppointments) {
-            // Only check non-cancelled appointments
-            if (existingApt.getStatus().equals("Annulé")) {
-                continue;
+        if (conflict != null) {
+            // Check if there's a conflict at the exact same time
+            if (conflict.getMinute() == requestedMinute && DoctorSlotIndex.Conflict.DOCTOR.equals(conflict.getResource())) {
+                return ResponseEntity
+                        .ok(new AvailabilityResponse(false, "Le médecin a déjà un rendez-vous à cette heure"));
             }
 
-            // Check if it's the same date
-            if (existingApt.getDate().equals(date)) {
-                java.time.LocalTime existingTime = java.time.LocalTime.parse(existingApt.getTime());
-
-                // Check if there's a conflict at the exact same time
-                if (existingTime.equals(requestedTime)) {
-                    return ResponseEntity
-                            .ok(new AvailabilityResponse(false, "Le médecin a déjà un rendez-vous à cette heure"));
-                }
-
-                // Check for 10-minute gap
-                long minutesDifference = Math
-                        .abs(java.time.temporal.ChronoUnit.MINUTES.between(existingTime, requestedTime));
-                if (minutesDifference < 10) {
-                    return ResponseEntity.ok(new AvailabilityResponse(false,
-                            "Il doit y avoir un minimum de 10 minutes entre chaque rendez-vous du médecin. " +
-                                    "Rendez-vous existant: " + existingApt.getTime()));
-                }
-            }
+            // Overlap (including the minimum gap) with an existing booking
+            return ResponseEntity.ok(new AvailabilityResponse(false,
+                    AppointmentBookingService.describe(conflict) + ". Il doit y avoir un minimum de " + gap
+                            + " minutes entre chaque rendez-vous du médecin."));
         }
 
         // Doctor is available
         return ResponseEntity.ok(new AvailabilityResponse(true, "Le médecin est disponible"));
     }
 
+    /**
+     * API endpoint to find the earliest free slots across all active doctors
+     * of a specialization (date range is inclusive, at most 90 days)
+     */
+    @GetMapping("/api/free-slots")
+    @ResponseBody
+    public ResponseEntity<?> trouverCreneauxLibres(
+            @RequestParam String specialization,
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam(defaultValue = "30") int slotLength,
+            @RequestParam(defaultValue = "10") int limit) {
+        java.time.LocalDate fromDate;
+        java.time.LocalDate toDate;
+        try {
+            fromDate = java.time.LocalDate.parse(from);
+            toDate = java.time.LocalDate.parse(to);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Date invalide : " + e.getParsedString()));
+        }
+        if (toDate.isAfter(fromDate.plusDays(89))) {
+            toDate = fromDate.plusDays(89);
+        }
+        int length = Math.min(Math.max(slotLength, 5), 240);
+        int max = Math.min(Math.max(limit, 1), 100);
+        return ResponseEntity.ok(freeSlotService.findFreeSlots(specialization, fromDate, toDate, length, max));
+    }
+
     /**
      * Inner class for availability response
      */
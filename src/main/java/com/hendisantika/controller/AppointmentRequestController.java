@@ -1,23 +1,37 @@
 package com.hendisantika.controller;
 
+import com.hendisantika.dto.DoctorSummary;
 import com.hendisantika.entity.Appointment;
 import com.hendisantika.entity.AppointmentRequest;
 import com.hendisantika.entity.Doctor;
 import com.hendisantika.entity.Patient;
-import com.hendisantika.entity.User;
 import com.hendisantika.repository.AppointmentRepository;
 import com.hendisantika.repository.AppointmentRequestRepository;
 import com.hendisantika.repository.DoctorRepository;
 import com.hendisantika.repository.PatientRepository;
-import com.hendisantika.repository.UserRepository;
+import com.hendisantika.service.AppointmentBookingService;
+import com.hendisantika.service.AppointmentChangeService;
+import com.hendisantika.service.AppointmentRequestBatchService;
+import com.hendisantika.service.CurrentUserService;
+import com.hendisantika.service.DirectoryService;
+import com.hendisantika.service.LookupScope;
 import com.hendisantika.service.SequenceService;
+import com.hendisantika.service.UserPrincipal;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 /**
  * Appointment Request Controller - Handles appointment request workflows
@@ -39,11 +53,23 @@ public class AppointmentRequestController {
     private DoctorRepository doctorRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private CurrentUserService currentUserService;
 
     @Autowired
     private SequenceService sequenceService;
 
+    @Autowired
+    private AppointmentChangeService appointmentChangeService;
+
+    @Autowired
+    private AppointmentBookingService appointmentBookingService;
+
+    @Autowired
+    private AppointmentRequestBatchService appointmentRequestBatchService;
+
+    @Autowired
+    private DirectoryService directoryService;
+
     /**
      * Show form for patient to request appointment
      */
@@ -53,13 +79,12 @@ public class AppointmentRequestController {
             return "redirect:/login";
         }
 
-        Optional<User> userOpt = userRepository.findByUsername(authentication.getName());
-        if (!userOpt.isPresent() || userOpt.get().getPatientId() == null) {
+        UserPrincipal user = currentUserService.getCurrentUser();
+        if (user == null || user.getPatientId() == null) {
             return "redirect:/login";
         }
 
-        User user = userOpt.get();
-        List<Doctor> doctors = doctorRepository.findAll();
+        List<DoctorSummary> doctors = directoryService.getActiveDoctors();
         model.addAttribute("doctors", doctors);
         model.addAttribute("appointmentRequest", new AppointmentRequest());
         model.addAttribute("patientId", user.getPatientId());
@@ -76,23 +101,33 @@ public class AppointmentRequestController {
             return "redirect:/login";
         }
 
-        Optional<User> userOpt = userRepository.findByUsername(authentication.getName());
-        if (!userOpt.isPresent() || userOpt.get().getPatientId() == null) {
+        UserPrincipal user = currentUserService.getCurrentUser();
+        if (user == null || user.getPatientId() == null) {
             return "redirect:/login";
         }
 
-        User user = userOpt.get();
         String patientId = user.getPatientId();
-        Optional<Patient> patient = patientRepository.findById(patientId);
+        // Patient, doctor and request ID are independent: run the lookups concurrently. The ID
+        // comes from the node's leased block, so the rare unused one only leaves a gap.
+        Supplier<Optional<Patient>> patientLookup;
+        Supplier<Optional<Doctor>> doctorLookup;
+        Supplier<String> requestId;
+        try (LookupScope scope = new LookupScope()) {
+            patientLookup = scope.fork(() -> patientRepository.findById(patientId));
+            doctorLookup = scope.fork(() -> doctorRepository.findById(appointmentRequest.getDoctorId()));
+            requestId = scope.fork(() -> sequenceService.getNextSequenceId("appointment_request_seq", "AR"));
+            scope.join();
+        }
+        Optional<Patient> patient = patientLookup.get();
 
         if (patient.isPresent()) {
             Patient p = patient.get();
-            appointmentRequest.setRequestId(sequenceService.getNextSequenceId("appointment_request_seq", "AR"));
+            appointmentRequest.setRequestId(requestId.get());
             appointmentRequest.setPatientId(patientId);
             appointmentRequest.setPatientName(p.getFirstName() + " " + p.getLastName());
 
             // Get doctor info
-            Optional<Doctor> doctor = doctorRepository.findById(appointmentRequest.getDoctorId());
+            Optional<Doctor> doctor = doctorLookup.get();
             if (doctor.isPresent()) {
                 Doctor d = doctor.get();
                 appointmentRequest.setDoctorName(d.getFirstName() + " " + d.getLastName());
@@ -102,7 +137,8 @@ public class AppointmentRequestController {
             appointmentRequest.setCreatedAt(String.valueOf(System.currentTimeMillis()));
             appointmentRequest.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
 
-            appointmentRequestRepository.save(appointmentRequest);
+            appointmentChangeService.inTransaction(() -> appointmentChangeService.requestSaved(
+                    appointmentRequestRepository.save(appointmentRequest), null));
         }
 
         return "redirect:/appointment-requests/my-requests";
@@ -117,12 +153,11 @@ public class AppointmentRequestController {
             return "redirect:/login";
         }
 
-        Optional<User> userOpt = userRepository.findByUsername(authentication.getName());
-        if (!userOpt.isPresent() || userOpt.get().getPatientId() == null) {
+        UserPrincipal user = currentUserService.getCurrentUser();
+        if (user == null || user.getPatientId() == null) {
             return "redirect:/login";
         }
 
-        User user = userOpt.get();
         String patientId = user.getPatientId();
         List<AppointmentRequest> requests = appointmentRequestRepository.findByPatientId(patientId);
         model.addAttribute("requests", requests);
@@ -138,12 +173,11 @@ public class AppointmentRequestController {
             return "redirect:/login";
         }
 
-        Optional<User> userOpt = userRepository.findByUsername(authentication.getName());
-        if (!userOpt.isPresent() || userOpt.get().getDoctorId() == null) {
+        UserPrincipal user = currentUserService.getCurrentUser();
+        if (user == null || user.getDoctorId() == null) {
             return "redirect:/login";
         }
 
-        User user = userOpt.get();
         String doctorId = user.getDoctorId();
         List<AppointmentRequest> requests = appointmentRequestRepository.findByDoctorId(doctorId);
         model.addAttribute("requests", requests);
@@ -164,25 +198,52 @@ public class AppointmentRequestController {
 
         if (request.isPresent()) {
             AppointmentRequest ar = request.get();
+            String previousStatus = ar.getStatus();
+            if (!"PENDING".equals(previousStatus)) {
+                return "redirect:/appointment-requests/pending-requests";
+            }
+
+            // The versioned save lets only one of two concurrent approvals through
             ar.setStatus("APPROVED");
             ar.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
-            appointmentRequestRepository.save(ar);
+            AppointmentRequest approved;
+            try {
+                approved = appointmentChangeService.inTransaction(() -> {
+                    AppointmentRequest saved = appointmentRequestRepository.save(ar);
+                    appointmentChangeService.requestSaved(saved, previousStatus);
+                    return saved;
+                });
+            } catch (OptimisticLockingFailureException e) {
+                return "redirect:/appointment-requests/pending-requests?error="
+                        + URLEncoder.encode("Cette demande a déjà été traitée", StandardCharsets.UTF_8);
+            }
 
             // Create appointment from the approved request
             Appointment appointment = new Appointment();
-            appointment.setAppointmentId(sequenceService.getNextSequenceId("appointment_seq", "APT"));
-            appointment.setPatientId(ar.getPatientId());
-            appointment.setPatientName(ar.getPatientName());
-            appointment.setDoctorId(ar.getDoctorId());
-            appointment.setDoctorName(ar.getDoctorName());
-            appointment.setDate(ar.getAppointmentDate());
-            appointment.setTime(ar.getAppointmentTime());
+            appointment.setPatientId(approved.getPatientId());
+            appointment.setPatientName(approved.getPatientName());
+            appointment.setDoctorId(approved.getDoctorId());
+            appointment.setDoctorName(approved.getDoctorName());
+            appointment.setDate(approved.getAppointmentDate());
+            appointment.setTime(approved.getAppointmentTime());
             appointment.setStatus("Planifié"); // Scheduled
-            appointment.setRemarks("Created from appointment request: " + ar.getRequestId());
-            appointment.setCreatedAt(String.valueOf(System.currentTimeMillis()));
-            appointment.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
-
-            appointmentRepository.save(appointment);
+            appointment.setRemarks("Created from appointment request: " + approved.getRequestId());
+            doctorRepository.findById(approved.getDoctorId())
+                    .ifPresent(doctor -> appointment.setRoom(doctor.getOfficeLocation()));
+            appointment.setAppointmentId(sequenceService.getNextSequenceId("appointment_seq", "APT"));
+            appointment.setCreatedAt(System.currentTimeMillis());
+            appointment.setUpdatedAt(System.currentTimeMillis());
+
+            // The request goes back to pending if the slot was taken in the meantime
+            AppointmentBookingService.BookingResult result = appointmentBookingService.book(appointment);
+            if (!result.isBooked()) {
+                approved.setStatus(previousStatus);
+                approved.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
+                appointmentChangeService.inTransaction(() -> appointmentChangeService.requestSaved(
+                        appointmentRequestRepository.save(approved), "APPROVED"));
+                return "redirect:/appointment-requests/pending-requests?error="
+                        + URLEncoder.encode(result.getError(), StandardCharsets.UTF_8);
+            }
         }
 
         return "redirect:/appointment-requests/pending-requests";
@@ -203,15 +264,76 @@ public class AppointmentRequestController {
 
         if (request.isPresent()) {
             AppointmentRequest ar = request.get();
+            String previousStatus = ar.getStatus();
             ar.setStatus("DENIED");
             ar.setDenialReason(denialReason);
             ar.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
-            appointmentRequestRepository.save(ar);
+            try {
+                appointmentChangeService.inTransaction(() -> appointmentChangeService.requestSaved(
+                        appointmentRequestRepository.save(ar), previousStatus));
+            } catch (OptimisticLockingFailureException e) {
+                return "redirect:/appointment-requests/pending-requests?error="
+                        + URLEncoder.encode("Cette demande a déjà été traitée", StandardCharsets.UTF_8);
+            }
         }
 
         return "redirect:/appointment-requests/pending-requests";
     }
 
+    /**
+     * Doctor approves or denies the selected requests in one go
+     */
+    @PostMapping("/batch")
+    public String traiterDemandesEnLot(@RequestParam(required = false) List<String> requestIds,
+            @RequestParam String action,
+            @RequestParam(required = false) String denialReason,
+            Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return "redirect:/login";
+        }
+
+        UserPrincipal user = currentUserService.getCurrentUser();
+        if (user == null || user.getDoctorId() == null) {
+            return "redirect:/login";
+        }
+        if (requestIds == null || requestIds.isEmpty()) {
+            return "redirect:/appointment-requests/pending-requests";
+        }
+
+        AppointmentRequestBatchService.BatchResult result = appointmentRequestBatchService.process(
+                requestIds, action, denialReasonOrDefault(denialReason), user.getDoctorId());
+        String summary = result.getApproved() + " approuvée(s), " + result.getDenied() + " refusée(s), "
+                + result.getFailed() + " non traitée(s)";
+        return "redirect:/appointment-requests/pending-requests?batch="
+                + URLEncoder.encode(summary, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Batch approval/denial with a per-request report
+     */
+    @PostMapping("/api/batch")
+    @ResponseBody
+    public ResponseEntity<?> traiterDemandesEnLotApi(@RequestBody BatchRequest request) {
+        if (request.getRequestIds() == null || request.getRequestIds().isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "requestIds requis"));
+        }
+        if (!AppointmentRequestBatchService.APPROVE.equals(request.getAction())
+                && !AppointmentRequestBatchService.DENY.equals(request.getAction())) {
+            return ResponseEntity.badRequest().body(Map.of("error", "action doit être approve ou deny"));
+        }
+
+        UserPrincipal user = currentUserService.getCurrentUser();
+        if (user == null || user.getDoctorId() == null) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Réservé aux médecins"));
+        }
+        return ResponseEntity.ok(appointmentRequestBatchService.process(request.getRequestIds(),
+                request.getAction(), denialReasonOrDefault(request.getDenialReason()), user.getDoctorId()));
+    }
+
+    private static String denialReasonOrDefault(String denialReason) {
+        return denialReason != null && !denialReason.isBlank() ? denialReason : "Refusé par le médecin";
+    }
+
     /**
      * View request details
      */
@@ -226,4 +348,34 @@ public class AppointmentRequestController {
 
         return "redirect:/";
     }
+
+    public static class BatchRequest {
+        private List<String> requestIds;
+        private String action;
+        private String denialReason;
+
+        public List<String> getRequestIds() {
+            return requestIds;
+        }
+
+        public void setRequestIds(List<String> requestIds) {
+            this.requestIds = requestIds;
+        }
+
+        public String getAction() {
+            return action;
+        }
+
+        public void setAction(String action) {
+            this.action = action;
+        }
+
+        public String getDenialReason() {
+            return denialReason;
+        }
+
+        public void setDenialReason(String denialReason) {
+            this.denialReason = denialReason;
+        }
+    }
 }
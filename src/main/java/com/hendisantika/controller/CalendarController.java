@@ -1,21 +1,26 @@
 package com.hendisantika.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hendisantika.entity.Appointment;
-import com.hendisantika.entity.User;
 import com.hendisantika.repository.AppointmentRepository;
-import com.hendisantika.repository.UserRepository;
+import com.hendisantika.service.CurrentUserService;
+import com.hendisantika.service.UserPrincipal;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
-import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.stream.Stream;
 
 /**
  * Calendar Controller for displaying appointments in FullCalendar
@@ -28,27 +33,16 @@ public class CalendarController {
     private AppointmentRepository appointmentRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private CurrentUserService currentUserService;
 
-    /**
-     * Get current logged-in user
-     */
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication != null && authentication.isAuthenticated()) {
-            String username = authentication.getName();
-            Optional<User> user = userRepository.findByUsername(username);
-            return user.orElse(null);
-        }
-        return null;
-    }
+    @Autowired
+    private ObjectMapper objectMapper;
 
     /**
-     * Get current user's role
+     * Get current logged-in user
      */
-    private String getCurrentUserRole() {
-        User user = getCurrentUser();
-        return user != null ? user.getRole() : "PATIENT";
+    private UserPrincipal getCurrentUser() {
+        return currentUserService.getCurrentUser();
     }
 
     /**
@@ -65,7 +59,7 @@ public class CalendarController {
     @GetMapping("/api/current-user")
     @ResponseBody
     public ResponseEntity<?> getCurrentUserInfo() {
-        User user = getCurrentUser();
+        UserPrincipal user = getCurrentUser();
         if (user == null) {
             return ResponseEntity.ok(null);
         }
@@ -82,48 +76,75 @@ public class CalendarController {
     }
 
     /**
-     * API endpoint to get all appointments in FullCalendar format (filtered by
-     * role)
+     * API endpoint to get appointments in FullCalendar format (filtered by
+     * role) for the visible range only. FullCalendar sends ISO start/end
+     * values; end is exclusive. Without a range the current month window is
+     * used. Events are written as a JSON array while the cursor is read, so
+     * a large range is never held in memory and a slow client only slows
+     * down its own cursor.
      */
     @GetMapping("/api/events")
-    @ResponseBody
-    public ResponseEntity<List<CalendarEvent>> getCalendarEvents() {
-        List<Appointment> appointments = appointmentRepository.findAll();
+    public void getCalendarEvents(
+            @RequestParam(required = false) String start,
+            @RequestParam(required = false) String end,
+            HttpServletResponse response) throws IOException {
+        String startDate = toDate(start, LocalDate.now().withDayOfMonth(1).minusWeeks(1));
+        String endDate = toDate(end, LocalDate.now().withDayOfMonth(1).plusMonths(1).plusWeeks(1));
 
         // Filter based on user role
-        String role = getCurrentUserRole();
-        User currentUser = getCurrentUser();
+        UserPrincipal currentUser = getCurrentUser();
+        String role = currentUser != null ? currentUser.getRole() : null;
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        try (Stream<Appointment> appointments = streamEvents(currentUser, role, startDate, endDate);
+                JsonGenerator json = objectMapper.createGenerator(response.getOutputStream())) {
+            json.writeStartArray();
+            Iterator<Appointment> iterator = appointments.iterator();
+            while (iterator.hasNext()) {
+                json.writeObject(CalendarEvent.from(iterator.next()));
+            }
+            json.writeEndArray();
+        }
+    }
 
+    private Stream<Appointment> streamEvents(UserPrincipal currentUser, String role, String startDate,
+            String endDate) {
         if ("DOCTOR".equals(role) && currentUser != null && currentUser.getDoctorId() != null) {
             // Doctors see only their appointments
-            appointments = appointments.stream()
-                    .filter(a -> a.getDoctorId().equals(currentUser.getDoctorId()))
-                    .collect(Collectors.toList());
+            return appointmentRepository.streamEventsByDoctorIdAndDateRange(currentUser.getDoctorId(), startDate,
+                    endDate);
         } else if ("PATIENT".equals(role) && currentUser != null && currentUser.getPatientId() != null) {
             // Patients see only their appointments
-            appointments = appointments.stream()
-                    .filter(a -> a.getPatientId().equals(currentUser.getPatientId()))
-                    .collect(Collectors.toList());
+            return appointmentRepository.streamEventsByPatientIdAndDateRange(currentUser.getPatientId(), startDate,
+                    endDate);
+        } else if ("ADMIN".equals(role)) {
+            // ADMIN sees all appointments
+            return appointmentRepository.streamEventsByDateRange(startDate, endDate);
+        }
+        // No role, or a doctor / patient account not linked to its record: nothing to show
+        return Stream.empty();
+    }
+
+    /**
+     * Reduce a FullCalendar ISO date/date-time to the YYYY-MM-DD format stored
+     * on appointments
+     */
+    private String toDate(String value, LocalDate fallback) {
+        if (value == null || value.length() < 10) {
+            return fallback.toString();
+        }
+        try {
+            return LocalDate.parse(value.substring(0, 10)).toString();
+        } catch (Exception e) {
+            return fallback.toString();
         }
-        // ADMIN sees all appointments
-
-        List<CalendarEvent> events = appointments.stream()
-                .map(appointment -> new CalendarEvent(
-                        appointment.getId(),
-                        appointment.getAppointmentId() + " - " + appointment.getPatientName(),
-                        appointment.getDate() + "T" + appointment.getTime(),
-                        appointment.getDoctorName(),
-                        appointment.getStatus(),
-                        getColorByStatus(appointment.getStatus())))
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(events);
     }
 
     /**
      * Get color based on appointment status
      */
-    private String getColorByStatus(String status) {
+    private static String getColorByStatus(String status) {
         if (status == null)
             return "#3498db";
 
@@ -155,6 +176,19 @@ public class CalendarController {
             this.backgroundColor = color;
         }
 
+        /**
+         * Build the FullCalendar event of an appointment
+         */
+        public static CalendarEvent from(Appointment appointment) {
+            return new CalendarEvent(
+                    appointment.getId(),
+                    appointment.getAppointmentId() + " - " + appointment.getPatientName(),
+                    appointment.getDate() + "T" + appointment.getTime(),
+                    appointment.getDoctorName(),
+                    appointment.getStatus(),
+                    getColorByStatus(appointment.getStatus()));
+        }
+
         // Getters
         public String getId() {
             return id;
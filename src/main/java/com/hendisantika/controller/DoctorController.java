@@ -1,7 +1,12 @@
 package com.hendisantika.controller;
 
+import com.hendisantika.dto.DoctorSummary;
 import com.hendisantika.entity.Doctor;
 import com.hendisantika.repository.DoctorRepository;
+import com.hendisantika.service.DirectoryService;
+import com.hendisantika.service.DoctorDeactivationService;
+import com.hendisantika.service.NamePropagationService;
+import com.hendisantika.service.SearchService;
 import com.hendisantika.service.SequenceService;
 import com.hendisantika.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,8 +15,8 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 /**
  * Doctor Controller for handling doctor management operations
@@ -29,12 +34,24 @@ public class DoctorController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private DirectoryService directoryService;
+
+    @Autowired
+    private NamePropagationService namePropagationService;
+
+    @Autowired
+    private DoctorDeactivationService doctorDeactivationService;
+
     /**
      * Display all doctors
      */
     @GetMapping("/list")
     public String listerTousLesMedecins(Model model) {
-        List<Doctor> doctors = doctorRepository.findAll();
+        List<DoctorSummary> doctors = doctorRepository.findSummariesBy();
         model.addAttribute("doctors", doctors);
         return "doctor-list";
     }
@@ -67,7 +84,9 @@ public class DoctorController {
         doctor.setDoctorId(sequenceService.getNextSequenceId("doctor_seq", "D"));
         doctor.setCreatedAt(String.valueOf(System.currentTimeMillis()));
         doctor.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
-        doctorRepository.save(doctor);
+        Doctor saved = doctorRepository.save(doctor);
+        searchService.doctorSaved(saved);
+        directoryService.doctorSaved(saved);
 
         // Create user account for doctor
         String username = "dr_" + doctor.getFirstName().toLowerCase();
@@ -98,13 +117,16 @@ public class DoctorController {
     public String modifierMedecin(@ModelAttribute Doctor doctor) {
         // Preserve existing data
         Optional<Doctor> existingDoctor = doctorRepository.findById(doctor.getId());
-        if (existingDoctor.isPresent()) {
-            Doctor existing = existingDoctor.get();
+        Doctor existing = existingDoctor.orElse(null);
+        if (existing != null) {
             doctor.setDoctorId(existing.getDoctorId());
             doctor.setCreatedAt(existing.getCreatedAt());
         }
         doctor.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
-        doctorRepository.save(doctor);
+        Doctor saved = doctorRepository.save(doctor);
+        searchService.doctorSaved(saved);
+        directoryService.doctorSaved(saved);
+        namePropagationService.doctorSaved(existing, saved);
         return "redirect:/doctors/list";
     }
 
@@ -118,7 +140,9 @@ public class DoctorController {
             Doctor doc = doctor.get();
             doc.setActive(false);
             doc.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
-            doctorRepository.save(doc);
+            Doctor saved = doctorRepository.save(doc);
+            searchService.doctorSaved(saved);
+            directoryService.doctorSaved(saved);
             // Deactivate associated user account
             userService.deactivateUser(doc.getDoctorId(), null);
         }
@@ -138,24 +162,70 @@ public class DoctorController {
         return "redirect:/doctors/list";
     }
 
+    /**
+     * API endpoint for dropdowns: every active doctor
+     */
+    @GetMapping("/api/options")
+    @ResponseBody
+    public ResponseEntity<List<DoctorSummary>> listerMedecinsActifs() {
+        return ResponseEntity.ok(directoryService.getActiveDoctors());
+    }
+
     /**
      * API endpoint for live search
      */
     @GetMapping("/api/search")
     @ResponseBody
-    public ResponseEntity<List<Doctor>> rechercherMedecins(@RequestParam String query) {
-        List<Doctor> allDoctors = doctorRepository.findAll();
-        String lowerQuery = query.toLowerCase();
-
-        List<Doctor> results = allDoctors.stream()
-                .filter(d -> d.getFirstName().toLowerCase().contains(lowerQuery) ||
-                        d.getLastName().toLowerCase().contains(lowerQuery) ||
-                        d.getDoctorId().toLowerCase().contains(lowerQuery) ||
-                        d.getSpecialization().toLowerCase().contains(lowerQuery) ||
-                        d.getEmail().toLowerCase().contains(lowerQuery) ||
-                        d.getPhone().toLowerCase().contains(lowerQuery))
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(results);
+    public ResponseEntity<List<DoctorSummary>> rechercherMedecins(@RequestParam String query,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(searchService.searchDoctors(query, limit));
+    }
+
+    /**
+     * Bulk deactivation (e.g. offboarding a department): deactivates the
+     * doctors and their accounts and cancels their upcoming appointments
+     */
+    @PostMapping("/api/deactivate")
+    @ResponseBody
+    public ResponseEntity<?> desactiverMedecins(@RequestBody DeactivationRequest request) {
+        if ((request.getDoctorIds() == null || request.getDoctorIds().isEmpty())
+                && (request.getSpecialization() == null || request.getSpecialization().isBlank())) {
+            return ResponseEntity.badRequest().body(Map.of("error", "doctorIds ou specialization requis"));
+        }
+        String reason = request.getReason() != null && !request.getReason().isBlank()
+                ? request.getReason()
+                : "Médecin désactivé";
+        return ResponseEntity.ok(doctorDeactivationService.deactivateDoctors(
+                request.getDoctorIds(), request.getSpecialization(), reason));
+    }
+
+    public static class DeactivationRequest {
+        private List<String> doctorIds;
+        private String specialization;
+        private String reason;
+
+        public List<String> getDoctorIds() {
+            return doctorIds;
+        }
+
+        public void setDoctorIds(List<String> doctorIds) {
+            this.doctorIds = doctorIds;
+        }
+
+        public String getSpecialization() {
+            return specialization;
+        }
+
+        public void setSpecialization(String specialization) {
+            this.specialization = specialization;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        public void setReason(String reason) {
+            this.reason = reason;
+        }
     }
 }
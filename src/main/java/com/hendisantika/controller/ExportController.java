@@ -0,0 +1,98 @@
+package com.hendisantika.controller;
+
+import com.hendisantika.service.AppointmentExportService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Appointment export REST Controller (ADMIN only)
+ * Streams the filtered appointments as CSV or XLSX straight to the
+ * response; CSV is gzip-encoded when the client accepts it.
+ */
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+
+    private static final String XLSX_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    @Autowired
+    private AppointmentExportService appointmentExportService;
+
+    /**
+     * Export appointments, filtered by doctor, status and either a month
+     * (yyyy-MM) or a from / to date range (to exclusive)
+     */
+    @GetMapping("/appointments")
+    public void exporterRendezVous(@RequestParam(required = false) String doctorId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String month,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) Boolean gzip,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        AppointmentExportService.Format parsedFormat;
+        try {
+            parsedFormat = AppointmentExportService.Format.of(format);
+            if (month != null && !month.isBlank()) {
+                YearMonth yearMonth = YearMonth.parse(month.trim());
+                from = yearMonth.atDay(1).toString();
+                to = yearMonth.plusMonths(1).atDay(1).toString();
+            } else {
+                from = validDate(from);
+                to = validDate(to);
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Paramètre invalide : " + e.getMessage());
+            return;
+        }
+
+        String filename = "rendez-vous" + (month != null && !month.isBlank() ? "-" + month.trim() : "");
+        boolean xlsx = parsedFormat == AppointmentExportService.Format.XLSX;
+        // XLSX is already a zip archive, compressing it again only costs CPU
+        boolean compress = !xlsx && (gzip != null ? gzip : acceptsGzip(request));
+        response.setContentType(xlsx ? XLSX_TYPE : "text/csv;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + filename + (xlsx ? ".xlsx" : ".csv") + "\"");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        if (compress) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+
+        OutputStream out = response.getOutputStream();
+        if (compress) {
+            GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024);
+            appointmentExportService.export(new AppointmentExportService.Filter(doctorId, from, to, status),
+                    parsedFormat, gzipOut);
+            gzipOut.finish();
+        } else {
+            appointmentExportService.export(new AppointmentExportService.Filter(doctorId, from, to, status),
+                    parsedFormat, out);
+        }
+        out.flush();
+    }
+
+    private static String validDate(String date) {
+        return date == null || date.isBlank() ? null : LocalDate.parse(date.trim()).toString();
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String accepted = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return accepted != null && accepted.toLowerCase(Locale.ROOT).contains("gzip");
+    }
+}
@@ -0,0 +1,64 @@
+package com.hendisantika.controller;
+
+import com.hendisantika.service.ImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Bulk import REST Controller (ADMIN only)
+ * Accepts a CSV (with header) or JSON-lines upload and returns the import report
+ */
+@RestController
+@RequestMapping("/api/import")
+public class ImportController {
+
+    @Autowired
+    private ImportService importService;
+
+    /**
+     * Import patients from a CSV or JSON-lines file
+     */
+    @PostMapping("/patients")
+    public ResponseEntity<?> importerPatients(@RequestParam("file") MultipartFile file,
+            @RequestParam(required = false) String format) throws IOException {
+        ImportService.Format parsedFormat;
+        try {
+            parsedFormat = ImportService.Format.of(format, file.getOriginalFilename());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Format inconnu : " + format));
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+            return ResponseEntity.ok(importService.importPatients(reader, parsedFormat));
+        }
+    }
+
+    /**
+     * Import doctors from a CSV or JSON-lines file
+     */
+    @PostMapping("/doctors")
+    public ResponseEntity<?> importerMedecins(@RequestParam("file") MultipartFile file,
+            @RequestParam(required = false) String format) throws IOException {
+        ImportService.Format parsedFormat;
+        try {
+            parsedFormat = ImportService.Format.of(format, file.getOriginalFilename());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Format inconnu : " + format));
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+            return ResponseEntity.ok(importService.importDoctors(reader, parsedFormat));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.hendisantika.controller;
+
+import com.hendisantika.service.CurrentUserService;
+import com.hendisantika.service.LiveUpdateService;
+import com.hendisantika.service.UserPrincipal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Server-Sent Events endpoint replacing dashboard and calendar polling
+ */
+@RestController
+@RequestMapping("/api/live")
+public class LiveUpdateController {
+
+    @Autowired
+    private CurrentUserService currentUserService;
+
+    @Autowired
+    private LiveUpdateService liveUpdateService;
+
+    /**
+     * Open the live stream of the logged-in user
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        UserPrincipal currentUser = currentUserService.getCurrentUser();
+        if (currentUser == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        }
+        return liveUpdateService.subscribe(currentUser);
+    }
+}
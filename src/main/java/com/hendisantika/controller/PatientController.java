@@ -1,7 +1,11 @@
 package com.hendisantika.controller;
 
+import com.hendisantika.dto.PatientSummary;
 import com.hendisantika.entity.Patient;
 import com.hendisantika.repository.PatientRepository;
+import com.hendisantika.service.DirectoryService;
+import com.hendisantika.service.NamePropagationService;
+import com.hendisantika.service.SearchService;
 import com.hendisantika.service.SequenceService;
 import com.hendisantika.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,7 +15,6 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 /**
  * Patient Controller for handling patient management operations
@@ -29,12 +32,21 @@ public class PatientController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private DirectoryService directoryService;
+
+    @Autowired
+    private NamePropagationService namePropagationService;
+
     /**
      * Display all patients
      */
     @GetMapping("/list")
     public String listerTousLesPatients(Model model) {
-        List<Patient> patients = patientRepository.findAll();
+        List<PatientSummary> patients = patientRepository.findSummariesBy();
         model.addAttribute("patients", patients);
         return "patient-list";
     }
@@ -77,7 +89,9 @@ public class PatientController {
         patient.setPatientId(sequenceService.getNextSequenceId("patient_seq", "P"));
         patient.setCreatedAt(String.valueOf(System.currentTimeMillis()));
         patient.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
-        patientRepository.save(patient);
+        Patient saved = patientRepository.save(patient);
+        searchService.patientSaved(saved);
+        directoryService.patientSaved(saved);
 
         // Create user account for patient
         userService.createPatientUser(username, patient.getEmail(), patient.getPassword(), patient.getPatientId());
@@ -105,13 +119,16 @@ public class PatientController {
     public String modifierPatient(@ModelAttribute Patient patient) {
         // Preserve existing data
         Optional<Patient> existingPatient = patientRepository.findById(patient.getId());
-        if (existingPatient.isPresent()) {
-            Patient existing = existingPatient.get();
+        Patient existing = existingPatient.orElse(null);
+        if (existing != null) {
             patient.setPatientId(existing.getPatientId());
             patient.setCreatedAt(existing.getCreatedAt());
         }
         patient.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
-        patientRepository.save(patient);
+        Patient saved = patientRepository.save(patient);
+        searchService.patientSaved(saved);
+        directoryService.patientSaved(saved);
+        namePropagationService.patientSaved(existing, saved);
         return "redirect:/patients/list";
     }
 
@@ -125,7 +142,9 @@ public class PatientController {
             Patient pat = patient.get();
             pat.setActive(false);
             pat.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
-            patientRepository.save(pat);
+            Patient saved = patientRepository.save(pat);
+            searchService.patientSaved(saved);
+            directoryService.patientSaved(saved);
             // Deactivate associated user account
             userService.deactivateUser(null, pat.getPatientId());
         }
@@ -145,23 +164,22 @@ public class PatientController {
         return "redirect:/patients/list";
     }
 
+    /**
+     * API endpoint for dropdowns: every active patient
+     */
+    @GetMapping("/api/options")
+    @ResponseBody
+    public ResponseEntity<List<PatientSummary>> listerPatientsActifs() {
+        return ResponseEntity.ok(directoryService.getActivePatients());
+    }
+
     /**
      * API endpoint for live search
      */
     @GetMapping("/api/search")
     @ResponseBody
-    public ResponseEntity<List<Patient>> rechercherPatients(@RequestParam String query) {
-        List<Patient> allPatients = patientRepository.findAll();
-        String lowerQuery = query.toLowerCase();
-
-        List<Patient> results = allPatients.stream()
-                .filter(p -> p.getFirstName().toLowerCase().contains(lowerQuery) ||
-                        p.getLastName().toLowerCase().contains(lowerQuery) ||
-                        p.getEmail().toLowerCase().contains(lowerQuery) ||
-                        p.getPhone().toLowerCase().contains(lowerQuery) ||
-                        p.getPatientId().toLowerCase().contains(lowerQuery))
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(results);
+    public ResponseEntity<List<PatientSummary>> rechercherPatients(@RequestParam String query,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(searchService.searchPatients(query, limit));
     }
 }
@@ -2,6 +2,8 @@ package com.hendisantika.controller;
 
 import com.hendisantika.entity.Patient;
 import com.hendisantika.repository.PatientRepository;
+import com.hendisantika.service.DirectoryService;
+import com.hendisantika.service.SearchService;
 import com.hendisantika.service.SequenceService;
 import com.hendisantika.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,6 +27,12 @@ public class RegistrationController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private DirectoryService directoryService;
+
     /**
      * Save new patient from public registration form
      */
@@ -58,7 +66,9 @@ public class RegistrationController {
         patient.setActive(true);
 
         // Save patient
-        patientRepository.save(patient);
+        Patient saved = patientRepository.save(patient);
+        searchService.patientSaved(saved);
+        directoryService.patientSaved(saved);
 
         // Create user account for patient
         userService.createPatientUser(username, patient.getEmail(), patient.getPassword(), patient.getPatientId());
@@ -0,0 +1,113 @@
+package com.hendisantika.controller;
+
+import com.hendisantika.service.AutoSchedulingService;
+import com.hendisantika.service.CurrentUserService;
+import com.hendisantika.service.UserPrincipal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Auto-scheduling REST Controller (ADMIN and DOCTOR)
+ * Previews and applies slot proposals for pending appointment requests.
+ * A doctor always plans their own requests; an administrator picks a
+ * doctor or a whole specialization.
+ */
+@RestController
+@RequestMapping("/api/scheduling")
+public class SchedulingController {
+
+    @Autowired
+    private AutoSchedulingService autoSchedulingService;
+
+    @Autowired
+    private CurrentUserService currentUserService;
+
+    /**
+     * Proposed slots, nothing is booked
+     */
+    @GetMapping("/preview")
+    public ResponseEntity<?> previsualiserPlanning(@RequestParam(required = false) String doctorId,
+            @RequestParam(required = false) String specialization) {
+        UserPrincipal user = currentUserService.getCurrentUser();
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Accès refusé"));
+        }
+        if (user.isDoctor()) {
+            doctorId = user.getDoctorId();
+            specialization = null;
+        }
+        if (isBlank(doctorId) && isBlank(specialization)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "doctorId ou specialization requis"));
+        }
+        return ResponseEntity.ok(autoSchedulingService.preview(doctorId, specialization));
+    }
+
+    /**
+     * Apply the plan (optionally only some of its requests) and approve the
+     * requests at their proposed slot
+     */
+    @PostMapping("/commit")
+    public ResponseEntity<?> appliquerPlanning(@RequestBody CommitRequest request) {
+        UserPrincipal user = currentUserService.getCurrentUser();
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Accès refusé"));
+        }
+        String doctorId = request.getDoctorId();
+        String specialization = request.getSpecialization();
+        String restrictToDoctorId = null;
+        if (user.isDoctor()) {
+            doctorId = user.getDoctorId();
+            specialization = null;
+            restrictToDoctorId = user.getDoctorId();
+        }
+        if (isBlank(doctorId) && isBlank(specialization)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "doctorId ou specialization requis"));
+        }
+        return ResponseEntity.ok(autoSchedulingService.commit(doctorId, specialization, request.getRequestIds(),
+                restrictToDoctorId));
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    public static class CommitRequest {
+        private String doctorId;
+        private String specialization;
+        private List<String> requestIds;
+
+        public String getDoctorId() {
+            return doctorId;
+        }
+
+        public void setDoctorId(String doctorId) {
+            this.doctorId = doctorId;
+        }
+
+        public String getSpecialization() {
+            return specialization;
+        }
+
+        public void setSpecialization(String specialization) {
+            this.specialization = specialization;
+        }
+
+        public List<String> getRequestIds() {
+            return requestIds;
+        }
+
+        public void setRequestIds(List<String> requestIds) {
+            this.requestIds = requestIds;
+        }
+    }
+}
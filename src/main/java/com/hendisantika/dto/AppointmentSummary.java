@@ -0,0 +1,23 @@
+package com.hendisantika.dto;
+
+import lombok.Value;
+
+/**
+ * Read-only view of an appointment for search results (no remarks,
+ * cancellation details or audit timestamps)
+ */
+@Value
+public class AppointmentSummary {
+    String id;
+    String appointmentId;
+    String patientId;
+    String patientName;
+    String doctorId;
+    String doctorName;
+    String doctorSpecialization;
+    String date;
+    String time;
+    Integer durationMinutes;
+    String room;
+    String status;
+}
@@ -0,0 +1,21 @@
+package com.hendisantika.dto;
+
+import lombok.Value;
+
+/**
+ * Read-only view of a doctor for lists, dropdowns and search results.
+ * Used as a Spring Data projection: only these fields are read from
+ * MongoDB, and the password never leaves the database.
+ */
+@Value
+public class DoctorSummary {
+    String id;
+    String doctorId;
+    String firstName;
+    String lastName;
+    String specialization;
+    String email;
+    String phone;
+    String officeLocation;
+    boolean active;
+}
@@ -0,0 +1,20 @@
+package com.hendisantika.dto;
+
+import lombok.Value;
+
+/**
+ * Read-only view of a patient for lists, dropdowns and search results.
+ * Used as a Spring Data projection: only these fields are read from
+ * MongoDB, and the password and address never leave the database.
+ */
+@Value
+public class PatientSummary {
+    String id;
+    String patientId;
+    String firstName;
+    String lastName;
+    String gender;
+    String email;
+    String phone;
+    boolean active;
+}
@@ -2,24 +2,43 @@ package com.hendisantika.entity;
 
 import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.index.Indexed;
 
+import java.time.Instant;
+
 /**
  * Appointment Entity for GRH (Gestion de Rendez-vous Hospitaliers)
  * Contains appointment information for hospital appointment management
  */
 @Data
+@Builder(toBuilder = true) // toBuilder() copies the state before an in-place change
 @AllArgsConstructor
 @NoArgsConstructor
 @Document(collection = "appointments")
+@CompoundIndexes({
+        @CompoundIndex(name = "doctor_date_time_idx", def = "{'doctorId': 1, 'date': 1, 'time': 1}"),
+        @CompoundIndex(name = "patient_date_idx", def = "{'patientId': 1, 'date': 1}"),
+        @CompoundIndex(name = "date_time_idx", def = "{'date': 1, 'time': 1}"),
+        @CompoundIndex(name = "doctor_start_idx", def = "{'doctorId': 1, 'startAt': 1}"),
+        @CompoundIndex(name = "patient_start_idx", def = "{'patientId': 1, 'startAt': 1}"),
+        @CompoundIndex(name = "room_date_idx", def = "{'room': 1, 'date': 1}"),
+        @CompoundIndex(name = "status_start_idx", def = "{'status': 1, 'startAt': 1}")
+})
 public class Appointment {
     @Id
     private String id;
 
+    @Version
+    private Long version; // Optimistic locking: a stale save fails instead of overwriting
+
     @Indexed(unique = true)
     private String appointmentId; // Unique identifier for appointment
 
@@ -41,15 +60,22 @@ public class Appointment {
     @NotBlank(message = "Appointment time is required")
     private String time; // Format: HH:MM
 
+    @Indexed
+    private Instant startAt; // date + time in the server time zone, derived on every save
+
+    private Integer durationMinutes;
+
+    private String room; // Doctor's office location at booking time, if any
+
     private String status; // Planifié (Scheduled), Terminé (Completed), Annulé (Cancelled)
 
     private String remarks; // Additional remarks about the appointment
 
-    private String createdAt;
+    private Long createdAt; // Epoch milliseconds
 
-    private String updatedAt;
+    private Long updatedAt;
 
-    private String cancelledAt;
+    private Long cancelledAt;
 
     private String cancelledReason;
 }
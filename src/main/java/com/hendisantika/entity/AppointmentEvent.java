@@ -0,0 +1,73 @@
+package com.hendisantika.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * AppointmentEvent Entity - outbox record of one appointment or appointment
+ * request lifecycle change, written in the same transaction as the change
+ * and delivered afterwards to the AppointmentEventListener beans
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "appointment_events")
+@CompoundIndex(name = "node_pending_idx", def = "{'node': 1, 'dispatchedAt': 1, 'deadAt': 1, '_id': 1}")
+public class AppointmentEvent {
+    public static final String APPOINTMENT = "APPOINTMENT";
+    public static final String REQUEST = "REQUEST";
+
+    public static final String CREATED = "CREATED";
+    public static final String UPDATED = "UPDATED";
+    public static final String CANCELLED = "CANCELLED";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String DELETED = "DELETED";
+    public static final String APPROVED = "APPROVED";
+    public static final String DENIED = "DENIED";
+    public static final String REOPENED = "REOPENED";
+
+    @Id
+    private String id; // ObjectId generated by the writing node, so its events sort in write order
+
+    private String aggregateType; // APPOINTMENT or REQUEST
+
+    private String aggregateId; // Mongo id of the appointment or request
+
+    private Long aggregateVersion; // Version after the change; delivery order within an aggregate
+
+    private String type; // CREATED, UPDATED, CANCELLED, COMPLETED, DELETED, APPROVED, DENIED, REOPENED
+
+    private String previousStatus;
+
+    private String status;
+
+    private org.bson.Document snapshot; // Stored state after the change (before it, for DELETED)
+
+    // The snapshot as an entity; kept out of the mapping so the entities' indexes are not copied here
+    @Transient
+    private Appointment appointment;
+
+    @Transient
+    private AppointmentRequest request;
+
+    private String node; // Node that delivers the event
+
+    private Long occurredAt; // Epoch milliseconds
+
+    @Indexed(expireAfter = "7d")
+    private Date dispatchedAt; // Delivered events are dropped by MongoDB after a week
+
+    private Integer attempts;
+
+    private String lastError;
+
+    private Date deadAt; // Set once delivery gave up; kept for inspection
+}
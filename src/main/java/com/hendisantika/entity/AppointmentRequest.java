@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 /**
@@ -14,10 +16,14 @@ import org.springframework.data.mongodb.core.mapping.Document;
 @AllArgsConstructor
 @NoArgsConstructor
 @Document(collection = "appointment_requests")
+@CompoundIndex(name = "doctor_status_idx", def = "{'doctorId': 1, 'status': 1}")
 public class AppointmentRequest {
     @Id
     private String id;
 
+    @Version
+    private Long version; // Optimistic locking: a stale save fails instead of overwriting
+
     private String requestId; // AR00001, AR00002, etc.
 
     private String patientId; // Link to patient
@@ -41,4 +47,6 @@ public class AppointmentRequest {
     private String createdAt;
 
     private String updatedAt;
+
+    private String claimId; // Batch that last moved the request out of PENDING, to tell its writes apart
 }
@@ -0,0 +1,27 @@
+package com.hendisantika.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * EventNode Entity - heartbeat of a node delivering the appointment outbox.
+ * A node whose heartbeat is older than app.events.orphan-seconds is taken
+ * for stopped; the node that removes this document adopts its events.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "appointment_event_nodes")
+public class EventNode {
+    @Id
+    private String id; // Node id (app.events.node-id or host:port)
+
+    @Indexed(expireAfter = "7d")
+    private Date heartbeatAt; // Dropped by MongoDB a week after the node stopped
+}
@@ -0,0 +1,46 @@
+package com.hendisantika.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Reminder Entity - one reminder claimed for sending. The id
+ * (appointment|offset|start) is the unique key: a reminder is inserted
+ * before it is sent, so a second attempt after a restart or from another
+ * node fails on insert instead of sending again.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "appointment_reminders")
+public class Reminder {
+    public static final String SENDING = "SENDING";
+    public static final String SENT = "SENT";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    private String id; // <appointment Mongo id>|<offset minutes>|<startAt epoch ms>
+
+    private String appointmentId; // Appointment (Mongo id)
+
+    private String patientId;
+
+    private Integer offsetMinutes; // Sent this long before the appointment
+
+    private String channel;
+
+    private String status; // SENDING, SENT or FAILED (out of attempts); SENDING left behind by a crash is never resent
+
+    private String error;
+
+    private Long sentAt; // Epoch milliseconds
+
+    @Indexed(expireAfter = "30d")
+    private Date dueAt; // Dropped by MongoDB a month after it was due
+}
@@ -0,0 +1,30 @@
+package com.hendisantika.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * SlotLock Entity - one booked time granule of a doctor or a room.
+ * The id (resource|date|minute) is the unique key: a second booking of the
+ * same granule fails on insert, whichever node performs it.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "slot_locks")
+public class SlotLock {
+    @Id
+    private String id; // D|<doctorId>|2024-06-03|540 or R|<room>|2024-06-03|540
+
+    @Indexed
+    private String appointmentId; // Appointment (Mongo id) holding the granule
+
+    @Indexed(expireAfter = "0s")
+    private Date expiresAt; // Locks are dropped by MongoDB once the appointment is over
+}
@@ -37,7 +37,9 @@ public class User {
 
     // RBAC fields
     private String role = "PATIENT"; // ADMIN, DOCTOR, or PATIENT
+    @Indexed(sparse = true)
     private String doctorId; // Link to Doctor entity if user is a doctor
+    @Indexed(sparse = true)
     private String patientId; // Link to Patient entity if user is a patient
     private boolean active = true;
 }
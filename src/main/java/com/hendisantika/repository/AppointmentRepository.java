@@ -1,21 +1,102 @@
 package com.hendisantika.repository;
 
+import com.hendisantika.dto.AppointmentSummary;
 import com.hendisantika.entity.Appointment;
+import com.hendisantika.service.AppointmentTimes;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Appointment Repository for MongoDB operations
  */
 @Repository
 public interface AppointmentRepository extends MongoRepository<Appointment, String> {
+
+    // Fields of a calendar event; the feed is streamed from the cursor this many documents at a time
+    String EVENT_FIELDS = "{ 'appointmentId': 1, 'patientName': 1, 'doctorName': 1, 'date': 1, 'time': 1, 'status': 1 }";
+    int EVENT_BATCH_SIZE = 500;
+
     Optional<Appointment> findByAppointmentId(String appointmentId);
     List<Appointment> findByPatientId(String patientId);
     List<Appointment> findByDoctorId(String doctorId);
     List<Appointment> findByDate(String date);
     List<Appointment> findByStatus(String status);
     List<Appointment> findByDoctorIdAndDate(String doctorId, String date);
+    List<Appointment> findByRoomAndDate(String room, String date);
     List<Appointment> findByPatientIdAndStatus(String patientId, String status);
+    List<AppointmentSummary> findSummariesByIdIn(Collection<String> ids);
+
+    // Paged variants used by the list page so role scoping runs in MongoDB
+    Page<Appointment> findByDoctorId(String doctorId, Pageable pageable);
+    Page<Appointment> findByPatientId(String patientId, Pageable pageable);
+
+    // Range queries on the typed startAt (start inclusive, end exclusive). Documents without one
+    // (not migrated yet, or migrated with a malformed time: startAt null) are matched on their
+    // YYYY-MM-DD date instead.
+    // The calendar feed streams them from the cursor: close the stream to release it.
+    @Meta(cursorBatchSize = EVENT_BATCH_SIZE)
+    @Query(value = "{ $or: [ { 'startAt': { $gte: ?0, $lt: ?1 } }, { 'startAt': null, 'date': { $gte: ?2, $lt: ?3 } } ] }",
+            fields = EVENT_FIELDS)
+    Stream<Appointment> streamEventsByStartAtRange(Instant from, Instant to, String fromDate, String toDate);
+
+    @Meta(cursorBatchSize = EVENT_BATCH_SIZE)
+    @Query(value = "{ 'doctorId': ?0, $or: [ { 'startAt': { $gte: ?1, $lt: ?2 } }, { 'startAt': null, 'date': { $gte: ?3, $lt: ?4 } } ] }",
+            fields = EVENT_FIELDS)
+    Stream<Appointment> streamEventsByDoctorIdAndStartAtRange(String doctorId, Instant from, Instant to,
+            String fromDate, String toDate);
+
+    @Meta(cursorBatchSize = EVENT_BATCH_SIZE)
+    @Query(value = "{ 'patientId': ?0, $or: [ { 'startAt': { $gte: ?1, $lt: ?2 } }, { 'startAt': null, 'date': { $gte: ?3, $lt: ?4 } } ] }",
+            fields = EVENT_FIELDS)
+    Stream<Appointment> streamEventsByPatientIdAndStartAtRange(String patientId, Instant from, Instant to,
+            String fromDate, String toDate);
+
+    // Non-cancelled appointments of several doctors, only the fields the slot index needs
+    @Query(value = "{ 'doctorId': { $in: ?0 }, 'status': { $ne: 'Annulé' }, $or: [ { 'startAt': { $gte: ?1, $lt: ?2 } }, { 'startAt': null, 'date': { $gte: ?3, $lt: ?4 } } ] }",
+            fields = "{ 'doctorId': 1, 'date': 1, 'time': 1, 'startAt': 1, 'durationMinutes': 1, 'status': 1 }")
+    List<Appointment> findActiveByDoctorIdsAndStartAtRange(Collection<String> doctorIds, Instant from, Instant to,
+            String fromDate, String toDate);
+
+    // Same for the rooms, used by the scheduler to load every room-day it plans on at once
+    @Query(value = "{ 'room': { $in: ?0 }, 'status': { $ne: 'Annulé' }, $or: [ { 'startAt': { $gte: ?1, $lt: ?2 } }, { 'startAt': null, 'date': { $gte: ?3, $lt: ?4 } } ] }",
+            fields = "{ 'room': 1, 'date': 1, 'time': 1, 'startAt': 1, 'durationMinutes': 1, 'status': 1 }")
+    List<Appointment> findActiveByRoomsAndStartAtRange(Collection<String> rooms, Instant from, Instant to,
+            String fromDate, String toDate);
+
+    // Day-based helpers (YYYY-MM-DD, end exclusive) used by the calendar feed and the slot index
+    default Stream<Appointment> streamEventsByDateRange(String start, String end) {
+        return streamEventsByStartAtRange(AppointmentTimes.startOfDay(start), AppointmentTimes.startOfDay(end), start,
+                end);
+    }
+
+    default Stream<Appointment> streamEventsByDoctorIdAndDateRange(String doctorId, String start, String end) {
+        return streamEventsByDoctorIdAndStartAtRange(doctorId, AppointmentTimes.startOfDay(start),
+                AppointmentTimes.startOfDay(end), start, end);
+    }
+
+    default Stream<Appointment> streamEventsByPatientIdAndDateRange(String patientId, String start, String end) {
+        return streamEventsByPatientIdAndStartAtRange(patientId, AppointmentTimes.startOfDay(start),
+                AppointmentTimes.startOfDay(end), start, end);
+    }
+
+    default List<Appointment> findActiveByDoctorIdsAndDateRange(Collection<String> doctorIds, String start,
+            String end) {
+        return findActiveByDoctorIdsAndStartAtRange(doctorIds, AppointmentTimes.startOfDay(start),
+                AppointmentTimes.startOfDay(end), start, end);
+    }
+
+    default List<Appointment> findActiveByRoomsAndDateRange(Collection<String> rooms, String start, String end) {
+        return findActiveByRoomsAndStartAtRange(rooms, AppointmentTimes.startOfDay(start),
+                AppointmentTimes.startOfDay(end), start, end);
+    }
 }
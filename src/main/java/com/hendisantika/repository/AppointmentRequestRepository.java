@@ -4,6 +4,7 @@ import com.hendisantika.entity.AppointmentRequest;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,5 +19,7 @@ public interface AppointmentRequestRepository extends MongoRepository<Appointmen
 
     List<AppointmentRequest> findByStatus(String status);
 
+    List<AppointmentRequest> findByDoctorIdInAndStatus(Collection<String> doctorIds, String status);
+
     Optional<AppointmentRequest> findByRequestId(String requestId);
 }
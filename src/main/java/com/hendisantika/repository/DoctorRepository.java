@@ -1,8 +1,10 @@
 package com.hendisantika.repository;
 
+import com.hendisantika.dto.DoctorSummary;
 import com.hendisantika.entity.Doctor;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,4 +17,9 @@ public interface DoctorRepository extends MongoRepository<Doctor, String> {
     Optional<Doctor> findByEmail(String email);
     List<Doctor> findBySpecialization(String specialization);
     List<Doctor> findByActive(boolean active);
+
+    // Summary projections: MongoDB only returns the DoctorSummary fields
+    List<DoctorSummary> findSummariesBy();
+    List<DoctorSummary> findSummariesByActiveTrue();
+    List<DoctorSummary> findSummariesByIdIn(Collection<String> ids);
 }
@@ -1,8 +1,11 @@
 package com.hendisantika.repository;
 
+import com.hendisantika.dto.PatientSummary;
 import com.hendisantika.entity.Patient;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -15,4 +18,11 @@ public interface PatientRepository extends MongoRepository<Patient, String> {
     Optional<Patient> findByEmail(String email);
 
     Optional<Patient> findByPhone(String phone);
+
+    // Summary projections: MongoDB only returns the PatientSummary fields
+    List<PatientSummary> findSummariesBy();
+
+    List<PatientSummary> findSummariesByActiveTrue();
+
+    List<PatientSummary> findSummariesByIdIn(Collection<String> ids);
 }
@@ -0,0 +1,430 @@
+package com.hendisantika.service;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Appointment analytics computed by MongoDB aggregation pipelines: volume
+ * per doctor per day or ISO week, cancellation rate by specialization,
+ * booking lead time and request approval latency. Results are cached per
+ * time bucket of app.analytics.cache-bucket-seconds: every entry is
+ * recomputed once the bucket it was computed in is over, and concurrent
+ * misses on the same key share one aggregation.
+ */
+@Service
+public class AppointmentAnalyticsService {
+
+    private static final String CANCELLED = "Annulé";
+
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    @Value("${app.analytics.cache-bucket-seconds:300}")
+    private long bucketSeconds = 300;
+
+    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
+    private final AtomicLong purgedBucket = new AtomicLong();
+
+    public enum Granularity {
+        DAY, WEEK
+    }
+
+    /**
+     * Appointments per doctor per day (YYYY-MM-DD) or ISO week (YYYY-Www)
+     * dated in [from, to); doctorId is optional
+     */
+    public AnalyticsResult<List<VolumeRow>> volume(String from, String to, Granularity granularity, String doctorId) {
+        return cached("volume|" + from + "|" + to + "|" + granularity + "|" + doctorId, from, to, () -> {
+            Criteria match = dateRange(from, to);
+            if (doctorId != null) {
+                match.and("doctorId").is(doctorId);
+            }
+            Object period = granularity == Granularity.WEEK
+                    ? new Document("$dateToString", new Document("format", "%G-W%V")
+                            .append("date", startExpression()).append("timezone", zone()))
+                    : "$date";
+            List<VolumeRow> rows = new ArrayList<>();
+            for (Document row : aggregate("appointments",
+                    Aggregation.match(match),
+                    stage("$group", new Document("_id", new Document("doctorId", "$doctorId").append("period", period))
+                            .append("doctorName", new Document("$first", "$doctorName"))
+                            .append("total", new Document("$sum", 1))
+                            .append("cancelled", cancelledCount())),
+                    stage("$sort", new Document("_id.doctorId", 1).append("_id.period", 1)))) {
+                Document id = (Document) row.get("_id");
+                rows.add(new VolumeRow(id.getString("doctorId"), row.getString("doctorName"), id.getString("period"),
+                        number(row, "total"), number(row, "cancelled")));
+            }
+            return rows;
+        });
+    }
+
+    /**
+     * Share of cancelled appointments per doctorSpecialization for
+     * appointments dated in [from, to)
+     */
+    public AnalyticsResult<List<CancellationRow>> cancellationRates(String from, String to) {
+        return cached("cancellations|" + from + "|" + to, from, to, () -> {
+            List<CancellationRow> rows = new ArrayList<>();
+            for (Document row : aggregate("appointments",
+                    Aggregation.match(dateRange(from, to)),
+                    stage("$group", new Document("_id", "$doctorSpecialization")
+                            .append("total", new Document("$sum", 1))
+                            .append("cancelled", cancelledCount())),
+                    stage("$sort", new Document("_id", 1)))) {
+                rows.add(new CancellationRow(row.getString("_id"), number(row, "total"), number(row, "cancelled")));
+            }
+            return rows;
+        });
+    }
+
+    /**
+     * Hours between booking (createdAt) and the appointment start, overall
+     * and per specialization, for appointments dated in [from, to)
+     */
+    public AnalyticsResult<DurationReport> leadTime(String from, String to) {
+        return cached("lead-time|" + from + "|" + to, from, to, () -> durationReport(aggregate("appointments",
+                Aggregation.match(dateRange(from, to).and("createdAt").ne(null)),
+                stage("$project", new Document("key", "$doctorSpecialization")
+                        // createdAt is still a string on documents the migration has not converted yet
+                        .append("hours", hoursBetween(epochMillis("$createdAt"), startExpression()))),
+                durationFacet(null))));
+    }
+
+    /**
+     * Hours between a request being created and being approved or denied,
+     * overall (keyed by status) and per doctor, for requests created in
+     * [from, to). The decision time is the request's last update.
+     */
+    public AnalyticsResult<DurationReport> approvalLatency(String from, String to) {
+        return cached("approval-latency|" + from + "|" + to, from, to, () -> {
+            // createdAt / updatedAt are epoch milliseconds stored as strings; all have 13 digits,
+            // so the string order is the numeric order
+            Criteria match = Criteria.where("status").in("APPROVED", "DENIED")
+                    .and("createdAt").gte(String.valueOf(AppointmentTimes.startOfDay(from).toEpochMilli()))
+                    .lt(String.valueOf(AppointmentTimes.startOfDay(to).toEpochMilli()));
+            return durationReport(aggregate("appointment_requests",
+                    Aggregation.match(match),
+                    stage("$project", new Document("key", "$doctorId")
+                            .append("name", "$doctorName")
+                            .append("status", "$status")
+                            .append("hours", hoursBetween(epochMillis("$createdAt"), epochMillis("$updatedAt")))),
+                    durationFacet("$status")));
+        });
+    }
+
+    /**
+     * Drop every cached result
+     */
+    public void clearCache() {
+        cache.clear();
+    }
+
+    // Start of the appointment; documents not migrated yet have no startAt and use date + time
+    private static Document startExpression() {
+        return new Document("$ifNull", List.of("$startAt",
+                new Document("$dateFromString", new Document("dateString",
+                        new Document("$concat", List.of("$date", "T", new Document("$ifNull", List.of("$time", "00:00")))))
+                        .append("timezone", zone())
+                        .append("onError", null))));
+    }
+
+    private static Document cancelledCount() {
+        return new Document("$sum", new Document("$cond",
+                List.of(new Document("$eq", List.of("$status", CANCELLED)), 1, 0)));
+    }
+
+    private static Document epochMillis(String field) {
+        return new Document("$toDate", new Document("$convert",
+                new Document("input", field).append("to", "long").append("onError", null).append("onNull", null)));
+    }
+
+    private static Document hoursBetween(Object start, Object end) {
+        return new Document("$divide", List.of(new Document("$subtract", List.of(end, start)), 3_600_000));
+    }
+
+    /**
+     * Count / average / min / max of the projected hours, grouped once by
+     * overallKey (null for a single total) and once by the projected key
+     */
+    private static AggregationOperation durationFacet(String overallKey) {
+        Document notNull = new Document("$match", new Document("hours", new Document("$ne", null)));
+        return stage("$facet", new Document("overall", List.of(notNull, durationGroup(overallKey, false),
+                        new Document("$sort", new Document("_id", 1))))
+                .append("byKey", List.of(notNull, durationGroup("$key", true), new Document("$sort", new Document("_id", 1)))));
+    }
+
+    private static Document durationGroup(String key, boolean named) {
+        Document group = new Document("_id", key);
+        if (named) {
+            group.append("name", new Document("$first", "$name"));
+        }
+        return new Document("$group", group
+                .append("count", new Document("$sum", 1))
+                .append("avgHours", new Document("$avg", "$hours"))
+                .append("minHours", new Document("$min", "$hours"))
+                .append("maxHours", new Document("$max", "$hours")));
+    }
+
+    private static DurationReport durationReport(List<Document> facets) {
+        Document facet = facets.isEmpty() ? new Document() : facets.get(0);
+        return new DurationReport(durationRows(facet.getList("overall", Document.class, List.of())),
+                durationRows(facet.getList("byKey", Document.class, List.of())));
+    }
+
+    private static List<DurationRow> durationRows(List<Document> rows) {
+        List<DurationRow> result = new ArrayList<>(rows.size());
+        for (Document row : rows) {
+            Object key = row.get("_id");
+            result.add(new DurationRow(key != null ? key.toString() : null, row.getString("name"),
+                    number(row, "count"), hours(row, "avgHours"), hours(row, "minHours"), hours(row, "maxHours")));
+        }
+        return result;
+    }
+
+    private static Criteria dateRange(String from, String to) {
+        return Criteria.where("date").gte(from).lt(to);
+    }
+
+    private static AggregationOperation stage(String name, Document body) {
+        return context -> new Document(name, body);
+    }
+
+    private List<Document> aggregate(String collection, AggregationOperation... operations) {
+        Aggregation aggregation = Aggregation.newAggregation(operations)
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+        return mongoOperations.aggregate(aggregation, collection, Document.class).getMappedResults();
+    }
+
+    private static String zone() {
+        return AppointmentTimes.zone().getId();
+    }
+
+    private static long number(Document row, String field) {
+        Object value = row.get(field);
+        return value instanceof Number n ? n.longValue() : 0;
+    }
+
+    private static Double hours(Document row, String field) {
+        Object value = row.get(field);
+        return value instanceof Number n ? Math.round(n.doubleValue() * 10) / 10.0 : null;
+    }
+
+    /**
+     * Result of the key for the current time bucket, computing it (once,
+     * even under concurrent requests) when missing or from an older bucket
+     */
+    @SuppressWarnings("unchecked")
+    private <T> AnalyticsResult<T> cached(String key, String from, String to, Supplier<T> loader) {
+        long bucket = System.currentTimeMillis() / (Math.max(bucketSeconds, 1) * 1000);
+        purgeOlderThan(bucket);
+        CacheEntry entry = cache.get(key);
+        if (entry == null || entry.bucket != bucket) {
+            CacheEntry fresh = new CacheEntry(bucket, new FutureTask<>(
+                    () -> new AnalyticsResult<>(from, to, System.currentTimeMillis(), loader.get())));
+            entry = cache.compute(key, (k, current) -> current != null && current.bucket == bucket ? current : fresh);
+            if (entry == fresh) {
+                fresh.task.run();
+            }
+        }
+        try {
+            return (AnalyticsResult<T>) entry.task.get();
+        } catch (ExecutionException e) {
+            cache.remove(key, entry); // do not cache failures
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void purgeOlderThan(long bucket) {
+        long previous = purgedBucket.get();
+        if (previous < bucket && purgedBucket.compareAndSet(previous, bucket)) {
+            cache.values().removeIf(entry -> entry.bucket < bucket);
+        }
+    }
+
+    private static class CacheEntry {
+        private final long bucket;
+        private final FutureTask<AnalyticsResult<?>> task;
+
+        private CacheEntry(long bucket, FutureTask<AnalyticsResult<?>> task) {
+            this.bucket = bucket;
+            this.task = task;
+        }
+    }
+
+    public static class AnalyticsResult<T> {
+        private final String from;
+        private final String to;
+        private final long computedAt;
+        private final T data;
+
+        private AnalyticsResult(String from, String to, long computedAt, T data) {
+            this.from = from;
+            this.to = to;
+            this.computedAt = computedAt;
+            this.data = data;
+        }
+
+        public String getFrom() {
+            return from;
+        }
+
+        public String getTo() {
+            return to;
+        }
+
+        public long getComputedAt() {
+            return computedAt;
+        }
+
+        public T getData() {
+            return data;
+        }
+    }
+
+    public static class VolumeRow {
+        private final String doctorId;
+        private final String doctorName;
+        private final String period;
+        private final long total;
+        private final long cancelled;
+
+        private VolumeRow(String doctorId, String doctorName, String period, long total, long cancelled) {
+            this.doctorId = doctorId;
+            this.doctorName = doctorName;
+            this.period = period;
+            this.total = total;
+            this.cancelled = cancelled;
+        }
+
+        public String getDoctorId() {
+            return doctorId;
+        }
+
+        public String getDoctorName() {
+            return doctorName;
+        }
+
+        public String getPeriod() {
+            return period;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public long getCancelled() {
+            return cancelled;
+        }
+    }
+
+    public static class CancellationRow {
+        private final String specialization;
+        private final long total;
+        private final long cancelled;
+
+        private CancellationRow(String specialization, long total, long cancelled) {
+            this.specialization = specialization;
+            this.total = total;
+            this.cancelled = cancelled;
+        }
+
+        public String getSpecialization() {
+            return specialization;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public long getCancelled() {
+            return cancelled;
+        }
+
+        public double getCancellationRate() {
+            return total == 0 ? 0 : Math.round(cancelled * 1000.0 / total) / 1000.0;
+        }
+    }
+
+    public static class DurationReport {
+        private final List<DurationRow> overall;
+        private final List<DurationRow> byKey;
+
+        private DurationReport(List<DurationRow> overall, List<DurationRow> byKey) {
+            this.overall = overall;
+            this.byKey = byKey;
+        }
+
+        public List<DurationRow> getOverall() {
+            return overall;
+        }
+
+        public List<DurationRow> getByKey() {
+            return byKey;
+        }
+    }
+
+    public static class DurationRow {
+        private final String key;
+        private final String name;
+        private final long count;
+        private final Double avgHours;
+        private final Double minHours;
+        private final Double maxHours;
+
+        private DurationRow(String key, String name, long count, Double avgHours, Double minHours, Double maxHours) {
+            this.key = key;
+            this.name = name;
+            this.count = count;
+            this.avgHours = avgHours;
+            this.minHours = minHours;
+            this.maxHours = maxHours;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public Double getAvgHours() {
+            return avgHours;
+        }
+
+        public Double getMinHours() {
+            return minHours;
+        }
+
+        public Double getMaxHours() {
+            return maxHours;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.Appointment;
+import com.hendisantika.repository.AppointmentRepository;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Books new appointments with doctor and room conflict checks. The check
+ * and the claim of the interval happen in one step in the slot index, so
+ * of two concurrent bookings of overlapping slots only one is saved; the
+ * slot_locks reservation then extends that guarantee to bookings made by
+ * other application nodes.
+ */
+@Service
+public class AppointmentBookingService {
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DoctorSlotIndex doctorSlotIndex;
+
+    @Autowired
+    private AppointmentChangeService appointmentChangeService;
+
+    @Autowired
+    private SlotLockService slotLockService;
+
+    /**
+     * Save a new appointment unless its doctor or room is already booked
+     * for an overlapping interval or its time is malformed
+     */
+    public BookingResult book(Appointment appointment) {
+        if (appointment.getId() == null || appointment.getId().isEmpty()) {
+            appointment.setId(new ObjectId().toHexString());
+        }
+        if (appointment.getDurationMinutes() == null || appointment.getDurationMinutes() <= 0) {
+            appointment.setDurationMinutes(doctorSlotIndex.getDefaultDurationMinutes());
+        }
+
+        DoctorSlotIndex.Conflict conflict;
+        try {
+            conflict = doctorSlotIndex.reserve(appointment, doctorSlotIndex.getDefaultMinGapMinutes());
+        } catch (IllegalArgumentException e) {
+            return BookingResult.rejected(e.getMessage());
+        }
+        if (conflict != null) {
+            return BookingResult.conflict(describe(conflict));
+        }
+        if (!slotLockService.acquire(appointment)) {
+            doctorSlotIndex.onDeleted(appointment);
+            return BookingResult.conflict("Ce créneau vient d'être réservé par une autre personne");
+        }
+
+        // The reservation stays outside the transaction: a duplicate key there would abort it
+        Appointment saved;
+        try {
+            saved = appointmentChangeService.inTransaction(() -> {
+                Appointment inserted = appointmentRepository.save(appointment);
+                appointmentChangeService.appointmentSaved(null, inserted);
+                return inserted;
+            });
+        } catch (RuntimeException e) {
+            // release the claimed interval
+            slotLockService.release(appointment.getId());
+            doctorSlotIndex.onDeleted(appointment);
+            throw e;
+        }
+        return BookingResult.booked(saved);
+    }
+
+    /**
+     * Save a changed appointment. One moved to another date, time, duration
+     * or status is checked and claimed like a new booking first; the slot
+     * it leaves is only freed once the change is saved.
+     * @param previous the appointment as stored before the change
+     */
+    public BookingResult reschedule(Appointment previous, Appointment updated) {
+        if (DoctorSlotIndex.CANCELLED.equals(updated.getStatus())
+                || AppointmentChangeService.sameSlot(previous, updated)) {
+            return BookingResult.booked(save(previous, updated));
+        }
+
+        DoctorSlotIndex.Conflict conflict;
+        try {
+            conflict = doctorSlotIndex.reserve(updated, doctorSlotIndex.getDefaultMinGapMinutes());
+        } catch (IllegalArgumentException e) {
+            return BookingResult.rejected(e.getMessage());
+        }
+        if (conflict != null) {
+            return BookingResult.conflict(describe(conflict));
+        }
+        boolean claimed;
+        try {
+            claimed = slotLockService.acquireMissing(updated);
+        } catch (RuntimeException e) {
+            doctorSlotIndex.onSaved(updated, previous);
+            throw e;
+        }
+        if (!claimed) {
+            doctorSlotIndex.onSaved(updated, previous);
+            return BookingResult.conflict("Ce créneau vient d'être réservé par une autre personne");
+        }
+
+        Appointment saved;
+        try {
+            saved = save(previous, updated);
+        } catch (RuntimeException e) {
+            // back to the old interval
+            slotLockService.retain(previous);
+            doctorSlotIndex.onSaved(updated, previous);
+            throw e;
+        }
+        slotLockService.retain(saved);
+        return BookingResult.booked(saved);
+    }
+
+    private Appointment save(Appointment previous, Appointment updated) {
+        return appointmentChangeService.inTransaction(() -> {
+            Appointment saved = appointmentRepository.save(updated);
+            appointmentChangeService.appointmentSaved(previous, saved);
+            return saved;
+        });
+    }
+
+    /**
+     * User-facing message for a conflict
+     */
+    public static String describe(DoctorSlotIndex.Conflict conflict) {
+        String time = DoctorSlotIndex.formatMinuteOfDay(conflict.getMinute());
+        if (DoctorSlotIndex.Conflict.ROOM.equals(conflict.getResource())) {
+            return "La salle est déjà occupée par un rendez-vous à " + time;
+        }
+        return "Le médecin a déjà un rendez-vous qui chevauche ce créneau (" + time + ")";
+    }
+
+    public static class BookingResult {
+        private final Appointment appointment;
+        private final String error;
+
+        private BookingResult(Appointment appointment, String error) {
+            this.appointment = appointment;
+            this.error = error;
+        }
+
+        static BookingResult booked(Appointment appointment) {
+            return new BookingResult(appointment, null);
+        }
+
+        static BookingResult conflict(String error) {
+            return new BookingResult(null, error);
+        }
+
+        static BookingResult rejected(String error) {
+            return new BookingResult(null, error);
+        }
+
+        public boolean isBooked() {
+            return error == null;
+        }
+
+        public Appointment getAppointment() {
+            return appointment;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.Appointment;
+import com.hendisantika.entity.AppointmentEvent;
+import com.hendisantika.entity.AppointmentRequest;
+import com.mongodb.MongoException;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Single entry point for appointment and appointment request writes. Each
+ * change is recorded in the appointment_events outbox, in the caller's
+ * transaction when there is one (see inTransaction), and delivered to the
+ * AppointmentEventListener beans (search index, live streams) by
+ * AppointmentEventDispatcher. The slot index, slot reservations and
+ * dashboard counters are not idempotent and need the change at once: they
+ * are updated here, after the commit.
+ */
+@Service
+public class AppointmentChangeService {
+
+    private static final int TRANSACTION_ATTEMPTS = 3;
+
+    @Autowired
+    private DoctorSlotIndex doctorSlotIndex;
+
+    @Autowired
+    private DashboardCounters dashboardCounters;
+
+    @Autowired
+    private SlotLockService slotLockService;
+
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private AppointmentEventDispatcher eventDispatcher;
+
+    @Value("${app.events.transactions:true}")
+    private boolean transactions = true;
+
+    /**
+     * Fail at startup rather than on the first write when transactions are
+     * enabled against a standalone server, which rejects them
+     */
+    @PostConstruct
+    public void checkTransactionSupport() {
+        if (!transactions) {
+            return;
+        }
+        Document hello;
+        try {
+            hello = mongoOperations.executeCommand(new Document("hello", 1));
+        } catch (Exception e) {
+            System.out.println("⚠️  MongoDB transaction support not checked: " + e.getMessage());
+            return;
+        }
+        // Replica set members report their setName, mongos routers msg: isdbgrid
+        if (hello.get("setName") == null && !"isdbgrid".equals(hello.get("msg"))) {
+            throw new IllegalStateException("app.events.transactions=true needs MongoDB running as a replica set,"
+                    + " but the server is standalone: start it with mongod --replSet rs0 and run rs.initiate()"
+                    + " once, or set app.events.transactions=false");
+        }
+    }
+
+    /**
+     * Run a write and the change notifications it makes in one MongoDB
+     * transaction, so the outbox events commit or roll back with the write.
+     * Transient transaction errors (write conflicts) are retried. With
+     * app.events.transactions=false (standalone server) the work runs as is.
+     */
+    public <T> T inTransaction(Supplier<T> work) {
+        if (!transactions || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return work.get();
+        }
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return template.execute(status -> work.get());
+            } catch (RuntimeException e) {
+                if (attempt >= TRANSACTION_ATTEMPTS || !isTransient(e)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    public void inTransaction(Runnable work) {
+        inTransaction(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * An appointment was saved; previous is its state before the write, or
+     * null for a new appointment
+     */
+    public void appointmentSaved(Appointment previous, Appointment saved) {
+        record(appointmentEvent(appointmentEventType(previous, saved), previous, saved));
+        afterCommit(() -> applySaved(previous, saved));
+    }
+
+    /**
+     * Appointments saved by one bulk write; previous holds their states
+     * before it, in the same order (null entries for new appointments). The
+     * events are recorded with one insert.
+     */
+    public void appointmentsSaved(List<Appointment> previous, List<Appointment> saved) {
+        List<AppointmentEvent> events = new ArrayList<>(saved.size());
+        for (int i = 0; i < saved.size(); i++) {
+            events.add(appointmentEvent(appointmentEventType(previous.get(i), saved.get(i)), previous.get(i),
+                    saved.get(i)));
+        }
+        record(events);
+        afterCommit(() -> {
+            for (int i = 0; i < saved.size(); i++) {
+                applySaved(previous.get(i), saved.get(i));
+            }
+        });
+    }
+
+    private void applySaved(Appointment previous, Appointment saved) {
+        // Moves claim their new slot before saving (AppointmentBookingService.reschedule)
+        if (DoctorSlotIndex.CANCELLED.equals(saved.getStatus())) {
+            slotLockService.release(saved.getId());
+        }
+        doctorSlotIndex.onSaved(previous, saved);
+        dashboardCounters.onAppointmentSaved(previous, saved);
+    }
+
+    /**
+     * An appointment was deleted
+     */
+    public void appointmentDeleted(Appointment appointment) {
+        record(appointmentEvent(AppointmentEvent.DELETED, appointment, appointment));
+        afterCommit(() -> {
+            slotLockService.release(appointment.getId());
+            doctorSlotIndex.onDeleted(appointment);
+            dashboardCounters.onAppointmentDeleted(appointment);
+        });
+    }
+
+    /**
+     * An appointment request was saved; previousStatus is null for a new
+     * request
+     */
+    public void requestSaved(AppointmentRequest request, String previousStatus) {
+        record(requestEvent(requestEventType(previousStatus, request.getStatus()), request, previousStatus));
+        afterCommit(() -> dashboardCounters.onRequestSaved(request, previousStatus));
+    }
+
+    /**
+     * Appointment requests moved out of previousStatus by one bulk write;
+     * the events are recorded with one insert
+     */
+    public void requestsSaved(List<AppointmentRequest> requests, String previousStatus) {
+        List<AppointmentEvent> events = new ArrayList<>(requests.size());
+        for (AppointmentRequest request : requests) {
+            events.add(requestEvent(requestEventType(previousStatus, request.getStatus()), request, previousStatus));
+        }
+        record(events);
+        afterCommit(() -> requests.forEach(request -> dashboardCounters.onRequestSaved(request, previousStatus)));
+    }
+
+    /**
+     * Appointments rewritten in bulk without a slot or status change (e.g.
+     * name copies): one UPDATED event each, recorded with one insert
+     */
+    public void appointmentsUpdated(List<Appointment> saved) {
+        List<AppointmentEvent> events = new ArrayList<>(saved.size());
+        for (Appointment appointment : saved) {
+            events.add(appointmentEvent(AppointmentEvent.UPDATED, appointment, appointment));
+        }
+        record(events);
+    }
+
+    /**
+     * Appointment requests rewritten in bulk without a status change
+     */
+    public void requestsUpdated(List<AppointmentRequest> saved) {
+        List<AppointmentEvent> events = new ArrayList<>(saved.size());
+        for (AppointmentRequest request : saved) {
+            events.add(requestEvent(AppointmentEvent.UPDATED, request, request.getStatus()));
+        }
+        record(events);
+    }
+
+    private AppointmentEvent requestEvent(String type, AppointmentRequest request, String previousStatus) {
+        AppointmentEvent event = newEvent(AppointmentEvent.REQUEST, request.getId(), request.getVersion(), type,
+                previousStatus, request.getStatus());
+        event.setRequest(request);
+        event.setSnapshot(snapshot(request));
+        return event;
+    }
+
+    private AppointmentEvent appointmentEvent(String type, Appointment previous, Appointment saved) {
+        AppointmentEvent event = newEvent(AppointmentEvent.APPOINTMENT, saved.getId(),
+                AppointmentEvent.DELETED.equals(type) ? nextVersion(saved.getVersion()) : saved.getVersion(),
+                type, previous == null ? null : previous.getStatus(), saved.getStatus());
+        event.setAppointment(saved);
+        event.setSnapshot(snapshot(saved));
+        return event;
+    }
+
+    private AppointmentEvent newEvent(String aggregateType, String aggregateId, Long version, String type,
+            String previousStatus, String status) {
+        AppointmentEvent event = new AppointmentEvent();
+        event.setId(new ObjectId().toHexString());
+        event.setAggregateType(aggregateType);
+        event.setAggregateId(aggregateId);
+        event.setAggregateVersion(version);
+        event.setType(type);
+        event.setPreviousStatus(previousStatus);
+        event.setStatus(status);
+        event.setNode(eventDispatcher.getNodeId());
+        event.setOccurredAt(System.currentTimeMillis());
+        event.setAttempts(0);
+        return event;
+    }
+
+    private Document snapshot(Object entity) {
+        Document document = new Document();
+        mongoOperations.getConverter().write(entity, document);
+        return document;
+    }
+
+    /**
+     * Joins the current transaction, if any
+     */
+    private void record(AppointmentEvent event) {
+        mongoOperations.insert(event);
+        afterCommit(eventDispatcher::wakeUp);
+    }
+
+    /**
+     * Several events in one insert; joins the current transaction, if any
+     */
+    private void record(List<AppointmentEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        mongoOperations.insert(events, AppointmentEvent.class);
+        afterCommit(eventDispatcher::wakeUp);
+    }
+
+    /**
+     * Run once the current transaction committed (dropped on rollback), or
+     * right away outside a transaction
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    static String appointmentEventType(Appointment previous, Appointment saved) {
+        if (previous == null) {
+            return AppointmentEvent.CREATED;
+        }
+        if (!Objects.equals(previous.getStatus(), saved.getStatus())) {
+            if (DoctorSlotIndex.CANCELLED.equals(saved.getStatus())) {
+                return AppointmentEvent.CANCELLED;
+            }
+            if ("Terminé".equals(saved.getStatus())) {
+                return AppointmentEvent.COMPLETED;
+            }
+        }
+        return AppointmentEvent.UPDATED;
+    }
+
+    static String requestEventType(String previousStatus, String status) {
+        if (previousStatus == null) {
+            return AppointmentEvent.CREATED;
+        }
+        if ("APPROVED".equals(status)) {
+            return AppointmentEvent.APPROVED;
+        }
+        if ("DENIED".equals(status)) {
+            return AppointmentEvent.DENIED;
+        }
+        return "PENDING".equals(status) ? AppointmentEvent.REOPENED : AppointmentEvent.UPDATED;
+    }
+
+    private static Long nextVersion(Long version) {
+        return version == null ? null : version + 1;
+    }
+
+    private static boolean isTransient(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongo
+                    && mongo.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean sameSlot(Appointment a, Appointment b) {
+        return Objects.equals(a.getDoctorId(), b.getDoctorId()) && Objects.equals(a.getRoom(), b.getRoom())
+                && Objects.equals(a.getDate(), b.getDate()) && Objects.equals(a.getTime(), b.getTime())
+                && Objects.equals(a.getDurationMinutes(), b.getDurationMinutes())
+                && Objects.equals(a.getStatus(), b.getStatus());
+    }
+}
@@ -0,0 +1,288 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.Appointment;
+import com.hendisantika.entity.AppointmentEvent;
+import com.hendisantika.entity.AppointmentRequest;
+import com.hendisantika.entity.EventNode;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers the appointment outbox (appointment_events) to the
+ * AppointmentEventListener beans. Each node delivers the events it wrote,
+ * in batches and in write order; it is woken up after each commit and
+ * polls otherwise. An event is marked dispatched only once every listener
+ * accepted it, so delivery is at-least-once. A failed event holds back the
+ * later events of the same appointment or request until it goes through or
+ * is given up after app.events.max-attempts. Each node refreshes a
+ * heartbeat in appointment_event_nodes; once a node's heartbeat is older
+ * than app.events.orphan-seconds, a single other node adopts all of its
+ * pending events, so the events of an appointment stay together and in
+ * order. A live node keeps the events it holds back after a failure.
+ */
+@Service
+public class AppointmentEventDispatcher {
+
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    @Autowired(required = false)
+    private List<AppointmentEventListener> listeners = List.of();
+
+    @Value("${app.events.batch-size:100}")
+    private int batchSize = 100;
+
+    @Value("${app.events.poll-millis:1000}")
+    private long pollMillis = 1000;
+
+    @Value("${app.events.orphan-seconds:30}")
+    private long orphanSeconds = 30;
+
+    @Value("${app.events.max-attempts:10}")
+    private int maxAttempts = 10;
+
+    @Value("${app.events.node-id:}")
+    private String nodeId;
+
+    @Value("${server.port:8080}")
+    private int serverPort = 8080;
+
+    private final Semaphore wakeUp = new Semaphore(0);
+    private volatile Thread worker;
+    private long lastHeartbeat;
+
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+    private final AtomicLong dead = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong adopted = new AtomicLong();
+    private volatile long lastLagMillis;
+    private volatile long maxLagMillis;
+    private volatile int lastBatchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        worker = Thread.ofVirtual().name("appointment-events").start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread current = worker;
+        worker = null;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    /**
+     * Deliver without waiting for the next poll (called after a commit)
+     */
+    public void wakeUp() {
+        wakeUp.release();
+    }
+
+    /**
+     * Owner written on new events: app.events.node-id, or host:port
+     */
+    public String getNodeId() {
+        String id = nodeId;
+        if (id == null || id.isBlank()) {
+            String host;
+            try {
+                host = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                host = "localhost";
+            }
+            id = host + ":" + serverPort;
+            nodeId = id;
+        }
+        return id;
+    }
+
+    /**
+     * Delivery counters, lag (write to delivery, in ms) and events still pending on this node
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("node", getNodeId());
+        stats.put("listeners", listeners.stream().map(l -> l.getClass().getSimpleName()).toList());
+        stats.put("pending", mongoOperations.count(pendingQuery(), AppointmentEvent.class));
+        stats.put("delivered", delivered.get());
+        stats.put("failedAttempts", failedAttempts.get());
+        stats.put("dead", dead.get());
+        stats.put("batches", batches.get());
+        stats.put("adopted", adopted.get());
+        stats.put("lastLagMillis", lastLagMillis);
+        stats.put("maxLagMillis", maxLagMillis);
+        stats.put("lastBatchSize", lastBatchSize);
+        stats.put("running", worker != null);
+        return stats;
+    }
+
+    private void run() {
+        long lastSweep = 0;
+        while (worker != null) {
+            try {
+                wakeUp.tryAcquire(pollMillis, TimeUnit.MILLISECONDS);
+                wakeUp.drainPermits();
+                heartbeat();
+                long now = System.currentTimeMillis();
+                if (now - lastSweep >= TimeUnit.SECONDS.toMillis(orphanSeconds)) {
+                    adoptOrphans(now);
+                    lastSweep = now;
+                }
+                while (dispatchBatch()) {
+                    // full batch delivered: more may be waiting
+                    heartbeat();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                System.out.println("⚠️  Appointment event dispatch failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Deliver the oldest pending events of this node
+     * @return true when a full batch went through and more may be pending
+     */
+    boolean dispatchBatch() {
+        List<AppointmentEvent> events = mongoOperations.find(
+                pendingQuery().with(Sort.by("_id")).limit(batchSize), AppointmentEvent.class);
+        if (events.isEmpty()) {
+            return false;
+        }
+
+        Set<String> heldBack = new HashSet<>();
+        List<String> deliveredIds = new ArrayList<>();
+        BulkOperations failures = null;
+        long now = System.currentTimeMillis();
+        for (AppointmentEvent event : events) {
+            resolveSnapshot(event);
+            String aggregate = event.getAggregateType() + "|" + event.getAggregateId();
+            if (heldBack.contains(aggregate)) {
+                continue; // an earlier event of the same aggregate is still undelivered
+            }
+            try {
+                for (AppointmentEventListener listener : listeners) {
+                    listener.onEvent(event);
+                }
+                deliveredIds.add(event.getId());
+                long lag = now - event.getOccurredAt();
+                lastLagMillis = lag;
+                maxLagMillis = Math.max(maxLagMillis, lag);
+            } catch (RuntimeException e) {
+                heldBack.add(aggregate);
+                failedAttempts.incrementAndGet();
+                int attempts = (event.getAttempts() == null ? 0 : event.getAttempts()) + 1;
+                Update update = Update.update("attempts", attempts).set("lastError", String.valueOf(e.getMessage()));
+                if (attempts >= maxAttempts) {
+                    update.set("deadAt", new Date());
+                    dead.incrementAndGet();
+                    System.out.println("⚠️  Appointment event " + event.getId() + " (" + event.getType()
+                            + ") given up after " + attempts + " attempts: " + e.getMessage());
+                }
+                if (failures == null) {
+                    failures = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, AppointmentEvent.class);
+                }
+                failures.updateOne(new Query(Criteria.where("_id").is(event.getId())), update);
+            }
+        }
+
+        if (!deliveredIds.isEmpty()) {
+            mongoOperations.updateMulti(new Query(Criteria.where("_id").in(deliveredIds)),
+                    Update.update("dispatchedAt", new Date()), AppointmentEvent.class);
+        }
+        if (failures != null) {
+            failures.execute();
+        }
+        delivered.addAndGet(deliveredIds.size());
+        batches.incrementAndGet();
+        lastBatchSize = events.size();
+        // Failed events wait for the next poll instead of being retried right away
+        return failures == null && events.size() == batchSize;
+    }
+
+    /**
+     * Refresh this node's heartbeat, a few times per orphan period
+     */
+    private void heartbeat() {
+        long now = System.currentTimeMillis();
+        if (now - lastHeartbeat < TimeUnit.SECONDS.toMillis(orphanSeconds) / 3) {
+            return;
+        }
+        mongoOperations.upsert(new Query(Criteria.where("_id").is(getNodeId())),
+                Update.update("heartbeatAt", new Date(now)), EventNode.class);
+        lastHeartbeat = now;
+    }
+
+    /**
+     * Take over the pending events of nodes whose heartbeat expired
+     */
+    void adoptOrphans(long now) {
+        Date expired = new Date(now - TimeUnit.SECONDS.toMillis(orphanSeconds));
+        List<String> nodes = mongoOperations.findDistinct(new Query(Criteria.where("node").ne(getNodeId())
+                .and("dispatchedAt").is(null).and("deadAt").is(null)), "node", AppointmentEvent.class, String.class);
+        for (String node : nodes) {
+            // A node without a heartbeat (never written, or expired by the TTL) counts as stopped
+            try {
+                mongoOperations.upsert(new Query(Criteria.where("_id").is(node)),
+                        new Update().setOnInsert("heartbeatAt", new Date(0)), EventNode.class);
+            } catch (DuplicateKeyException e) {
+                // inserted concurrently by the node itself or another adopter
+            }
+            // Removing the expired heartbeat is the claim: one adopter takes all the node's events
+            if (mongoOperations.findAndRemove(new Query(Criteria.where("_id").is(node)
+                    .and("heartbeatAt").lt(expired)), EventNode.class) == null) {
+                continue;
+            }
+            long count = mongoOperations.updateMulti(new Query(Criteria.where("node").is(node)
+                            .and("dispatchedAt").is(null).and("deadAt").is(null)),
+                    Update.update("node", getNodeId()), AppointmentEvent.class).getModifiedCount();
+            if (count > 0) {
+                adopted.addAndGet(count);
+                System.out.println("ℹ️  Adopted " + count + " undelivered appointment events of " + node);
+            }
+        }
+    }
+
+    private void resolveSnapshot(AppointmentEvent event) {
+        if (event.getSnapshot() == null) {
+            return;
+        }
+        if (AppointmentEvent.APPOINTMENT.equals(event.getAggregateType())) {
+            event.setAppointment(mongoOperations.getConverter().read(Appointment.class, event.getSnapshot()));
+        } else {
+            event.setRequest(mongoOperations.getConverter().read(AppointmentRequest.class, event.getSnapshot()));
+        }
+    }
+
+    private Query pendingQuery() {
+        return new Query(Criteria.where("node").is(getNodeId()).and("dispatchedAt").is(null).and("deadAt").is(null));
+    }
+}
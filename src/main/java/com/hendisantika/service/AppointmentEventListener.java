@@ -0,0 +1,14 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.AppointmentEvent;
+
+/**
+ * Subscriber of the appointment outbox. Every bean implementing it receives
+ * each event at least once, in write order per appointment or request:
+ * a redelivery after a crash or after another listener failed is possible,
+ * so handling the same event twice must be harmless.
+ */
+public interface AppointmentEventListener {
+
+    void onEvent(AppointmentEvent event);
+}
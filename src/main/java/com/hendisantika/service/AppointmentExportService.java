@@ -0,0 +1,196 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.Appointment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Appointment export for billing. Rows are read from a MongoDB cursor in
+ * batches of app.export.batch-size and written to the output stream as
+ * they arrive, so memory use does not depend on the number of rows.
+ */
+@Service
+public class AppointmentExportService {
+
+    public enum Format {
+        CSV, XLSX;
+
+        public static Format of(String requested) {
+            if (requested == null || requested.isBlank()) {
+                return CSV;
+            }
+            return valueOf(requested.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    static final List<String> COLUMNS = List.of("appointmentId", "date", "time", "durationMinutes", "status",
+            "doctorId", "doctorName", "doctorSpecialization", "room", "patientId", "patientName", "cancelledReason");
+
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    @Value("${app.export.batch-size:1000}")
+    private int batchSize = 1000;
+
+    /**
+     * Write the appointments matching the filter; returns the number of rows
+     * written (header excluded). The output stream is flushed, not closed.
+     */
+    public long export(Filter filter, Format format, OutputStream out) throws IOException {
+        try (Stream<Appointment> appointments = mongoOperations.stream(query(filter), Appointment.class)) {
+            return format == Format.XLSX ? writeXlsx(appointments, out) : writeCsv(appointments, out);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    Query query(Filter filter) {
+        // Filtered and sorted on the YYYY-MM-DD / HH:MM strings (always set, startAt is derived
+        // from them) so doctor_date_time_idx / date_time_idx serve the sort without a blocking stage
+        Query query = new Query();
+        if (filter.getDoctorId() != null) {
+            query.addCriteria(Criteria.where("doctorId").is(filter.getDoctorId()));
+        }
+        if (filter.getFrom() != null || filter.getTo() != null) {
+            Criteria date = Criteria.where("date");
+            if (filter.getFrom() != null) {
+                date.gte(filter.getFrom());
+            }
+            if (filter.getTo() != null) {
+                date.lt(filter.getTo());
+            }
+            query.addCriteria(date);
+        }
+        if (filter.getStatus() != null) {
+            query.addCriteria(Criteria.where("status").is(filter.getStatus()));
+        }
+        query.fields().include(COLUMNS.toArray(new String[0]));
+        query.with(Sort.by("date", "time"));
+        query.cursorBatchSize(batchSize);
+        return query;
+    }
+
+    private long writeCsv(Stream<Appointment> appointments, OutputStream out) throws IOException {
+        // Not closed: the caller owns the output stream
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write('\uFEFF'); // BOM so spreadsheet software reads the accents as UTF-8
+        writeCsvRow(writer, COLUMNS);
+        long[] rows = {0};
+        appointments.forEach(appointment -> {
+            try {
+                writeCsvRow(writer, row(appointment));
+                rows[0]++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+        return rows[0];
+    }
+
+    private long writeXlsx(Stream<Appointment> appointments, OutputStream out) throws IOException {
+        long[] rows = {0};
+        try (XlsxStreamWriter xlsx = new XlsxStreamWriter(out, "Rendez-vous")) {
+            xlsx.writeRow(COLUMNS);
+            appointments.forEach(appointment -> {
+                try {
+                    xlsx.writeRow(row(appointment));
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        return rows[0];
+    }
+
+    private static List<Object> row(Appointment appointment) {
+        return Arrays.asList(appointment.getAppointmentId(), appointment.getDate(), appointment.getTime(),
+                appointment.getDurationMinutes(), appointment.getStatus(), appointment.getDoctorId(),
+                appointment.getDoctorName(), appointment.getDoctorSpecialization(), appointment.getRoom(),
+                appointment.getPatientId(), appointment.getPatientName(), appointment.getCancelledReason());
+    }
+
+    private static void writeCsvRow(Writer writer, List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = values.get(i);
+            if (value != null) {
+                writer.write(csvField(value.toString()));
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Quote a CSV field when needed; text starting with a formula character
+     * is prefixed with a quote so spreadsheets do not evaluate it
+     */
+    static String csvField(String value) {
+        if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+                || value.indexOf('\r') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+
+    /**
+     * Export filter; null fields are not filtered on. Dates are YYYY-MM-DD,
+     * from inclusive and to exclusive.
+     */
+    public static class Filter {
+        private final String doctorId;
+        private final String from;
+        private final String to;
+        private final String status;
+
+        public Filter(String doctorId, String from, String to, String status) {
+            this.doctorId = blankToNull(doctorId);
+            this.from = blankToNull(from);
+            this.to = blankToNull(to);
+            this.status = blankToNull(status);
+        }
+
+        private static String blankToNull(String value) {
+            return value == null || value.isBlank() ? null : value.trim();
+        }
+
+        public String getDoctorId() {
+            return doctorId;
+        }
+
+        public String getFrom() {
+            return from;
+        }
+
+        public String getTo() {
+            return to;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+    }
+}
@@ -0,0 +1,432 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.Appointment;
+import com.hendisantika.entity.AppointmentRequest;
+import com.hendisantika.entity.Doctor;
+import com.hendisantika.repository.AppointmentRequestRepository;
+import com.hendisantika.repository.DoctorRepository;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Approves or denies a list of appointment requests with a fixed number of
+ * round trips: one read, one bulk status claim, one bulk slot reservation,
+ * one sequence block and one transaction inserting the appointments and
+ * their outbox events. Like the single approval, a request is first moved
+ * out of PENDING under its version, so a concurrent approval of the same
+ * request fails, and goes back to PENDING when its slot turns out to be
+ * taken.
+ */
+@Service
+public class AppointmentRequestBatchService {
+
+    public static final String APPROVE = "approve";
+    public static final String DENY = "deny";
+
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    @Autowired
+    private AppointmentRequestRepository appointmentRequestRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private SequenceService sequenceService;
+
+    @Autowired
+    private DoctorSlotIndex doctorSlotIndex;
+
+    @Autowired
+    private SlotLockService slotLockService;
+
+    @Autowired
+    private AppointmentChangeService appointmentChangeService;
+
+    /**
+     * Approve or deny the given requests
+     * @param doctorId when not null, requests of other doctors are refused
+     * @param denialReason stored on denied requests
+     */
+    public BatchResult process(Collection<String> requestIds, String action, String denialReason, String doctorId) {
+        if (!APPROVE.equals(action) && !DENY.equals(action)) {
+            throw new IllegalArgumentException("Unknown action: " + action);
+        }
+        long started = System.currentTimeMillis();
+        BatchResult result = new BatchResult();
+        Set<String> ids = new LinkedHashSet<>(requestIds);
+        Map<String, AppointmentRequest> found = new HashMap<>();
+        for (AppointmentRequest request : appointmentRequestRepository.findAllById(ids)) {
+            found.put(request.getId(), request);
+        }
+
+        List<AppointmentRequest> eligible = new ArrayList<>();
+        for (String id : ids) {
+            AppointmentRequest request = found.get(id);
+            if (request == null) {
+                result.add(new ItemResult(id, null, ItemResult.NOT_FOUND, null, "Demande introuvable"));
+            } else if (doctorId != null && !doctorId.equals(request.getDoctorId())) {
+                result.add(new ItemResult(id, request.getRequestId(), ItemResult.FORBIDDEN, null,
+                        "Cette demande concerne un autre médecin"));
+            } else if (!"PENDING".equals(request.getStatus())) {
+                result.add(alreadyProcessed(request));
+            } else {
+                eligible.add(request);
+            }
+        }
+
+        String newStatus = APPROVE.equals(action) ? "APPROVED" : "DENIED";
+        Map<String, Long> readVersions = new HashMap<>();
+        eligible.forEach(request -> readVersions.put(request.getId(), request.getVersion()));
+        List<AppointmentRequest> lost = new ArrayList<>();
+        List<AppointmentRequest> claimed;
+        if (APPROVE.equals(action)) {
+            // The events of approved requests are recorded with their appointments
+            claimed = claim(eligible, readVersions, newStatus, denialReason, lost);
+        } else {
+            // The denials and their outbox events commit together
+            claimed = appointmentChangeService.inTransaction(() -> {
+                lost.clear();
+                List<AppointmentRequest> denied = claim(eligible, readVersions, newStatus, denialReason, lost);
+                appointmentChangeService.requestsSaved(denied, "PENDING");
+                return denied;
+            });
+        }
+        lost.forEach(request -> result.add(alreadyProcessed(request)));
+        if (APPROVE.equals(action)) {
+            approve(claimed, result);
+        } else {
+            for (AppointmentRequest request : claimed) {
+                result.add(new ItemResult(request.getId(), request.getRequestId(), ItemResult.DENIED, null, null));
+            }
+        }
+        Map<String, Integer> position = new HashMap<>();
+        for (String id : ids) {
+            position.put(id, position.size());
+        }
+        result.items.sort(Comparator.comparingInt(item -> position.get(item.getId())));
+        result.elapsedMillis = System.currentTimeMillis() - started;
+        return result;
+    }
+
+    /**
+     * Move PENDING requests to newStatus with one bulk write, each update
+     * guarded by the version read above (readVersions, so that a retried
+     * transaction repeats the same writes). Each claim writes a new claimId:
+     * two batches of the same millisecond cannot both take a request for theirs.
+     * @return the requests this batch actually changed; the others are added to lost
+     */
+    private List<AppointmentRequest> claim(List<AppointmentRequest> requests, Map<String, Long> readVersions,
+            String newStatus, String denialReason, List<AppointmentRequest> lost) {
+        if (requests.isEmpty()) {
+            return List.of();
+        }
+        String stamp = String.valueOf(System.currentTimeMillis());
+        String claimId = new ObjectId().toHexString();
+        BulkOperations operations = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, AppointmentRequest.class);
+        for (AppointmentRequest request : requests) {
+            Update update = Update.update("status", newStatus).set("updatedAt", stamp).set("claimId", claimId)
+                    .inc("version", 1);
+            if ("DENIED".equals(newStatus)) {
+                update.set("denialReason", denialReason);
+            }
+            operations.updateOne(new Query(Criteria.where("_id").is(request.getId())
+                    .and("status").is("PENDING").and("version").is(readVersions.get(request.getId()))), update);
+        }
+        int modified = operations.execute().getModifiedCount();
+
+        Set<String> notOurs = new HashSet<>();
+        if (modified < requests.size()) {
+            // Some requests changed since they were read: keep the ones that carry this batch's write
+            for (AppointmentRequest current : appointmentRequestRepository.findAllById(
+                    requests.stream().map(AppointmentRequest::getId).toList())) {
+                if (!newStatus.equals(current.getStatus()) || !claimId.equals(current.getClaimId())) {
+                    notOurs.add(current.getId());
+                }
+            }
+        }
+
+        List<AppointmentRequest> claimed = new ArrayList<>();
+        for (AppointmentRequest request : requests) {
+            if (notOurs.contains(request.getId())) {
+                lost.add(request);
+                continue;
+            }
+            Long read = readVersions.get(request.getId());
+            request.setStatus(newStatus);
+            request.setUpdatedAt(stamp);
+            request.setClaimId(claimId);
+            request.setVersion(read == null ? 1L : read + 1);
+            if ("DENIED".equals(newStatus)) {
+                request.setDenialReason(denialReason);
+            }
+            claimed.add(request);
+        }
+        return claimed;
+    }
+
+    private void approve(List<AppointmentRequest> requests, BatchResult result) {
+        if (requests.isEmpty()) {
+            return;
+        }
+        Set<String> doctorIds = new HashSet<>();
+        for (AppointmentRequest request : requests) {
+            doctorIds.add(request.getDoctorId());
+        }
+        Map<String, String> rooms = new HashMap<>();
+        for (Doctor doctor : doctorRepository.findAllById(doctorIds)) {
+            if (doctor.getOfficeLocation() != null) {
+                rooms.put(doctor.getId(), doctor.getOfficeLocation());
+            }
+        }
+
+        // Conflict checks against the slot index, which also catches overlaps inside the batch
+        Map<AppointmentRequest, Appointment> booked = new LinkedHashMap<>();
+        List<AppointmentRequest> rejected = new ArrayList<>();
+        for (AppointmentRequest request : requests) {
+            Appointment appointment = appointmentFor(request, rooms.get(request.getDoctorId()));
+            DoctorSlotIndex.Conflict conflict;
+            try {
+                conflict = doctorSlotIndex.reserve(appointment, doctorSlotIndex.getDefaultMinGapMinutes());
+            } catch (IllegalArgumentException e) {
+                rejected.add(request);
+                result.add(new ItemResult(request.getId(), request.getRequestId(), ItemResult.FAILED, null,
+                        e.getMessage()));
+                continue;
+            }
+            if (conflict != null) {
+                rejected.add(request);
+                result.add(new ItemResult(request.getId(), request.getRequestId(), ItemResult.CONFLICT, null,
+                        AppointmentBookingService.describe(conflict)));
+            } else {
+                booked.put(request, appointment);
+            }
+        }
+
+        Set<String> taken = slotLockService.acquireAll(booked.values());
+        if (!taken.isEmpty()) {
+            booked.entrySet().removeIf(entry -> {
+                if (!taken.contains(entry.getValue().getId())) {
+                    return false;
+                }
+                doctorSlotIndex.onDeleted(entry.getValue());
+                rejected.add(entry.getKey());
+                result.add(new ItemResult(entry.getKey().getId(), entry.getKey().getRequestId(), ItemResult.CONFLICT,
+                        null, "Ce créneau vient d'être réservé par une autre personne"));
+                return true;
+            });
+        }
+
+        if (!booked.isEmpty()) {
+            numberAppointments(booked, rejected, result);
+        }
+        if (!booked.isEmpty()) {
+            insertAppointments(booked, rejected, result);
+        }
+        revertToPending(rejected);
+
+        for (Map.Entry<AppointmentRequest, Appointment> entry : booked.entrySet()) {
+            result.add(new ItemResult(entry.getKey().getId(), entry.getKey().getRequestId(), ItemResult.APPROVED,
+                    entry.getValue().getAppointmentId(), null));
+        }
+    }
+
+    /**
+     * Number the appointments from one sequence block. A number already
+     * taken (appointments numbered before the sequence existed) fails its
+     * item here, so that the insert cannot hit the unique index.
+     */
+    private void numberAppointments(Map<AppointmentRequest, Appointment> booked, List<AppointmentRequest> rejected,
+            BatchResult result) {
+        long first = sequenceService.reserveRange("appointment_seq", booked.size());
+        Map<String, AppointmentRequest> byNumber = new HashMap<>();
+        long next = first;
+        for (Map.Entry<AppointmentRequest, Appointment> entry : booked.entrySet()) {
+            entry.getValue().setAppointmentId(SequenceService.format("APT", next++));
+            byNumber.put(entry.getValue().getAppointmentId(), entry.getKey());
+        }
+        Query taken = new Query(Criteria.where("appointmentId").in(byNumber.keySet()));
+        taken.fields().include("appointmentId");
+        for (Appointment existing : mongoOperations.find(taken, Appointment.class)) {
+            AppointmentRequest request = byNumber.get(existing.getAppointmentId());
+            giveBack(booked.remove(request));
+            rejected.add(request);
+            result.add(new ItemResult(request.getId(), request.getRequestId(), ItemResult.FAILED, null,
+                    "Numéro de rendez-vous déjà utilisé : " + existing.getAppointmentId()));
+        }
+    }
+
+    /**
+     * Insert the appointments with one insert, together with the outbox
+     * events of the appointments and of their requests; if the transaction
+     * fails, every slot is given back and the requests go back to PENDING
+     */
+    private void insertAppointments(Map<AppointmentRequest, Appointment> booked, List<AppointmentRequest> rejected,
+            BatchResult result) {
+        List<AppointmentRequest> requests = new ArrayList<>(booked.keySet());
+        List<Appointment> appointments = new ArrayList<>(booked.values());
+        List<Appointment> previous = new ArrayList<>(Collections.nCopies(appointments.size(), null));
+        try {
+            appointmentChangeService.inTransaction(() -> {
+                mongoOperations.insert(appointments, Appointment.class);
+                appointmentChangeService.appointmentsSaved(previous, appointments);
+                appointmentChangeService.requestsSaved(requests, "PENDING");
+            });
+        } catch (RuntimeException e) {
+            for (AppointmentRequest request : requests) {
+                giveBack(booked.remove(request));
+                rejected.add(request);
+                result.add(new ItemResult(request.getId(), request.getRequestId(), ItemResult.FAILED, null,
+                        e.getMessage()));
+            }
+        }
+    }
+
+    private void giveBack(Appointment appointment) {
+        slotLockService.release(appointment.getId());
+        doctorSlotIndex.onDeleted(appointment);
+    }
+
+    /**
+     * Give requests whose slot could not be booked back to the doctor
+     */
+    private void revertToPending(List<AppointmentRequest> requests) {
+        if (requests.isEmpty()) {
+            return;
+        }
+        String now = String.valueOf(System.currentTimeMillis());
+        BulkOperations operations = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, AppointmentRequest.class);
+        for (AppointmentRequest request : requests) {
+            operations.updateOne(new Query(Criteria.where("_id").is(request.getId())
+                            .and("version").is(request.getVersion())),
+                    Update.update("status", "PENDING").set("updatedAt", now).inc("version", 1));
+        }
+        operations.execute();
+    }
+
+    private Appointment appointmentFor(AppointmentRequest request, String room) {
+        Appointment appointment = new Appointment();
+        appointment.setId(new ObjectId().toHexString());
+        appointment.setVersion(0L); // bulk inserts do not initialize @Version
+        appointment.setPatientId(request.getPatientId());
+        appointment.setPatientName(request.getPatientName());
+        appointment.setDoctorId(request.getDoctorId());
+        appointment.setDoctorName(request.getDoctorName());
+        appointment.setDate(request.getAppointmentDate());
+        appointment.setTime(request.getAppointmentTime());
+        appointment.setDurationMinutes(doctorSlotIndex.getDefaultDurationMinutes());
+        appointment.setRoom(room);
+        appointment.setStatus("Planifié"); // Scheduled
+        appointment.setRemarks("Created from appointment request: " + request.getRequestId());
+        appointment.setCreatedAt(System.currentTimeMillis());
+        appointment.setUpdatedAt(System.currentTimeMillis());
+        return appointment;
+    }
+
+    private static ItemResult alreadyProcessed(AppointmentRequest request) {
+        return new ItemResult(request.getId(), request.getRequestId(), ItemResult.ALREADY_PROCESSED, null,
+                "Cette demande a déjà été traitée");
+    }
+
+    public static class BatchResult {
+        private final List<ItemResult> items = new ArrayList<>();
+        private int approved;
+        private int denied;
+        private int failed;
+        private long elapsedMillis;
+
+        private void add(ItemResult item) {
+            items.add(item);
+            if (ItemResult.APPROVED.equals(item.getOutcome())) {
+                approved++;
+            } else if (ItemResult.DENIED.equals(item.getOutcome())) {
+                denied++;
+            } else {
+                failed++;
+            }
+        }
+
+        public List<ItemResult> getItems() {
+            return items;
+        }
+
+        public int getApproved() {
+            return approved;
+        }
+
+        public int getDenied() {
+            return denied;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+
+    public static class ItemResult {
+        public static final String APPROVED = "APPROVED";
+        public static final String DENIED = "DENIED";
+        public static final String CONFLICT = "CONFLICT";
+        public static final String NOT_FOUND = "NOT_FOUND";
+        public static final String FORBIDDEN = "FORBIDDEN";
+        public static final String ALREADY_PROCESSED = "ALREADY_PROCESSED";
+        public static final String FAILED = "FAILED";
+
+        private final String id;
+        private final String requestId;
+        private final String outcome;
+        private final String appointmentId;
+        private final String message;
+
+        private ItemResult(String id, String requestId, String outcome, String appointmentId, String message) {
+            this.id = id;
+            this.requestId = requestId;
+            this.outcome = outcome;
+            this.appointmentId = appointmentId;
+            this.message = message;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getRequestId() {
+            return requestId;
+        }
+
+        public String getOutcome() {
+            return outcome;
+        }
+
+        public String getAppointmentId() {
+            return appointmentId;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
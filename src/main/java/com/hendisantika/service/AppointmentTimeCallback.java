@@ -0,0 +1,30 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.Appointment;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+import org.springframework.stereotype.Component;
+
+/**
+ * Derives the typed startAt (and a default duration) from the date / time
+ * strings on every appointment save, whichever controller performs it
+ */
+@Component
+public class AppointmentTimeCallback implements BeforeConvertCallback<Appointment> {
+
+    @Value("${app.appointment.default-duration-minutes:30}")
+    private int defaultDurationMinutes = 30;
+
+    @Override
+    public Appointment onBeforeConvert(Appointment appointment, String collection) {
+        appointment.setStartAt(AppointmentTimes.startAt(appointment.getDate(), appointment.getTime()));
+        if (appointment.getDurationMinutes() == null) {
+            appointment.setDurationMinutes(defaultDurationMinutes);
+        }
+        return appointment;
+    }
+
+    public int getDefaultDurationMinutes() {
+        return defaultDurationMinutes;
+    }
+}
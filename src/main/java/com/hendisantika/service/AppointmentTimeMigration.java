@@ -0,0 +1,111 @@
+package com.hendisantika.service;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Online migration of appointments written before the typed time model:
+ * fills startAt / durationMinutes and turns the string epoch timestamps
+ * (createdAt, updatedAt, cancelledAt) into numbers. Runs in batches on a
+ * background thread after startup; each update only applies while the
+ * document still has no startAt, so saves made by the running app win.
+ * Read paths fall back to the date string for documents without startAt,
+ * whether not migrated yet or migrated with a malformed date / time.
+ */
+@Service
+public class AppointmentTimeMigration {
+
+    private static final String COLLECTION = "appointments";
+    private static final String[] TIMESTAMPS = {"createdAt", "updatedAt", "cancelledAt"};
+
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    @Autowired
+    private AppointmentTimeCallback appointmentTimeCallback;
+
+    @Value("${app.migration.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${app.migration.pause-millis:50}")
+    private long pauseMillis = 50;
+
+    private volatile boolean complete;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread.ofVirtual().name("appointment-time-migration").start(() -> {
+            try {
+                long migrated = migrate();
+                System.out.println("✅ Appointment time migration done: " + migrated + " appointments converted");
+            } catch (Exception e) {
+                System.out.println("ℹ️  Appointment time migration stopped: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Convert every appointment without startAt, one batch at a time
+     * @return number of appointments converted
+     */
+    public long migrate() throws InterruptedException {
+        long migrated = 0;
+        while (true) {
+            Query pending = new Query(Criteria.where("startAt").exists(false)).limit(batchSize);
+            pending.fields().include("date", "time", "durationMinutes", "createdAt", "updatedAt", "cancelledAt");
+            List<Document> batch = mongoOperations.find(pending, Document.class, COLLECTION);
+            if (batch.isEmpty()) {
+                complete = true;
+                return migrated;
+            }
+
+            BulkOperations operations = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION);
+            for (Document document : batch) {
+                operations.updateOne(new Query(Criteria.where("_id").is(document.get("_id"))
+                        .and("startAt").exists(false)), convert(document));
+            }
+            migrated += operations.execute().getModifiedCount();
+
+            if (pauseMillis > 0) {
+                Thread.sleep(pauseMillis); // leave room for the regular traffic
+            }
+        }
+    }
+
+    private Update convert(Document document) {
+        // A malformed date/time gets startAt = null so it is not picked up again; the range queries
+        // match { startAt: null } on the date string, so it stays visible
+        Instant startAt = AppointmentTimes.startAt(document.getString("date"), document.getString("time"));
+        Update update = Update.update("startAt", startAt == null ? null : Date.from(startAt));
+        if (document.get("durationMinutes") == null) {
+            update.set("durationMinutes", appointmentTimeCallback.getDefaultDurationMinutes());
+        }
+        for (String field : TIMESTAMPS) {
+            if (document.get(field) instanceof String value) {
+                try {
+                    update.set(field, Long.parseLong(value.trim()));
+                } catch (NumberFormatException e) {
+                    update.unset(field);
+                }
+            }
+        }
+        return update;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+}
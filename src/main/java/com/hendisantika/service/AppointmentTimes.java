@@ -0,0 +1,83 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.Appointment;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * Conversions between the typed appointment start (startAt) and the
+ * YYYY-MM-DD / HH:MM strings kept for forms and display. All conversions
+ * use the server time zone.
+ */
+public final class AppointmentTimes {
+
+    private AppointmentTimes() {
+    }
+
+    public static ZoneId zone() {
+        return ZoneId.systemDefault();
+    }
+
+    /**
+     * Start instant of a date / time pair, or null when either is missing or malformed
+     */
+    public static Instant startAt(String date, String time) {
+        if (date == null || time == null || date.isEmpty() || time.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.of(LocalDate.parse(date), LocalTime.parse(time)).atZone(zone()).toInstant();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Start instant of an appointment: startAt when set, otherwise its date
+     * and time strings
+     * @throws IllegalArgumentException when the date or time is missing or malformed
+     */
+    public static Instant requireStartAt(Appointment appointment) {
+        Instant start = appointment.getStartAt() != null ? appointment.getStartAt()
+                : startAt(appointment.getDate(), appointment.getTime());
+        if (start == null) {
+            throw new IllegalArgumentException("Date ou heure de rendez-vous invalide : "
+                    + appointment.getDate() + " " + appointment.getTime());
+        }
+        return start;
+    }
+
+    /**
+     * Midnight at the start of a YYYY-MM-DD date
+     */
+    public static Instant startOfDay(String date) {
+        return LocalDate.parse(date).atStartOfDay(zone()).toInstant();
+    }
+
+    /**
+     * Minute of day of an appointment, from startAt when set (falls back to
+     * the time string for documents not migrated yet); -1 when unknown
+     */
+    public static int minuteOfDay(Appointment appointment) {
+        if (appointment.getStartAt() != null) {
+            ZonedDateTime start = appointment.getStartAt().atZone(zone());
+            return start.getHour() * 60 + start.getMinute();
+        }
+        return DoctorSlotIndex.toMinuteOfDay(appointment.getTime());
+    }
+
+    /**
+     * YYYY-MM-DD day of an appointment, from startAt when set
+     */
+    public static String day(Appointment appointment) {
+        if (appointment.getStartAt() != null) {
+            return appointment.getStartAt().atZone(zone()).toLocalDate().toString();
+        }
+        return appointment.getDate();
+    }
+}
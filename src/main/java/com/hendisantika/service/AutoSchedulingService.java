@@ -0,0 +1,458 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.AppointmentRequest;
+import com.hendisantika.entity.Doctor;
+import com.hendisantika.repository.AppointmentRequestRepository;
+import com.hendisantika.repository.DoctorRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Proposes a slot for every pending appointment request of a doctor or of
+ * a specialization. Greedy, oldest request first: each request gets its
+ * requested date and time when free, otherwise the free start closest to
+ * the requested time on the nearest following working day, respecting the
+ * doctor's working days, the opening hours, the minimum gap between a
+ * doctor's appointments and room occupancy.
+ *
+ * Planning works on copies of the slot index occupancy, so a preview
+ * books nothing. Doctors sharing a room are planned together; the groups
+ * are independent and are evaluated in parallel. Committing a plan moves
+ * the requests to their proposed slot and approves them through the batch
+ * approval, which re-checks every slot.
+ */
+@Service
+public class AutoSchedulingService {
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private AppointmentRequestRepository appointmentRequestRepository;
+
+    @Autowired
+    private DoctorSlotIndex doctorSlotIndex;
+
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    @Autowired
+    private AppointmentRequestBatchService appointmentRequestBatchService;
+
+    @Value("${app.availability.day-start:08:00}")
+    private String dayStart = "08:00";
+
+    @Value("${app.availability.day-end:18:00}")
+    private String dayEnd = "18:00";
+
+    @Value("${app.scheduling.horizon-days:30}")
+    private int horizonDays = 30;
+
+    @Value("${app.scheduling.step-minutes:15}")
+    private int stepMinutes = 15;
+
+    /**
+     * Plan the pending requests of one doctor (doctorId) or of every active
+     * doctor of a specialization; nothing is written
+     */
+    public SchedulePlan preview(String doctorId, String specialization) {
+        long started = System.currentTimeMillis();
+        List<Doctor> doctors = doctors(doctorId, specialization);
+        SchedulePlan plan = new SchedulePlan();
+        if (doctors.isEmpty()) {
+            return plan;
+        }
+
+        Map<String, List<AppointmentRequest>> requestsByDoctor = appointmentRequestRepository
+                .findByDoctorIdInAndStatus(doctors.stream().map(Doctor::getId).toList(), "PENDING").stream()
+                .collect(Collectors.groupingBy(AppointmentRequest::getDoctorId));
+        if (requestsByDoctor.isEmpty()) {
+            plan.elapsedMillis = System.currentTimeMillis() - started;
+            return plan;
+        }
+
+        LocalDate today = LocalDate.now();
+        Map<String, Doctor> doctorsById = new HashMap<>();
+        doctors.forEach(doctor -> doctorsById.put(doctor.getId(), doctor));
+        preloadWindows(requestsByDoctor, doctorsById, today);
+
+        // Doctors sharing a room compete for the same minutes: plan them in one group
+        Map<String, List<Doctor>> groups = new HashMap<>();
+        for (Doctor doctor : doctors) {
+            if (requestsByDoctor.containsKey(doctor.getId())) {
+                String room = doctor.getOfficeLocation();
+                String key = room != null && !room.isBlank() ? "R|" + room : "D|" + doctor.getId();
+                groups.computeIfAbsent(key, k -> new ArrayList<>()).add(doctor);
+            }
+        }
+
+        List<SchedulePlan> partial = groups.values().parallelStream()
+                .map(group -> planGroup(group, requestsByDoctor, today))
+                .toList();
+        for (SchedulePlan part : partial) {
+            plan.proposals.addAll(part.proposals);
+            plan.unassigned.addAll(part.unassigned);
+        }
+        plan.proposals.sort(Comparator.comparing(Proposal::getProposedDate).thenComparing(Proposal::getProposedTime)
+                .thenComparing(Proposal::getDoctorId));
+        plan.elapsedMillis = System.currentTimeMillis() - started;
+        return plan;
+    }
+
+    /**
+     * Re-plan and apply: requests get their proposed date and time, then are
+     * approved as one batch
+     * @param requestIds when not null, only these requests of the plan are applied
+     * @param restrictToDoctorId passed to the batch approval (null for an administrator)
+     */
+    public AppointmentRequestBatchService.BatchResult commit(String doctorId, String specialization,
+            Collection<String> requestIds, String restrictToDoctorId) {
+        SchedulePlan plan = preview(doctorId, specialization);
+        List<Proposal> proposals = plan.proposals.stream()
+                .filter(proposal -> requestIds == null || requestIds.contains(proposal.getId()))
+                .toList();
+
+        List<Proposal> moved = proposals.stream().filter(Proposal::isMoved).toList();
+        if (!moved.isEmpty()) {
+            String now = String.valueOf(System.currentTimeMillis());
+            BulkOperations operations = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED,
+                    AppointmentRequest.class);
+            for (Proposal proposal : moved) {
+                operations.updateOne(new Query(Criteria.where("_id").is(proposal.getId())
+                                .and("status").is("PENDING").and("version").is(proposal.version)),
+                        Update.update("appointmentDate", proposal.getProposedDate())
+                                .set("appointmentTime", proposal.getProposedTime())
+                                .set("updatedAt", now)
+                                .inc("version", 1));
+            }
+            operations.execute();
+        }
+
+        return appointmentRequestBatchService.process(proposals.stream().map(Proposal::getId).toList(),
+                AppointmentRequestBatchService.APPROVE, null, restrictToDoctorId);
+    }
+
+    /**
+     * Load the doctor-days and room-days the planner can touch: each request
+     * only searches [first day, first day + horizon), so overlapping windows
+     * are merged and each run is preloaded for the doctors and rooms of its
+     * requests. A far-off requested date costs one horizon, not the years
+     * in between.
+     */
+    private void preloadWindows(Map<String, List<AppointmentRequest>> requestsByDoctor,
+            Map<String, Doctor> doctorsById, LocalDate today) {
+        List<Map.Entry<LocalDate, String>> starts = new ArrayList<>();
+        requestsByDoctor.forEach((doctorId, requests) -> requests.forEach(
+                request -> starts.add(Map.entry(firstDay(request, today), doctorId))));
+        starts.sort(Map.Entry.comparingByKey());
+
+        LocalDate from = null;
+        LocalDate to = null;
+        Set<String> doctorIds = new HashSet<>();
+        for (Map.Entry<LocalDate, String> start : starts) {
+            if (to != null && !start.getKey().isBefore(to)) {
+                preloadWindow(doctorIds, doctorsById, from, to);
+                from = null;
+                doctorIds = new HashSet<>();
+            }
+            if (from == null) {
+                from = start.getKey();
+            }
+            to = start.getKey().plusDays(horizonDays);
+            doctorIds.add(start.getValue());
+        }
+        if (from != null) {
+            preloadWindow(doctorIds, doctorsById, from, to);
+        }
+    }
+
+    private void preloadWindow(Set<String> doctorIds, Map<String, Doctor> doctorsById, LocalDate from, LocalDate to) {
+        doctorSlotIndex.preload(doctorIds, from, to);
+        Set<String> rooms = doctorIds.stream().map(id -> doctorsById.get(id).getOfficeLocation())
+                .filter(room -> room != null && !room.isBlank())
+                .collect(Collectors.toSet());
+        doctorSlotIndex.preloadRooms(rooms, from, to);
+    }
+
+    private List<Doctor> doctors(String doctorId, String specialization) {
+        List<Doctor> doctors;
+        if (doctorId != null && !doctorId.isBlank()) {
+            doctors = doctorRepository.findById(doctorId).map(List::of).orElse(List.of());
+        } else if (specialization != null && !specialization.isBlank()) {
+            doctors = doctorRepository.findBySpecialization(specialization);
+        } else {
+            return List.of();
+        }
+        return doctors.stream()
+                .filter(Doctor::isActive)
+                .filter(d -> d.getWorkingDays() != null && !d.getWorkingDays().isEmpty())
+                .toList();
+    }
+
+    /**
+     * Greedy assignment of the requests of doctors sharing a room (or of a
+     * single doctor without a room), oldest request first
+     */
+    private SchedulePlan planGroup(List<Doctor> doctors, Map<String, List<AppointmentRequest>> requestsByDoctor,
+            LocalDate today) {
+        Map<String, Doctor> doctorsById = new HashMap<>();
+        List<AppointmentRequest> requests = new ArrayList<>();
+        for (Doctor doctor : doctors) {
+            doctorsById.put(doctor.getId(), doctor);
+            requests.addAll(requestsByDoctor.get(doctor.getId()));
+        }
+        requests.sort(Comparator.comparingLong(AutoSchedulingService::createdAt)
+                .thenComparing(AppointmentRequest::getId));
+
+        int open = DoctorSlotIndex.toMinuteOfDay(dayStart);
+        int close = DoctorSlotIndex.toMinuteOfDay(dayEnd);
+        int duration = doctorSlotIndex.getDefaultDurationMinutes();
+        int gap = doctorSlotIndex.getDefaultMinGapMinutes();
+        int nowMinute = LocalTime.now().toSecondOfDay() / 60;
+        Map<String, BitSet> occupancy = new HashMap<>();
+        SchedulePlan plan = new SchedulePlan();
+
+        for (AppointmentRequest request : requests) {
+            Doctor doctor = doctorsById.get(request.getDoctorId());
+            Set<String> workingDays = doctor.getWorkingDays().stream()
+                    .map(day -> day.toLowerCase(Locale.FRENCH))
+                    .collect(Collectors.toCollection(HashSet::new));
+            String room = doctor.getOfficeLocation() != null && !doctor.getOfficeLocation().isBlank()
+                    ? doctor.getOfficeLocation() : null;
+            int preferred = DoctorSlotIndex.toMinuteOfDay(request.getAppointmentTime());
+            LocalDate first = firstDay(request, today);
+
+            Proposal proposal = null;
+            for (LocalDate date = first; date.isBefore(first.plusDays(horizonDays)) && proposal == null;
+                    date = date.plusDays(1)) {
+                String dayName = date.getDayOfWeek().getDisplayName(TextStyle.FULL, Locale.FRENCH);
+                if (!workingDays.contains(dayName.toLowerCase(Locale.FRENCH))) {
+                    continue;
+                }
+                String day = date.toString();
+                int earliest = date.equals(today) ? Math.max(open, nowMinute + 1) : open;
+                BitSet doctorDay = occupancy.computeIfAbsent("D|" + doctor.getId() + "|" + day,
+                        k -> doctorSlotIndex.doctorOccupancy(doctor.getId(), day));
+                BitSet roomDay = room == null ? null : occupancy.computeIfAbsent("R|" + room + "|" + day,
+                        k -> doctorSlotIndex.roomOccupancy(room, day));
+
+                int start = closestFreeStart(doctorDay, roomDay, preferred, earliest, close, duration, gap);
+                if (start >= 0) {
+                    doctorDay.set(start, start + duration);
+                    if (roomDay != null) {
+                        roomDay.set(start, start + duration);
+                    }
+                    proposal = new Proposal(request, doctor, day, DoctorSlotIndex.formatMinuteOfDay(start));
+                }
+            }
+
+            if (proposal != null) {
+                plan.proposals.add(proposal);
+            } else {
+                plan.unassigned.add(new Unassigned(request,
+                        "Aucun créneau libre dans les " + horizonDays + " jours suivant la date demandée"));
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Free start in [earliest, close - duration] nearest to the preferred
+     * minute (earliest first without a preference), trying the preferred
+     * minute itself and then stepping away from it on both sides
+     * @return the start minute, or -1
+     */
+    private int closestFreeStart(BitSet doctorDay, BitSet roomDay, int preferred, int earliest, int close,
+            int duration, int gap) {
+        int latest = close - duration;
+        if (latest < earliest) {
+            return -1;
+        }
+        int anchor = preferred < earliest || preferred > latest ? earliest : preferred;
+        int step = Math.max(stepMinutes, 1);
+        for (int distance = 0; anchor - distance >= earliest || anchor + distance <= latest; distance += step) {
+            int before = anchor - distance;
+            if (distance > 0 && before >= earliest && isFree(doctorDay, roomDay, before, duration, gap)) {
+                return before;
+            }
+            int after = anchor + distance;
+            if (after <= latest && isFree(doctorDay, roomDay, after, duration, gap)) {
+                return after;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isFree(BitSet doctorDay, BitSet roomDay, int start, int duration, int gap) {
+        int next = doctorDay.nextSetBit(Math.max(0, start - gap));
+        if (next >= 0 && next < start + duration + gap) {
+            return false;
+        }
+        if (roomDay == null) {
+            return true;
+        }
+        next = roomDay.nextSetBit(start);
+        return next < 0 || next >= start + duration;
+    }
+
+    /**
+     * The requested date, or today when it is missing or already past
+     */
+    private static LocalDate firstDay(AppointmentRequest request, LocalDate today) {
+        try {
+            LocalDate requested = LocalDate.parse(request.getAppointmentDate());
+            return requested.isBefore(today) ? today : requested;
+        } catch (Exception e) {
+            return today;
+        }
+    }
+
+    private static long createdAt(AppointmentRequest request) {
+        try {
+            return Long.parseLong(request.getCreatedAt());
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    public static class SchedulePlan {
+        private final List<Proposal> proposals = new ArrayList<>();
+        private final List<Unassigned> unassigned = new ArrayList<>();
+        private long elapsedMillis;
+
+        public List<Proposal> getProposals() {
+            return proposals;
+        }
+
+        public List<Unassigned> getUnassigned() {
+            return unassigned;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+
+    /**
+     * Slot proposed for a pending request
+     */
+    public static class Proposal {
+        private final String id;
+        private final String requestId;
+        private final String patientName;
+        private final String doctorId;
+        private final String doctorName;
+        private final String requestedDate;
+        private final String requestedTime;
+        private final String proposedDate;
+        private final String proposedTime;
+        private final Long version;
+
+        private Proposal(AppointmentRequest request, Doctor doctor, String proposedDate, String proposedTime) {
+            this.id = request.getId();
+            this.requestId = request.getRequestId();
+            this.patientName = request.getPatientName();
+            this.doctorId = doctor.getId();
+            this.doctorName = doctor.getFirstName() + " " + doctor.getLastName();
+            this.requestedDate = request.getAppointmentDate();
+            this.requestedTime = request.getAppointmentTime();
+            this.proposedDate = proposedDate;
+            this.proposedTime = proposedTime;
+            this.version = request.getVersion();
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getRequestId() {
+            return requestId;
+        }
+
+        public String getPatientName() {
+            return patientName;
+        }
+
+        public String getDoctorId() {
+            return doctorId;
+        }
+
+        public String getDoctorName() {
+            return doctorName;
+        }
+
+        public String getRequestedDate() {
+            return requestedDate;
+        }
+
+        public String getRequestedTime() {
+            return requestedTime;
+        }
+
+        public String getProposedDate() {
+            return proposedDate;
+        }
+
+        public String getProposedTime() {
+            return proposedTime;
+        }
+
+        public boolean isMoved() {
+            return !proposedDate.equals(requestedDate) || !proposedTime.equals(requestedTime);
+        }
+    }
+
+    /**
+     * Pending request the planner could not place
+     */
+    public static class Unassigned {
+        private final String id;
+        private final String requestId;
+        private final String doctorId;
+        private final String reason;
+
+        private Unassigned(AppointmentRequest request, String reason) {
+            this.id = request.getId();
+            this.requestId = request.getRequestId();
+            this.doctorId = request.getDoctorId();
+            this.reason = reason;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getRequestId() {
+            return requestId;
+        }
+
+        public String getDoctorId() {
+            return doctorId;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+}
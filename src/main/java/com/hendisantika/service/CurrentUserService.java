@@ -0,0 +1,46 @@
+package com.hendisantika.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Resolves the logged-in user once per request. The principal is kept as a
+ * request attribute and backed by UserPrincipalCache across requests.
+ */
+@Service
+public class CurrentUserService {
+
+    private static final String REQUEST_ATTRIBUTE = CurrentUserService.class.getName() + ".principal";
+
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
+    /**
+     * Get current logged-in user, or null when not authenticated
+     */
+    public UserPrincipal getCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return null;
+        }
+
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null) {
+            Object resolved = request.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            if (resolved instanceof UserPrincipal principal
+                    && principal.getUsername().equals(authentication.getName())) {
+                return principal;
+            }
+        }
+
+        UserPrincipal principal = userPrincipalCache.get(authentication.getName());
+        if (request != null && principal != null) {
+            request.setAttribute(REQUEST_ATTRIBUTE, principal, RequestAttributes.SCOPE_REQUEST);
+        }
+        return principal;
+    }
+}
@@ -22,6 +22,9 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         Optional<User> userOptional = userRepository.findByUsername(username);
@@ -32,10 +35,15 @@ public class CustomUserDetailsService implements UserDetailsService {
 
         User user = userOptional.get();
 
+        // Resolve the principal once here so controllers read it from the cache
+        userPrincipalCache.put(user);
+
         // Create authorities based on user role
         Collection<GrantedAuthority> authorities = new ArrayList<>();
-        String role = user.getRole() != null ? user.getRole() : "PATIENT";
-        authorities.add(new SimpleGrantedAuthority("ROLE_" + role));
+        // A user without a role is only authenticated: role-restricted pages stay closed to them
+        if (user.getRole() != null) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_" + user.getRole()));
+        }
 
         // Return custom UserDetails implementation with plaintext password
         return new org.springframework.security.core.userdetails.User(
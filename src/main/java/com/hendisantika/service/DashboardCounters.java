@@ -0,0 +1,186 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.Appointment;
+import com.hendisantika.entity.AppointmentRequest;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Materialized per-doctor and per-patient dashboard counters. Rebuilt from
+ * aggregations at startup and updated incrementally on appointment and
+ * appointment request writes, so a dashboard poll only reads memory.
+ */
+@Service
+public class DashboardCounters {
+
+    public static final String PENDING = "PENDING";
+
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    private final Map<String, AtomicLong> doctorAppointments = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> doctorPendingRequests = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> patientRequests = new ConcurrentHashMap<>();
+    // Appointments per patient per date (YYYY-MM-DD) so "upcoming" follows the calendar
+    private final Map<String, ConcurrentSkipListMap<String, AtomicLong>> patientAppointmentsByDate =
+            new ConcurrentHashMap<>();
+
+    // Writers hold the read side; a rebuild holds the write side
+    private final ReentrantReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    /**
+     * Rebuild every counter from MongoDB aggregations
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        rebuildLock.writeLock().lock();
+        try {
+            doctorAppointments.clear();
+            doctorPendingRequests.clear();
+            patientRequests.clear();
+            patientAppointmentsByDate.clear();
+
+            for (Document row : aggregate("appointments", Aggregation.newAggregation(
+                    Aggregation.group("doctorId").count().as("count")))) {
+                add(doctorAppointments, row.getString("_id"), count(row));
+            }
+            for (Document row : aggregate("appointments", Aggregation.newAggregation(
+                    Aggregation.group("patientId", "date").count().as("count")))) {
+                Document id = (Document) row.get("_id");
+                addPatientAppointment(id.getString("patientId"), id.getString("date"), count(row));
+            }
+            for (Document row : aggregate("appointment_requests", Aggregation.newAggregation(
+                    Aggregation.match(Criteria.where("status").is(PENDING)),
+                    Aggregation.group("doctorId").count().as("count")))) {
+                add(doctorPendingRequests, row.getString("_id"), count(row));
+            }
+            for (Document row : aggregate("appointment_requests", Aggregation.newAggregation(
+                    Aggregation.group("patientId").count().as("count")))) {
+                add(patientRequests, row.getString("_id"), count(row));
+            }
+        } catch (Exception e) {
+            System.out.println("ℹ️  Dashboard counters rebuild failed: " + e.getMessage());
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    public long getDoctorAppointmentCount(String doctorId) {
+        return get(doctorAppointments, doctorId);
+    }
+
+    public long getDoctorPendingRequestCount(String doctorId) {
+        return get(doctorPendingRequests, doctorId);
+    }
+
+    public long getPatientRequestCount(String patientId) {
+        return get(patientRequests, patientId);
+    }
+
+    /**
+     * Appointments of the patient dated today or later
+     */
+    public long getPatientUpcomingAppointmentCount(String patientId) {
+        if (patientId == null) {
+            return 0;
+        }
+        ConcurrentSkipListMap<String, AtomicLong> byDate = patientAppointmentsByDate.get(patientId);
+        if (byDate == null) {
+            return 0;
+        }
+        return byDate.tailMap(LocalDate.now().toString(), true).values().stream()
+                .mapToLong(AtomicLong::get)
+                .sum();
+    }
+
+    /**
+     * Apply an appointment write; previous is null for a new appointment
+     */
+    public void onAppointmentSaved(Appointment previous, Appointment saved) {
+        rebuildLock.readLock().lock();
+        try {
+            if (previous != null) {
+                applyAppointment(previous, -1);
+            }
+            if (saved != null) {
+                applyAppointment(saved, 1);
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    public void onAppointmentDeleted(Appointment appointment) {
+        onAppointmentSaved(appointment, null);
+    }
+
+    /**
+     * Apply an appointment request write; previousStatus is null for a new
+     * request
+     */
+    public void onRequestSaved(AppointmentRequest request, String previousStatus) {
+        rebuildLock.readLock().lock();
+        try {
+            if (previousStatus == null) {
+                add(patientRequests, request.getPatientId(), 1);
+            } else if (PENDING.equals(previousStatus)) {
+                add(doctorPendingRequests, request.getDoctorId(), -1);
+            }
+            if (PENDING.equals(request.getStatus())) {
+                add(doctorPendingRequests, request.getDoctorId(), 1);
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    private void applyAppointment(Appointment appointment, long delta) {
+        add(doctorAppointments, appointment.getDoctorId(), delta);
+        addPatientAppointment(appointment.getPatientId(), appointment.getDate(), delta);
+    }
+
+    private void addPatientAppointment(String patientId, String date, long delta) {
+        if (patientId == null || date == null || date.isEmpty()) {
+            return;
+        }
+        patientAppointmentsByDate.computeIfAbsent(patientId, k -> new ConcurrentSkipListMap<>())
+                .computeIfAbsent(date, k -> new AtomicLong())
+                .addAndGet(delta);
+    }
+
+    private static void add(Map<String, AtomicLong> counters, String key, long delta) {
+        if (key == null) {
+            return;
+        }
+        counters.computeIfAbsent(key, k -> new AtomicLong()).addAndGet(delta);
+    }
+
+    private static long get(Map<String, AtomicLong> counters, String key) {
+        if (key == null) {
+            return 0;
+        }
+        AtomicLong counter = counters.get(key);
+        return counter != null ? Math.max(counter.get(), 0) : 0;
+    }
+
+    private Iterable<Document> aggregate(String collection, Aggregation aggregation) {
+        return mongoOperations.aggregate(aggregation, collection, Document.class);
+    }
+
+    private static long count(Document row) {
+        return ((Number) row.get("count")).longValue();
+    }
+}
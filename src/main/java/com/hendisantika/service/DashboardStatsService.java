@@ -0,0 +1,63 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.Appointment;
+import com.hendisantika.entity.Doctor;
+import com.hendisantika.entity.Patient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds the role-specific dashboard statistics shared by the polling
+ * endpoint and the live update stream
+ */
+@Service
+public class DashboardStatsService {
+
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    @Autowired
+    private DashboardCounters dashboardCounters;
+
+    /**
+     * Get total counts of patients, doctors, and appointments
+     * with role-based filtering
+     */
+    public Map<String, Object> buildCounts(UserPrincipal currentUser) {
+        Map<String, Object> stats = new HashMap<>();
+        String role = currentUser != null ? currentUser.getRole() : null;
+
+        // Add general counts (for all roles) from collection metadata
+        stats.put("patientCount", mongoOperations.estimatedCount(Patient.class));
+        stats.put("doctorCount", mongoOperations.estimatedCount(Doctor.class));
+        stats.put("appointmentCount", mongoOperations.estimatedCount(Appointment.class));
+        stats.put("timestamp", System.currentTimeMillis());
+
+        // Add role-specific statistics
+        if ("ADMIN".equals(role)) {
+            // ADMIN sees all statistics
+            stats.put("adminView", true);
+        } else if ("DOCTOR".equals(role) && currentUser != null) {
+            // DOCTOR sees their own appointments and pending requests
+            String doctorId = currentUser.getDoctorId();
+            stats.put("myAppointmentCount", dashboardCounters.getDoctorAppointmentCount(doctorId));
+            stats.put("pendingRequestCount", dashboardCounters.getDoctorPendingRequestCount(doctorId));
+
+            // Count total unique patients in the system (all patients)
+            stats.put("totalPatientCount", stats.get("patientCount"));
+            stats.put("doctorView", true);
+        } else if ("PATIENT".equals(role) && currentUser != null) {
+            // PATIENT sees their own appointments and requests
+            String patientId = currentUser.getPatientId();
+            stats.put("upcomingAppointmentCount", dashboardCounters.getPatientUpcomingAppointmentCount(patientId));
+            stats.put("myRequestCount", dashboardCounters.getPatientRequestCount(patientId));
+            stats.put("patientView", true);
+        }
+
+        return stats;
+    }
+}
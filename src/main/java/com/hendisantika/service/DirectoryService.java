@@ -0,0 +1,255 @@
+package com.hendisantika.service;
+
+import com.hendisantika.dto.DoctorSummary;
+import com.hendisantika.dto.PatientSummary;
+import com.hendisantika.entity.Doctor;
+import com.hendisantika.entity.Patient;
+import com.hendisantika.repository.DoctorRepository;
+import com.hendisantika.repository.PatientRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Write-through cache of the active doctors (also grouped by
+ * specialization) and active patients used to fill form dropdowns.
+ * Readers get immutable snapshots without touching MongoDB; every write
+ * builds a new snapshot from the previous one and swaps it in. A full
+ * reload picks up changes made by other application nodes once the
+ * snapshot is older than app.directory.refresh-seconds.
+ */
+@Service
+public class DirectoryService {
+
+    private static final Comparator<DoctorSummary> DOCTOR_ORDER = Comparator
+            .comparing(DoctorSummary::getLastName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+            .thenComparing(DoctorSummary::getFirstName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+
+    private static final Comparator<PatientSummary> PATIENT_ORDER = Comparator
+            .comparing(PatientSummary::getLastName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+            .thenComparing(PatientSummary::getFirstName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Value("${app.directory.refresh-seconds:300}")
+    private long refreshSeconds = 300;
+
+    private volatile DoctorDirectory doctors;
+    private volatile PatientDirectory patients;
+
+    // Serializes snapshot swaps; a lock rather than synchronized so a reload blocked on
+    // MongoDB does not pin the carrier of a virtual thread
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            reload();
+            System.out.println("✅ Directory loaded: " + doctors.all.size() + " active doctors, "
+                    + patients.all.size() + " active patients");
+        } catch (Exception e) {
+            System.out.println("ℹ️  Directory warm-up skipped: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Active doctors ordered by name
+     */
+    public List<DoctorSummary> getActiveDoctors() {
+        return doctorDirectory().all;
+    }
+
+    /**
+     * Active doctors of one specialization ordered by name
+     */
+    public List<DoctorSummary> getActiveDoctors(String specialization) {
+        return doctorDirectory().bySpecialization.getOrDefault(specialization, List.of());
+    }
+
+    /**
+     * Active patients ordered by name
+     */
+    public List<PatientSummary> getActivePatients() {
+        return patientDirectory().all;
+    }
+
+    public void doctorSaved(Doctor doctor) {
+        doctorsSaved(List.of(doctor));
+    }
+
+    /**
+     * Apply saved doctors (added, changed or deactivated) in one new snapshot
+     */
+    public void doctorsSaved(Collection<Doctor> saved) {
+        writeLock.lock();
+        try {
+            DoctorDirectory current = doctors;
+            if (current == null || saved.isEmpty()) {
+                return; // loaded from MongoDB on first use
+            }
+            List<DoctorSummary> changed = saved.stream().filter(Doctor::isActive).map(DirectoryService::summary)
+                    .toList();
+            doctors = new DoctorDirectory(merge(current.all, changed, ids(saved, Doctor::getId), DoctorSummary::getId,
+                    DOCTOR_ORDER), current.loadedAt);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void patientSaved(Patient patient) {
+        patientsSaved(List.of(patient));
+    }
+
+    /**
+     * Apply saved patients (added, changed or deactivated) in one new snapshot
+     */
+    public void patientsSaved(Collection<Patient> saved) {
+        writeLock.lock();
+        try {
+            PatientDirectory current = patients;
+            if (current == null || saved.isEmpty()) {
+                return;
+            }
+            List<PatientSummary> changed = saved.stream().filter(Patient::isActive).map(DirectoryService::summary)
+                    .toList();
+            patients = new PatientDirectory(merge(current.all, changed, ids(saved, Patient::getId),
+                    PatientSummary::getId, PATIENT_ORDER), current.loadedAt);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Rebuild both directories from MongoDB (two projected queries)
+     */
+    public void reload() {
+        writeLock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            doctors = new DoctorDirectory(sorted(doctorRepository.findSummariesByActiveTrue(), DOCTOR_ORDER), now);
+            patients = new PatientDirectory(sorted(patientRepository.findSummariesByActiveTrue(), PATIENT_ORDER), now);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private DoctorDirectory doctorDirectory() {
+        DoctorDirectory current = doctors;
+        if (current == null || isStale(current.loadedAt)) {
+            reloadIfStale();
+            current = doctors;
+        }
+        return current;
+    }
+
+    private PatientDirectory patientDirectory() {
+        PatientDirectory current = patients;
+        if (current == null || isStale(current.loadedAt)) {
+            reloadIfStale();
+            current = patients;
+        }
+        return current;
+    }
+
+    /**
+     * Only the first of several readers finding a stale snapshot reloads it
+     */
+    private void reloadIfStale() {
+        writeLock.lock();
+        try {
+            if (doctors == null || patients == null || isStale(doctors.loadedAt) || isStale(patients.loadedAt)) {
+                reload();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private boolean isStale(long loadedAt) {
+        return refreshSeconds > 0 && System.currentTimeMillis() - loadedAt > refreshSeconds * 1000;
+    }
+
+    /**
+     * Previous entries without the saved ids, plus the saved entries that are
+     * still active, re-sorted
+     */
+    private static <T> List<T> merge(List<T> current, List<T> changed, Predicate<String> saved,
+            Function<T, String> idOf, Comparator<T> order) {
+        List<T> merged = new ArrayList<>(current.size() + changed.size());
+        for (T entry : current) {
+            if (!saved.test(idOf.apply(entry))) {
+                merged.add(entry);
+            }
+        }
+        merged.addAll(changed);
+        return sorted(merged, order);
+    }
+
+    private static <T> List<T> sorted(List<T> entries, Comparator<T> order) {
+        List<T> copy = new ArrayList<>(entries);
+        copy.sort(order);
+        return List.copyOf(copy);
+    }
+
+    private static <E> Predicate<String> ids(Collection<E> entities, Function<E, String> idOf) {
+        return entities.stream().map(idOf).collect(Collectors.toSet())::contains;
+    }
+
+    private static DoctorSummary summary(Doctor doctor) {
+        return new DoctorSummary(doctor.getId(), doctor.getDoctorId(), doctor.getFirstName(), doctor.getLastName(),
+                doctor.getSpecialization(), doctor.getEmail(), doctor.getPhone(), doctor.getOfficeLocation(),
+                doctor.isActive());
+    }
+
+    private static PatientSummary summary(Patient patient) {
+        return new PatientSummary(patient.getId(), patient.getPatientId(), patient.getFirstName(),
+                patient.getLastName(), patient.getGender(), patient.getEmail(), patient.getPhone(),
+                patient.isActive());
+    }
+
+    private static class DoctorDirectory {
+        private final List<DoctorSummary> all;
+        private final Map<String, List<DoctorSummary>> bySpecialization;
+        private final long loadedAt;
+
+        private DoctorDirectory(List<DoctorSummary> all, long loadedAt) {
+            this.all = all;
+            Map<String, List<DoctorSummary>> grouped = new LinkedHashMap<>();
+            for (DoctorSummary doctor : all) {
+                if (doctor.getSpecialization() != null) {
+                    grouped.computeIfAbsent(doctor.getSpecialization(), k -> new ArrayList<>()).add(doctor);
+                }
+            }
+            grouped.replaceAll((specialization, list) -> List.copyOf(list));
+            this.bySpecialization = Map.copyOf(grouped);
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private static class PatientDirectory {
+        private final List<PatientSummary> all;
+        private final long loadedAt;
+
+        private PatientDirectory(List<PatientSummary> all, long loadedAt) {
+            this.all = all;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.Appointment;
+import com.hendisantika.entity.Doctor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk offboarding of doctors (a list of doctors or a whole specialization):
+ * doctors, their user accounts and their upcoming appointments are each
+ * updated with one multi-document write.
+ */
+@Service
+public class DoctorDeactivationService {
+
+    private static final String SCHEDULED = "Planifié";
+
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private DirectoryService directoryService;
+
+    @Autowired
+    private AppointmentChangeService appointmentChangeService;
+
+    /**
+     * Deactivate the active doctors matching the given IDs (Mongo id or
+     * D00001-style doctorId) or specialization, and cancel their future
+     * scheduled appointments with the given reason
+     */
+    public DeactivationResult deactivateDoctors(Collection<String> doctorIds, String specialization, String reason) {
+        List<Criteria> selectors = new ArrayList<>();
+        if (doctorIds != null && !doctorIds.isEmpty()) {
+            selectors.add(Criteria.where("id").in(doctorIds));
+            selectors.add(Criteria.where("doctorId").in(doctorIds));
+        }
+        if (specialization != null && !specialization.isBlank()) {
+            selectors.add(Criteria.where("specialization").is(specialization));
+        }
+        if (selectors.isEmpty()) {
+            return new DeactivationResult(0, 0, 0);
+        }
+
+        List<Doctor> doctors = mongoOperations.find(new Query(new Criteria().andOperator(
+                Criteria.where("active").is(true), new Criteria().orOperator(selectors))), Doctor.class);
+        if (doctors.isEmpty()) {
+            return new DeactivationResult(0, 0, 0);
+        }
+
+        long now = System.currentTimeMillis();
+        List<String> ids = doctors.stream().map(Doctor::getId).toList();
+        List<String> businessIds = doctors.stream().map(Doctor::getDoctorId).toList();
+        mongoOperations.updateMulti(new Query(Criteria.where("id").in(ids)),
+                new Update().set("active", false).set("updatedAt", String.valueOf(now)), Doctor.class);
+        long users = userService.deactivateDoctorUsers(businessIds);
+
+        // Appointments reference a doctor by either identifier
+        Set<String> appointmentDoctorIds = new HashSet<>(ids);
+        appointmentDoctorIds.addAll(businessIds);
+        int cancelled = cancelFutureAppointments(appointmentDoctorIds, reason, now);
+
+        for (Doctor doctor : doctors) {
+            doctor.setActive(false);
+            doctor.setUpdatedAt(String.valueOf(now));
+            searchService.doctorSaved(doctor);
+        }
+        directoryService.doctorsSaved(doctors);
+        return new DeactivationResult(doctors.size(), users, cancelled);
+    }
+
+    private int cancelFutureAppointments(Collection<String> doctorIds, String reason, long now) {
+        // Documents without startAt (not migrated yet, or null for a malformed time) are matched on their
+        // date / time strings
+        LocalDateTime local = LocalDateTime.ofInstant(Instant.ofEpochMilli(now), AppointmentTimes.zone());
+        String today = local.toLocalDate().toString();
+        String time = DoctorSlotIndex.formatMinuteOfDay(local.getHour() * 60 + local.getMinute());
+        Criteria notMigrated = new Criteria().andOperator(Criteria.where("startAt").is(null),
+                new Criteria().orOperator(Criteria.where("date").gt(today),
+                        Criteria.where("date").is(today).and("time").gte(time)));
+        Query query = new Query(new Criteria().andOperator(
+                Criteria.where("doctorId").in(doctorIds).and("status").is(SCHEDULED),
+                new Criteria().orOperator(Criteria.where("startAt").gte(Instant.ofEpochMilli(now)), notMigrated)));
+        List<Appointment> before = mongoOperations.find(query, Appointment.class);
+        if (before.isEmpty()) {
+            return 0;
+        }
+
+        List<String> appointmentIds = before.stream().map(Appointment::getId).toList();
+        // The cancellation and its outbox events commit together
+        return appointmentChangeService.inTransaction(() -> {
+            Query byIds = new Query(Criteria.where("id").in(appointmentIds).and("status").is(SCHEDULED));
+            mongoOperations.updateMulti(byIds, new Update()
+                    .set("status", DoctorSlotIndex.CANCELLED)
+                    .set("cancelledAt", now)
+                    .set("cancelledReason", reason)
+                    .set("updatedAt", now)
+                    .inc("version", 1), Appointment.class);
+
+            // Re-read so every in-memory view and outbox event gets the exact before/after pair
+            Map<String, Appointment> after = mongoOperations.find(new Query(Criteria.where("id").in(appointmentIds)),
+                    Appointment.class).stream().collect(Collectors.toMap(Appointment::getId, Function.identity()));
+            List<Appointment> previous = new ArrayList<>();
+            List<Appointment> saved = new ArrayList<>();
+            for (Appointment appointment : before) {
+                Appointment current = after.get(appointment.getId());
+                if (current != null && Long.valueOf(now).equals(current.getCancelledAt())) {
+                    previous.add(appointment);
+                    saved.add(current);
+                }
+            }
+            appointmentChangeService.appointmentsSaved(previous, saved);
+            return saved.size();
+        });
+    }
+
+    public static class DeactivationResult {
+        private final int doctors;
+        private final long users;
+        private final int cancelledAppointments;
+
+        public DeactivationResult(int doctors, long users, int cancelledAppointments) {
+            this.doctors = doctors;
+            this.users = users;
+            this.cancelledAppointments = cancelledAppointments;
+        }
+
+        public int getDoctors() {
+            return doctors;
+        }
+
+        public long getUsers() {
+            return users;
+        }
+
+        public int getCancelledAppointments() {
+            return cancelledAppointments;
+        }
+    }
+}
@@ -0,0 +1,545 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.Appointment;
+import com.hendisantika.repository.AppointmentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * In-memory index of booked appointment intervals per resource (doctor or
+ * room) and per day. A resource-day is loaded from MongoDB once, then kept
+ * in sync by the controllers on save / cancel / delete so availability
+ * checks are a sorted-tree range lookup (O(log n)) with no database round
+ * trip. Each day also carries a minute-of-day occupancy bitmap used by the
+ * free-slot finder.
+ */
+@Service
+public class DoctorSlotIndex {
+
+    public static final String CANCELLED = "Annulé";
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Value("${app.availability.min-gap-minutes:10}")
+    private int defaultMinGapMinutes = 10;
+
+    @Value("${app.appointment.default-duration-minutes:30}")
+    private int defaultDurationMinutes = 30;
+
+    private final ConcurrentHashMap<String, DaySlots> days = new ConcurrentHashMap<>();
+
+    // Writers hold the read side; a bulk preload takes the write side only to
+    // install the days it loaded, after checking none was written meanwhile
+    private final ReentrantReadWriteLock preloadLock = new ReentrantReadWriteLock();
+
+    // Days being loaded (number of loads on each) and those of them changed while
+    // their query ran: a changed day is not installed and is loaded again on demand
+    private final ConcurrentHashMap<String, Integer> loading = new ConcurrentHashMap<>();
+    private final Set<String> changedWhileLoading = ConcurrentHashMap.newKeySet();
+
+    // Days before this one were dropped; a past day read again is loaded on demand
+    private volatile String evictedBefore = "";
+
+    public int getDefaultMinGapMinutes() {
+        return defaultMinGapMinutes;
+    }
+
+    public int getDefaultDurationMinutes() {
+        return defaultDurationMinutes;
+    }
+
+    public int getLoadedDays() {
+        return days.size();
+    }
+
+    /**
+     * Find a booking of the doctor overlapping [start, start + duration)
+     * widened by minGapMinutes on both sides, or of the room overlapping the
+     * interval itself (room may be null)
+     * @return the conflict, or null when the slot is free
+     * @throws IllegalArgumentException if startMinute is negative (malformed time)
+     */
+    public Conflict findConflict(String doctorId, String room, String date, int startMinute,
+            int durationMinutes, int minGapMinutes) {
+        if (startMinute < 0) {
+            throw new IllegalArgumentException("Heure de rendez-vous invalide");
+        }
+        evictPastDays();
+        int end = startMinute + Math.max(durationMinutes, 1);
+        int minute = doctorDay(doctorId, date).findConflict(startMinute, end, minGapMinutes, null);
+        if (minute >= 0) {
+            return new Conflict(Conflict.DOCTOR, minute);
+        }
+        if (room != null && !room.isBlank()) {
+            minute = roomDay(room, date).findConflict(startMinute, end, 0, null);
+            if (minute >= 0) {
+                return new Conflict(Conflict.ROOM, minute);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check and claim the appointment's doctor and room interval in one
+     * step, so two concurrent bookings of the same slot cannot both pass.
+     * The appointment must already carry its id; call onDeleted() to drop
+     * the claim if the save then fails.
+     * @return the conflict, or null when the interval was claimed
+     * @throws IllegalArgumentException if the appointment date or time is malformed
+     */
+    public Conflict reserve(Appointment appointment, int minGapMinutes) {
+        // Same validation as the slot_locks reservation that follows
+        AppointmentTimes.requireStartAt(appointment);
+        int start = AppointmentTimes.minuteOfDay(appointment);
+        evictPastDays();
+        int end = start + duration(appointment);
+        String date = AppointmentTimes.day(appointment);
+        String room = appointment.getRoom();
+        // Cold days are loaded before taking the lock, so a round trip does not hold back a preload
+        doctorDay(appointment.getDoctorId(), date);
+        if (room != null && !room.isBlank()) {
+            roomDay(room, date);
+        }
+
+        preloadLock.readLock().lock();
+        try {
+            DaySlots doctorSlots = doctorDay(appointment.getDoctorId(), date);
+            DaySlots roomSlots = room != null && !room.isBlank() ? roomDay(room, date) : null;
+            // Lock order is always doctor-day then room-day, so claims cannot deadlock
+            synchronized (doctorSlots) {
+                int minute = doctorSlots.findConflict(start, end, minGapMinutes, appointment.getId());
+                if (minute >= 0) {
+                    return new Conflict(Conflict.DOCTOR, minute);
+                }
+                if (roomSlots != null) {
+                    synchronized (roomSlots) {
+                        minute = roomSlots.findConflict(start, end, 0, appointment.getId());
+                        if (minute >= 0) {
+                            return new Conflict(Conflict.ROOM, minute);
+                        }
+                        roomSlots.add(appointment.getId(), start, end);
+                    }
+                }
+                doctorSlots.add(appointment.getId(), start, end);
+                return null;
+            }
+        } finally {
+            preloadLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Keep the index in sync after an appointment was saved. The previous
+     * state (or null for a new appointment) is removed first so date, time,
+     * duration, room and status changes are all handled.
+     */
+    public void onSaved(Appointment previous, Appointment saved) {
+        preloadLock.readLock().lock();
+        try {
+            if (previous != null) {
+                remove(previous);
+            }
+            if (saved == null || saved.getId() == null || CANCELLED.equals(saved.getStatus())) {
+                return;
+            }
+            int start = AppointmentTimes.minuteOfDay(saved);
+            if (start < 0) {
+                return;
+            }
+            int end = start + duration(saved);
+            String date = AppointmentTimes.day(saved);
+            change(doctorKey(saved.getDoctorId(), date), slots -> slots.add(saved.getId(), start, end));
+            if (saved.getRoom() != null) {
+                change(roomKey(saved.getRoom(), date), slots -> slots.add(saved.getId(), start, end));
+            }
+        } finally {
+            preloadLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Keep the index in sync after an appointment was deleted
+     */
+    public void onDeleted(Appointment appointment) {
+        preloadLock.readLock().lock();
+        try {
+            remove(appointment);
+        } finally {
+            preloadLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Load every missing doctor-day of the range [from, to) with a single
+     * query so a scan over many doctors and days needs no per-day round trip
+     */
+    public void preload(Collection<String> doctorIds, LocalDate from, LocalDate to) {
+        preload(doctorIds, from, to, DoctorSlotIndex::doctorKey, Appointment::getDoctorId,
+                () -> appointmentRepository.findActiveByDoctorIdsAndDateRange(doctorIds, from.toString(), to.toString()));
+    }
+
+    /**
+     * Same as preload() for room-days
+     */
+    public void preloadRooms(Collection<String> rooms, LocalDate from, LocalDate to) {
+        preload(rooms, from, to, DoctorSlotIndex::roomKey, Appointment::getRoom,
+                () -> appointmentRepository.findActiveByRoomsAndDateRange(rooms, from.toString(), to.toString()));
+    }
+
+    private void preload(Collection<String> resources, LocalDate from, LocalDate to,
+            BiFunction<String, String, String> keyOf, Function<Appointment, String> resourceOf,
+            Supplier<List<Appointment>> query) {
+        evictPastDays();
+        Set<String> missing = new HashSet<>();
+        for (String resource : resources) {
+            for (LocalDate date = from; date.isBefore(to); date = date.plusDays(1)) {
+                String key = keyOf.apply(resource, date.toString());
+                if (!days.containsKey(key)) {
+                    missing.add(key);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        for (String key : missing) {
+            loading.merge(key, 1, Integer::sum);
+        }
+        try {
+            // The query runs without the lock; readers and writers carry on meanwhile
+            Map<String, DaySlots> loaded = new HashMap<>();
+            for (String key : missing) {
+                loaded.put(key, new DaySlots());
+            }
+            for (Appointment appointment : query.get()) {
+                DaySlots slots = loaded.get(keyOf.apply(resourceOf.apply(appointment), AppointmentTimes.day(appointment)));
+                int start = AppointmentTimes.minuteOfDay(appointment);
+                if (slots != null && start >= 0) {
+                    slots.add(appointment.getId(), start, start + duration(appointment));
+                }
+            }
+
+            preloadLock.writeLock().lock();
+            try {
+                loaded.forEach((key, slots) -> {
+                    if (!changedWhileLoading.contains(key)) {
+                        days.putIfAbsent(key, slots);
+                    }
+                });
+            } finally {
+                preloadLock.writeLock().unlock();
+            }
+        } finally {
+            for (String key : missing) {
+                doneLoading(key, null);
+            }
+        }
+    }
+
+    /**
+     * A loaded day, or one loaded now. The query runs outside the map: a
+     * computeIfAbsent() would hold the map's bin lock for the round trip,
+     * pinning the carrier of a virtual thread and blocking the other keys of
+     * the bin. A day changed while its query ran is loaded again.
+     */
+    private DaySlots day(String key, Supplier<List<Appointment>> query) {
+        while (true) {
+            DaySlots slots = days.get(key);
+            if (slots != null) {
+                return slots;
+            }
+            loading.merge(key, 1, Integer::sum);
+            DaySlots loaded;
+            try {
+                loaded = load(query.get());
+            } catch (RuntimeException e) {
+                doneLoading(key, null);
+                throw e;
+            }
+            DaySlots[] installed = new DaySlots[1];
+            doneLoading(key, () -> {
+                DaySlots current = days.putIfAbsent(key, loaded);
+                installed[0] = current != null ? current : loaded;
+            });
+            if (installed[0] != null) {
+                return installed[0];
+            }
+        }
+    }
+
+    /**
+     * End one load of a day. install runs atomically with the check that no
+     * change reached the day during the load: change() marks the day before
+     * applying itself, so a change either sees the installed day or makes
+     * the load skip it.
+     */
+    private void doneLoading(String key, Runnable install) {
+        loading.compute(key, (k, loads) -> {
+            if (install != null && !changedWhileLoading.contains(k)) {
+                install.run();
+            }
+            if (loads == 1) {
+                changedWhileLoading.remove(k);
+                return null;
+            }
+            return loads - 1;
+        });
+    }
+
+    /**
+     * Copy of the minute-of-day occupancy of a doctor-day, for planners that
+     * place several tentative bookings before claiming any of them
+     */
+    public BitSet doctorOccupancy(String doctorId, String date) {
+        return doctorDay(doctorId, date).copyOccupancy();
+    }
+
+    /**
+     * Copy of the minute-of-day occupancy of a room-day
+     */
+    public BitSet roomOccupancy(String room, String date) {
+        return roomDay(room, date).copyOccupancy();
+    }
+
+    /**
+     * Free start minutes of the doctor-day in [dayStart, dayEnd) stepping by
+     * slotLength. A start is free when [start, start + slotLength) widened
+     * by minGap on both sides touches no booking of the doctor, and the
+     * interval itself no booking of the room (room may be null), the same
+     * rules as findConflict().
+     */
+    public List<Integer> findFreeStarts(String doctorId, String room, String date, int dayStart, int dayEnd,
+            int slotLength, int minGapMinutes, int limit) {
+        BitSet roomOccupancy = room == null || room.isBlank() ? null : roomOccupancy(room, date);
+        return doctorDay(doctorId, date).findFreeStarts(dayStart, dayEnd, slotLength, minGapMinutes, roomOccupancy,
+                limit);
+    }
+
+    private void remove(Appointment appointment) {
+        if (appointment == null || appointment.getId() == null) {
+            return;
+        }
+        String date = AppointmentTimes.day(appointment);
+        change(doctorKey(appointment.getDoctorId(), date), slots -> slots.remove(appointment.getId()));
+        if (appointment.getRoom() != null) {
+            change(roomKey(appointment.getRoom(), date), slots -> slots.remove(appointment.getId()));
+        }
+    }
+
+    /**
+     * Apply a change to a loaded day; called with the read side held
+     */
+    private void change(String key, Consumer<DaySlots> update) {
+        // Marked first, so that a load finishing concurrently either skips the day or is updated below
+        loading.computeIfPresent(key, (k, loads) -> {
+            changedWhileLoading.add(k);
+            return loads;
+        });
+        // Days not loaded yet are skipped: their load reads the change from MongoDB
+        days.computeIfPresent(key, (k, slots) -> {
+            update.accept(slots);
+            return slots;
+        });
+    }
+
+    /**
+     * Once per calendar day, drop the days before today so the index only
+     * grows with the days still bookable. Must not be called with the read
+     * side held.
+     */
+    private void evictPastDays() {
+        String today = LocalDate.now(AppointmentTimes.zone()).toString();
+        if (today.compareTo(evictedBefore) <= 0) {
+            return;
+        }
+        preloadLock.writeLock().lock();
+        try {
+            if (today.compareTo(evictedBefore) > 0) {
+                // Keys end with the YYYY-MM-DD date, which sorts chronologically
+                days.keySet().removeIf(key -> key.substring(key.lastIndexOf('|') + 1).compareTo(today) < 0);
+                evictedBefore = today;
+            }
+        } finally {
+            preloadLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drop every loaded day, forcing a reload on the next check
+     */
+    public void clear() {
+        days.clear();
+    }
+
+    public static int toMinuteOfDay(String time) {
+        if (time == null || time.isEmpty()) {
+            return -1;
+        }
+        try {
+            return LocalTime.parse(time).toSecondOfDay() / 60;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    public static String formatMinuteOfDay(int minute) {
+        return String.format("%02d:%02d", minute / 60, minute % 60);
+    }
+
+    private int duration(Appointment appointment) {
+        Integer duration = appointment.getDurationMinutes();
+        return duration != null && duration > 0 ? duration : defaultDurationMinutes;
+    }
+
+    private DaySlots doctorDay(String doctorId, String date) {
+        return day(doctorKey(doctorId, date), () -> appointmentRepository.findByDoctorIdAndDate(doctorId, date));
+    }
+
+    private DaySlots roomDay(String room, String date) {
+        return day(roomKey(room, date), () -> appointmentRepository.findByRoomAndDate(room, date));
+    }
+
+    private DaySlots load(List<Appointment> appointments) {
+        DaySlots slots = new DaySlots();
+        for (Appointment appointment : appointments) {
+            int start = AppointmentTimes.minuteOfDay(appointment);
+            if (!CANCELLED.equals(appointment.getStatus()) && start >= 0) {
+                slots.add(appointment.getId(), start, start + duration(appointment));
+            }
+        }
+        return slots;
+    }
+
+    private static String doctorKey(String doctorId, String date) {
+        return "D|" + doctorId + "|" + date;
+    }
+
+    private static String roomKey(String room, String date) {
+        return "R|" + room + "|" + date;
+    }
+
+    /**
+     * A booking that blocks a requested interval
+     */
+    public static class Conflict {
+        public static final String DOCTOR = "doctor";
+        public static final String ROOM = "room";
+
+        private final String resource;
+        private final int minute;
+
+        public Conflict(String resource, int minute) {
+            this.resource = resource;
+            this.minute = minute;
+        }
+
+        public String getResource() {
+            return resource;
+        }
+
+        public int getMinute() {
+            return minute;
+        }
+    }
+
+    /**
+     * Booked intervals [start, end) of one resource-day, kept sorted by
+     * start in a red-black tree
+     */
+    static class DaySlots {
+        private final TreeMap<Integer, Set<String>> byStart = new TreeMap<>();
+        private final Map<String, int[]> intervalById = new HashMap<>();
+        private final BitSet occupancy = new BitSet(24 * 60);
+        private int longest;
+
+        synchronized void add(String appointmentId, int start, int end) {
+            remove(appointmentId);
+            byStart.computeIfAbsent(start, m -> new HashSet<>()).add(appointmentId);
+            intervalById.put(appointmentId, new int[]{start, end});
+            occupancy.set(start, end);
+            longest = Math.max(longest, end - start);
+        }
+
+        synchronized void remove(String appointmentId) {
+            int[] interval = intervalById.remove(appointmentId);
+            if (interval == null) {
+                return;
+            }
+            Set<String> ids = byStart.get(interval[0]);
+            ids.remove(appointmentId);
+            if (ids.isEmpty()) {
+                byStart.remove(interval[0]);
+            }
+            // Re-mark whatever other bookings still cover the freed minutes
+            occupancy.clear(interval[0], interval[1]);
+            for (Set<String> overlapping : byStart.subMap(interval[0] - longest, true, interval[1], false).values()) {
+                for (String id : overlapping) {
+                    int[] other = intervalById.get(id);
+                    occupancy.set(Math.max(other[0], interval[0]), Math.min(other[1], interval[1]));
+                }
+            }
+        }
+
+        /**
+         * Start minute of a booking overlapping [start - gap, end + gap),
+         * ignoring the booking with id ignoreId, or -1
+         */
+        synchronized int findConflict(int start, int end, int gap, String ignoreId) {
+            int from = start - gap;
+            int to = end + gap;
+            // Only bookings starting at most 'longest' minutes before 'from' can reach into the window
+            for (Map.Entry<Integer, Set<String>> entry : byStart.subMap(from - longest, true, to, false).entrySet()) {
+                for (String id : entry.getValue()) {
+                    if (id.equals(ignoreId)) {
+                        continue;
+                    }
+                    if (intervalById.get(id)[1] > from) {
+                        return entry.getKey();
+                    }
+                }
+            }
+            return -1;
+        }
+
+        synchronized BitSet copyOccupancy() {
+            return (BitSet) occupancy.clone();
+        }
+
+        synchronized List<Integer> findFreeStarts(int dayStart, int dayEnd, int slotLength,
+                int minGapMinutes, BitSet roomOccupancy, int limit) {
+            List<Integer> free = new ArrayList<>();
+            int step = Math.max(slotLength, 1);
+            int length = Math.max(slotLength, 1);
+            int gap = Math.max(minGapMinutes, 0);
+            for (int start = dayStart; start + slotLength <= dayEnd && free.size() < limit; start += step) {
+                int next = occupancy.nextSetBit(Math.max(0, start - gap));
+                int roomNext = roomOccupancy == null ? -1 : roomOccupancy.nextSetBit(start);
+                if ((next < 0 || next >= start + length + gap) && (roomNext < 0 || roomNext >= start + length)) {
+                    free.add(start);
+                }
+            }
+            return free;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.Doctor;
+import com.hendisantika.repository.DoctorRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Finds the earliest free appointment slots across all active doctors of a
+ * specialization, using the doctor and room occupancy bitmaps of
+ * DoctorSlotIndex
+ */
+@Service
+public class FreeSlotService {
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private DoctorSlotIndex doctorSlotIndex;
+
+    @Value("${app.availability.day-start:08:00}")
+    private String dayStart = "08:00";
+
+    @Value("${app.availability.day-end:18:00}")
+    private String dayEnd = "18:00";
+
+    /**
+     * Load the next 90 days of every active doctor into the slot index at
+     * startup, so the first free-slot search does not pay for it
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            List<String> doctorIds = doctorRepository.findByActive(true).stream()
+                    .map(Doctor::getId)
+                    .collect(Collectors.toList());
+            LocalDate today = LocalDate.now();
+            doctorSlotIndex.preload(doctorIds, today, today.plusDays(90));
+        } catch (Exception e) {
+            System.out.println("ℹ️  Slot index warm-up skipped: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Earliest free slots in [from, to] ordered by date, time then doctor
+     */
+    public List<FreeSlot> findFreeSlots(String specialization, LocalDate from, LocalDate to,
+            int slotLength, int limit) {
+        List<Doctor> doctors = doctorRepository.findBySpecialization(specialization).stream()
+                .filter(Doctor::isActive)
+                .filter(d -> d.getWorkingDays() != null && !d.getWorkingDays().isEmpty())
+                .collect(Collectors.toList());
+        List<FreeSlot> slots = new ArrayList<>();
+        if (doctors.isEmpty()) {
+            return slots;
+        }
+
+        LocalDate today = LocalDate.now();
+        LocalDate first = from.isBefore(today) ? today : from;
+        doctorSlotIndex.preload(doctors.stream().map(Doctor::getId).collect(Collectors.toList()),
+                first, to.plusDays(1));
+        // Booking also rejects room conflicts, so the doctors' rooms are checked too
+        List<String> rooms = doctors.stream().map(Doctor::getOfficeLocation)
+                .filter(room -> room != null && !room.isBlank()).distinct().collect(Collectors.toList());
+        if (!rooms.isEmpty()) {
+            doctorSlotIndex.preloadRooms(rooms, first, to.plusDays(1));
+        }
+
+        int start = DoctorSlotIndex.toMinuteOfDay(dayStart);
+        int end = DoctorSlotIndex.toMinuteOfDay(dayEnd);
+        int gap = doctorSlotIndex.getDefaultMinGapMinutes();
+
+        for (LocalDate date = first; !date.isAfter(to) && slots.size() < limit; date = date.plusDays(1)) {
+            String dayName = date.getDayOfWeek().getDisplayName(TextStyle.FULL, Locale.FRENCH);
+            int dayFirstMinute = start;
+            if (date.equals(today)) {
+                // Do not offer slots that already started, aligned on the slot grid
+                int now = LocalTime.now().toSecondOfDay() / 60;
+                while (dayFirstMinute <= now) {
+                    dayFirstMinute += Math.max(slotLength, 1);
+                }
+            }
+
+            List<FreeSlot> daySlots = new ArrayList<>();
+            for (Doctor doctor : doctors) {
+                boolean isWorkingDay = doctor.getWorkingDays().stream()
+                        .anyMatch(day -> day.equalsIgnoreCase(dayName));
+                if (!isWorkingDay) {
+                    continue;
+                }
+                // A doctor never contributes more than the remaining limit on one day
+                for (int minute : doctorSlotIndex.findFreeStarts(doctor.getId(), doctor.getOfficeLocation(),
+                        date.toString(), dayFirstMinute, end, slotLength, gap, limit - slots.size())) {
+                    daySlots.add(new FreeSlot(doctor.getId(), doctor.getFirstName() + " " + doctor.getLastName(),
+                            doctor.getSpecialization(), date.toString(), minute,
+                            DoctorSlotIndex.formatMinuteOfDay(minute)));
+                }
+            }
+
+            daySlots.sort(Comparator.comparingInt(FreeSlot::getMinuteOfDay).thenComparing(FreeSlot::getDoctorId));
+            for (FreeSlot slot : daySlots) {
+                if (slots.size() >= limit) {
+                    break;
+                }
+                slots.add(slot);
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * One free slot of a doctor
+     */
+    public static class FreeSlot {
+        private final String doctorId;
+        private final String doctorName;
+        private final String specialization;
+        private final String date;
+        private final int minuteOfDay;
+        private final String time;
+
+        public FreeSlot(String doctorId, String doctorName, String specialization, String date,
+                int minuteOfDay, String time) {
+            this.doctorId = doctorId;
+            this.doctorName = doctorName;
+            this.specialization = specialization;
+            this.date = date;
+            this.minuteOfDay = minuteOfDay;
+            this.time = time;
+        }
+
+        public String getDoctorId() {
+            return doctorId;
+        }
+
+        public String getDoctorName() {
+            return doctorName;
+        }
+
+        public String getSpecialization() {
+            return specialization;
+        }
+
+        public String getDate() {
+            return date;
+        }
+
+        public int getMinuteOfDay() {
+            return minuteOfDay;
+        }
+
+        public String getTime() {
+            return time;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.hendisantika.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Command-line import mode:
+ * --import-patients=patients.csv and/or --import-doctors=doctors.jsonl
+ * (format guessed from the extension, or forced with --import-format=csv|jsonl)
+ */
+@Component
+public class ImportCommandLineRunner implements ApplicationRunner {
+
+    @Autowired
+    private ImportService importService;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        String format = args.containsOption("import-format") ? args.getOptionValues("import-format").get(0) : null;
+        if (args.containsOption("import-doctors")) {
+            for (String file : args.getOptionValues("import-doctors")) {
+                try (BufferedReader reader = Files.newBufferedReader(Path.of(file), StandardCharsets.UTF_8)) {
+                    report("doctors", file, importService.importDoctors(reader, ImportService.Format.of(format, file)));
+                }
+            }
+        }
+        if (args.containsOption("import-patients")) {
+            for (String file : args.getOptionValues("import-patients")) {
+                try (BufferedReader reader = Files.newBufferedReader(Path.of(file), StandardCharsets.UTF_8)) {
+                    report("patients", file, importService.importPatients(reader, ImportService.Format.of(format, file)));
+                }
+            }
+        }
+    }
+
+    private void report(String kind, String file, ImportService.ImportReport report) {
+        System.out.println("✅ Imported " + kind + " from " + file + ": " + report);
+        for (ImportService.RowError error : report.getErrors()) {
+            System.out.println("   ⚠️  line " + error.getLine() + ": " + error.getMessage());
+        }
+    }
+}
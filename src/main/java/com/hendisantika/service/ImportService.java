@@ -0,0 +1,566 @@
+package com.hendisantika.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hendisantika.entity.Doctor;
+import com.hendisantika.entity.Patient;
+import com.hendisantika.entity.User;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Bulk import of patients and doctors from CSV (header line required) or
+ * JSON lines. Input is parsed line by line; valid rows are buffered into
+ * batches that get their IDs from one sequence reservation and are written
+ * with unordered bulk inserts, followed by the linked user accounts.
+ * Usernames, emails and phones are checked in memory against the existing
+ * data and the rows already accepted.
+ */
+@Service
+public class ImportService {
+
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    public enum Format {
+        CSV, JSONL;
+
+        /**
+         * Explicit format if given, otherwise guessed from the file name
+         */
+        public static Format of(String requested, String filename) {
+            if (requested != null && !requested.isBlank()) {
+                return valueOf(requested.trim().toUpperCase(Locale.ROOT));
+            }
+            String name = filename == null ? "" : filename.toLowerCase(Locale.ROOT);
+            return name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json") ? JSONL : CSV;
+        }
+    }
+
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    @Autowired
+    private SequenceService sequenceService;
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private DirectoryService directoryService;
+
+    @Value("${app.import.batch-size:500}")
+    private int batchSize = 500;
+
+    /**
+     * Import patients; missing usernames default to patient_&lt;firstname&gt;
+     */
+    public ImportReport importPatients(Reader reader, Format format) throws IOException {
+        return run(reader, format, new Target<>(Patient.class, "patient_seq", "P", "patient_", "PATIENT") {
+            @Override
+            Patient map(Map<String, String> row) {
+                Patient patient = new Patient();
+                patient.setFirstName(required(row, "firstName"));
+                patient.setLastName(required(row, "lastName"));
+                patient.setDateOfBirth(row.get("dateOfBirth"));
+                patient.setGender(row.get("gender"));
+                patient.setEmail(row.get("email"));
+                patient.setPhone(required(row, "phone"));
+                patient.setAddress(row.get("address"));
+                patient.setCity(row.get("city"));
+                patient.setPostalCode(row.get("postalCode"));
+                patient.setCountry(row.get("country"));
+                patient.setPassword(row.get("password"));
+                patient.setActive(true);
+                return patient;
+            }
+
+            @Override
+            void assign(Patient patient, String businessId, String now) {
+                patient.setId(new ObjectId().toHexString());
+                patient.setPatientId(businessId);
+                patient.setCreatedAt(now);
+                patient.setUpdatedAt(now);
+            }
+
+            @Override
+            String id(Patient patient) {
+                return patient.getId();
+            }
+
+            @Override
+            String firstName(Patient patient) {
+                return patient.getFirstName();
+            }
+
+            @Override
+            String email(Patient patient) {
+                return patient.getEmail();
+            }
+
+            @Override
+            String phone(Patient patient) {
+                return patient.getPhone();
+            }
+
+            @Override
+            String password(Patient patient) {
+                return patient.getPassword();
+            }
+
+            @Override
+            void link(User user, Patient patient) {
+                user.setPatientId(patient.getPatientId());
+            }
+
+            @Override
+            void indexed(List<Patient> patients) {
+                patients.forEach(searchService::patientSaved);
+                directoryService.patientsSaved(patients);
+            }
+        });
+    }
+
+    /**
+     * Import doctors; missing usernames default to dr_&lt;firstname&gt;.
+     * workingDays is a ';' separated list in CSV or an array in JSON
+     */
+    public ImportReport importDoctors(Reader reader, Format format) throws IOException {
+        return run(reader, format, new Target<>(Doctor.class, "doctor_seq", "D", "dr_", "DOCTOR") {
+            @Override
+            Doctor map(Map<String, String> row) {
+                Doctor doctor = new Doctor();
+                doctor.setFirstName(required(row, "firstName"));
+                doctor.setLastName(required(row, "lastName"));
+                doctor.setSpecialization(required(row, "specialization"));
+                doctor.setEmail(row.get("email"));
+                doctor.setPhone(required(row, "phone"));
+                String workingDays = row.get("workingDays");
+                if (workingDays != null) {
+                    doctor.setWorkingDays(Arrays.stream(workingDays.split(";"))
+                            .map(String::trim).filter(day -> !day.isEmpty()).toList());
+                }
+                doctor.setOfficeLocation(row.get("officeLocation"));
+                doctor.setOfficePhone(row.get("officePhone"));
+                doctor.setPassword(row.get("password"));
+                doctor.setActive(true);
+                return doctor;
+            }
+
+            @Override
+            void assign(Doctor doctor, String businessId, String now) {
+                doctor.setId(new ObjectId().toHexString());
+                doctor.setDoctorId(businessId);
+                doctor.setCreatedAt(now);
+                doctor.setUpdatedAt(now);
+            }
+
+            @Override
+            String id(Doctor doctor) {
+                return doctor.getId();
+            }
+
+            @Override
+            String firstName(Doctor doctor) {
+                return doctor.getFirstName();
+            }
+
+            @Override
+            String email(Doctor doctor) {
+                return doctor.getEmail();
+            }
+
+            @Override
+            String phone(Doctor doctor) {
+                return doctor.getPhone();
+            }
+
+            @Override
+            String password(Doctor doctor) {
+                return doctor.getPassword();
+            }
+
+            @Override
+            void link(User user, Doctor doctor) {
+                user.setDoctorId(doctor.getDoctorId());
+            }
+
+            @Override
+            void indexed(List<Doctor> doctors) {
+                doctors.forEach(searchService::doctorSaved);
+                directoryService.doctorsSaved(doctors);
+            }
+        });
+    }
+
+    private <T> ImportReport run(Reader reader, Format format, Target<T> target) throws IOException {
+        long start = System.nanoTime();
+        ImportReport report = new ImportReport();
+        Set<String> usernames = loadValues(User.class, "username", User::getUsername);
+        Set<String> emails = loadValues(User.class, "email", User::getEmail);
+        Set<String> phones = loadValues(target.type, "phone", target::phone);
+
+        BufferedReader in = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        List<String> header = null;
+        List<Pending<T>> batch = new ArrayList<>(batchSize);
+        String line;
+        int lineNumber = 0;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == Format.CSV && header == null) {
+                header = parseCsvLine(line);
+                continue;
+            }
+            report.rowsRead++;
+            try {
+                Map<String, String> row = format == Format.CSV ? toRow(header, parseCsvLine(line)) : parseJsonLine(line);
+                T entity = target.map(row);
+
+                String phone = target.phone(entity);
+                if (!phones.add(phone)) {
+                    throw new IllegalArgumentException("Le téléphone '" + phone + "' existe déjà");
+                }
+                String email = blankToNull(target.email(entity));
+                if (email != null && !emails.add(email)) {
+                    phones.remove(phone);
+                    throw new IllegalArgumentException("L'email '" + email + "' existe déjà");
+                }
+                String username = claimUsername(row.get("username"), target, entity, usernames);
+                if (username == null) {
+                    phones.remove(phone);
+                    if (email != null) {
+                        emails.remove(email);
+                    }
+                    throw new IllegalArgumentException("Le nom d'utilisateur '" + row.get("username") + "' existe déjà");
+                }
+                batch.add(new Pending<>(lineNumber, entity, username));
+            } catch (IllegalArgumentException e) {
+                report.addError(lineNumber, e.getMessage());
+            }
+            if (batch.size() >= batchSize) {
+                flush(batch, target, report);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            flush(batch, target, report);
+        }
+
+        report.elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return report;
+    }
+
+    /**
+     * Insert one batch: entities first, then the accounts of the rows that
+     * made it; entities whose account failed are removed again
+     */
+    private <T> void flush(List<Pending<T>> batch, Target<T> target, ImportReport report) {
+        long first = sequenceService.reserveRange(target.seqName, batch.size());
+        String now = String.valueOf(System.currentTimeMillis());
+        List<T> entities = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            T entity = batch.get(i).entity;
+            target.assign(entity, SequenceService.format(target.prefix, first + i), now);
+            entities.add(entity);
+        }
+
+        Set<Integer> failed = insert(target.type, entities, batch, report, "");
+        List<Pending<T>> inserted = new ArrayList<>(batch.size());
+        List<User> users = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            if (failed.contains(i)) {
+                continue;
+            }
+            Pending<T> pending = batch.get(i);
+            User user = new User();
+            user.setUsername(pending.username);
+            user.setEmail(blankToNull(target.email(pending.entity)));
+            user.setPassword(target.password(pending.entity));
+            user.setRole(target.role);
+            user.setActive(true);
+            target.link(user, pending.entity);
+            inserted.add(pending);
+            users.add(user);
+        }
+        if (!users.isEmpty()) {
+            Set<Integer> noAccount = insert(User.class, users, inserted, report, "Compte utilisateur non créé : ");
+            if (!noAccount.isEmpty()) {
+                // A patient or doctor without its login account is rejected as a whole
+                List<String> ids = new ArrayList<>(noAccount.size());
+                List<Pending<T>> kept = new ArrayList<>(inserted.size());
+                for (int i = 0; i < inserted.size(); i++) {
+                    if (noAccount.contains(i)) {
+                        ids.add(target.id(inserted.get(i).entity));
+                    } else {
+                        kept.add(inserted.get(i));
+                    }
+                }
+                mongoOperations.remove(new Query(Criteria.where("_id").in(ids)), target.type);
+                inserted = kept;
+            }
+        }
+
+        target.indexed(inserted.stream().map(Pending::entity).toList());
+        report.imported += inserted.size();
+    }
+
+    /**
+     * Unordered bulk insert; per-document failures become row errors
+     * @return positions in documents that were not inserted
+     */
+    private <D, T> Set<Integer> insert(Class<D> type, List<D> documents, List<Pending<T>> rows,
+            ImportReport report, String messagePrefix) {
+        BulkOperations operations = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, type);
+        operations.insert(documents);
+        try {
+            operations.execute();
+            return Set.of();
+        } catch (BulkOperationException e) {
+            Set<Integer> failed = new HashSet<>();
+            for (BulkWriteError error : e.getErrors()) {
+                failed.add(error.getIndex());
+                report.addError(rows.get(error.getIndex()).lineNumber, messagePrefix + error.getMessage());
+            }
+            return failed;
+        }
+    }
+
+    /**
+     * Explicit usernames must be free; generated ones get a numeric suffix
+     * @return the claimed username, or null if an explicit one is taken
+     */
+    private <T> String claimUsername(String requested, Target<T> target, T entity, Set<String> usernames) {
+        if (requested != null) {
+            String username = requested.startsWith(target.usernamePrefix) ? requested : target.usernamePrefix + requested;
+            return usernames.add(username) ? username : null;
+        }
+        String base = target.usernamePrefix + target.firstName(entity).toLowerCase(Locale.ROOT).replaceAll("\\s+", "");
+        String username = base;
+        for (int suffix = 2; !usernames.add(username); suffix++) {
+            username = base + suffix;
+        }
+        return username;
+    }
+
+    private <D> Set<String> loadValues(Class<D> type, String field, Function<D, String> getter) {
+        Query query = new Query();
+        query.fields().include(field);
+        Set<String> values = new HashSet<>();
+        try (Stream<D> stream = mongoOperations.stream(query, type)) {
+            stream.map(getter).filter(value -> value != null && !value.isBlank()).forEach(values::add);
+        }
+        return values;
+    }
+
+    private static Map<String, String> toRow(List<String> header, List<String> values) {
+        if (values.size() > header.size()) {
+            throw new IllegalArgumentException("Trop de colonnes : " + values.size() + " pour " + header.size());
+        }
+        Map<String, String> row = new LinkedHashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            String value = blankToNull(values.get(i));
+            if (value != null) {
+                row.put(header.get(i).trim(), value);
+            }
+        }
+        return row;
+    }
+
+    private static Map<String, String> parseJsonLine(String line) {
+        Map<?, ?> json;
+        try {
+            json = JSON.readValue(line, Map.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("JSON invalide : " + e.getOriginalMessage());
+        }
+        Map<String, String> row = new LinkedHashMap<>();
+        json.forEach((key, value) -> {
+            String text = value instanceof Collection<?> list
+                    ? String.join(";", list.stream().map(String::valueOf).toList())
+                    : value == null ? null : blankToNull(String.valueOf(value));
+            if (text != null) {
+                row.put(String.valueOf(key), text);
+            }
+        });
+        return row;
+    }
+
+    /**
+     * Split one CSV line; fields may be double-quoted with "" as an escaped quote
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Guillemet non fermé");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String required(Map<String, String> row, String column) {
+        String value = row.get(column);
+        if (value == null) {
+            throw new IllegalArgumentException("Colonne obligatoire manquante : " + column);
+        }
+        return value;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    /**
+     * Per-entity mapping used by the shared pipeline
+     */
+    private abstract static class Target<T> {
+        private final Class<T> type;
+        private final String seqName;
+        private final String prefix;
+        private final String usernamePrefix;
+        private final String role;
+
+        Target(Class<T> type, String seqName, String prefix, String usernamePrefix, String role) {
+            this.type = type;
+            this.seqName = seqName;
+            this.prefix = prefix;
+            this.usernamePrefix = usernamePrefix;
+            this.role = role;
+        }
+
+        abstract T map(Map<String, String> row);
+
+        abstract void assign(T entity, String businessId, String now);
+
+        abstract String id(T entity);
+
+        abstract String firstName(T entity);
+
+        abstract String email(T entity);
+
+        abstract String phone(T entity);
+
+        abstract String password(T entity);
+
+        abstract void link(User user, T entity);
+
+        abstract void indexed(List<T> entities);
+    }
+
+    private record Pending<T>(int lineNumber, T entity, String username) {
+    }
+
+    /**
+     * Outcome of one import: counts, throughput and the first row errors
+     */
+    public static class ImportReport {
+        private int rowsRead;
+        private int imported;
+        private int errorCount;
+        private long elapsedMillis;
+        private final List<RowError> errors = new ArrayList<>();
+
+        private void addError(int line, String message) {
+            errorCount++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RowError(line, message));
+            }
+        }
+
+        public int getRowsRead() {
+            return rowsRead;
+        }
+
+        public int getImported() {
+            return imported;
+        }
+
+        public int getErrorCount() {
+            return errorCount;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public List<RowError> getErrors() {
+            return errors;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedMillis == 0 ? rowsRead : rowsRead * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return imported + "/" + rowsRead + " rows imported in " + elapsedMillis + " ms ("
+                    + Math.round(getRowsPerSecond()) + " rows/s), " + errorCount + " errors";
+        }
+    }
+
+    public static class RowError {
+        private final int line;
+        private final String message;
+
+        public RowError(int line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.hendisantika.service;
+
+import com.hendisantika.controller.CalendarController;
+import com.hendisantika.entity.Appointment;
+import com.hendisantika.entity.AppointmentEvent;
+import com.hendisantika.entity.AppointmentRequest;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Server-Sent Events hub pushing appointment deltas and dashboard counters
+ * to subscribed users, scoped by role / doctorId / patientId.
+ * Each connection has a bounded buffer drained on a virtual thread; an idle
+ * connection holds no thread at all.
+ */
+@Service
+public class LiveUpdateService implements AppointmentEventListener {
+
+    public static final String EVENT_APPOINTMENT = "appointment";
+    public static final String EVENT_STATS = "stats";
+    public static final String EVENT_RESYNC = "resync";
+
+    @Autowired
+    private DashboardStatsService dashboardStatsService;
+
+    @Value("${app.live.buffer-size:32}")
+    private int bufferSize = 32;
+
+    @Value("${app.live.timeout-minutes:30}")
+    private long timeoutMinutes = 30;
+
+    @Value("${app.live.heartbeat-seconds:25}")
+    private long heartbeatSeconds = 25;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofVirtual().name("live-heartbeat").factory());
+
+    private final AtomicBoolean heartbeatStarted = new AtomicBoolean();
+
+    /**
+     * Open a stream for the given user
+     */
+    public SseEmitter subscribe(UserPrincipal principal) {
+        startHeartbeat();
+        SseEmitter emitter = new SseEmitter(TimeUnit.MINUTES.toMillis(timeoutMinutes));
+        Subscriber subscriber = new Subscriber(principal, emitter, new ArrayBlockingQueue<>(bufferSize));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+
+        // Current counters first, deltas afterwards
+        subscriber.offerStats(new StatsSnapshot());
+        schedule(subscriber);
+        return emitter;
+    }
+
+    /**
+     * Push an appointment change ("saved" or "deleted") to the users who can
+     * see it
+     */
+    public void publishAppointment(String action, Appointment appointment) {
+        if (appointment == null) {
+            return;
+        }
+        Map<String, Object> delta = new HashMap<>();
+        delta.put("action", action);
+        delta.put("event", CalendarController.CalendarEvent.from(appointment));
+        StatsSnapshot stats = new StatsSnapshot();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.canSee(appointment.getDoctorId(), appointment.getPatientId())) {
+                subscriber.offer(new LiveEvent(EVENT_APPOINTMENT, delta));
+                subscriber.offerStats(stats);
+                schedule(subscriber);
+            }
+        }
+    }
+
+    /**
+     * Push refreshed counters after an appointment request change
+     */
+    public void publishRequest(AppointmentRequest request) {
+        if (request == null) {
+            return;
+        }
+        StatsSnapshot stats = new StatsSnapshot();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.canSee(request.getDoctorId(), request.getPatientId())) {
+                subscriber.offerStats(stats);
+                schedule(subscriber);
+            }
+        }
+    }
+
+    /**
+     * Changes arrive from the outbox; a redelivered event only repeats a delta
+     */
+    @Override
+    public void onEvent(AppointmentEvent event) {
+        if (event.getAppointment() != null) {
+            publishAppointment(AppointmentEvent.DELETED.equals(event.getType()) ? "deleted" : "saved",
+                    event.getAppointment());
+        } else {
+            publishRequest(event.getRequest());
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        senders.shutdownNow();
+        subscribers.forEach(s -> s.emitter.complete());
+        subscribers.clear();
+    }
+
+    private void startHeartbeat() {
+        if (heartbeatStarted.compareAndSet(false, true)) {
+            heartbeat.scheduleAtFixedRate(() -> {
+                for (Subscriber subscriber : subscribers) {
+                    subscriber.heartbeatDue = true;
+                    schedule(subscriber);
+                }
+            }, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Start draining a subscriber's buffer unless a sender is already on it
+     */
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        do {
+            try {
+                LiveEvent event;
+                while ((event = subscriber.queue.poll()) != null) {
+                    subscriber.emitter.send(SseEmitter.event().name(event.name).data(event.data));
+                }
+                StatsSnapshot stats = subscriber.statsPending.getAndSet(null);
+                if (stats != null) {
+                    subscriber.emitter.send(SseEmitter.event().name(EVENT_STATS)
+                            .data(stats.countsFor(subscriber.principal)));
+                }
+                if (subscriber.heartbeatDue) {
+                    subscriber.heartbeatDue = false;
+                    subscriber.emitter.send(SseEmitter.event().comment("ping"));
+                }
+            } catch (Exception e) {
+                // Closed connection or counters that could not be built: only this stream is dropped
+                subscribers.remove(subscriber);
+                subscriber.emitter.completeWithError(e);
+                return;
+            } finally {
+                subscriber.draining.set(false);
+            }
+            // Re-check so an event offered while we were finishing is not stranded
+        } while (subscriber.hasWork() && subscriber.draining.compareAndSet(false, true));
+    }
+
+    /**
+     * One open stream
+     */
+    private static class Subscriber {
+        private final UserPrincipal principal;
+        private final SseEmitter emitter;
+        private final BlockingQueue<LiveEvent> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        // Counters are coalesced: whatever the number of changes, the latest ones are sent once
+        private final AtomicReference<StatsSnapshot> statsPending = new AtomicReference<>();
+        private volatile boolean heartbeatDue;
+
+        private Subscriber(UserPrincipal principal, SseEmitter emitter, BlockingQueue<LiveEvent> queue) {
+            this.principal = principal;
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+
+        private boolean canSee(String doctorId, String patientId) {
+            if (principal.isAdmin()) {
+                return true;
+            }
+            if (principal.isDoctor()) {
+                return principal.getDoctorId() != null && principal.getDoctorId().equals(doctorId);
+            }
+            return principal.getPatientId() != null && principal.getPatientId().equals(patientId);
+        }
+
+        private void offer(LiveEvent event) {
+            if (!queue.offer(event)) {
+                // Buffer full: drop the backlog and ask the client to refetch
+                queue.clear();
+                queue.offer(new LiveEvent(EVENT_RESYNC, Map.of()));
+            }
+        }
+
+        private void offerStats(StatsSnapshot stats) {
+            statsPending.set(stats);
+        }
+
+        private boolean hasWork() {
+            return !queue.isEmpty() || statsPending.get() != null || heartbeatDue;
+        }
+    }
+
+    /**
+     * Counters after one change, built once per scope (role, and doctorId or
+     * patientId) by the first sender that needs them and shared with every
+     * other stream of the same scope
+     */
+    private class StatsSnapshot {
+        private final Map<String, Map<String, Object>> byScope = new ConcurrentHashMap<>();
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private Map<String, Object> countsFor(UserPrincipal principal) {
+            String scope = scopeOf(principal);
+            Map<String, Object> counts = byScope.get(scope);
+            if (counts != null) {
+                return counts;
+            }
+            // A lock rather than computeIfAbsent(): the counters take MongoDB round trips
+            lock.lock();
+            try {
+                counts = byScope.get(scope);
+                if (counts == null) {
+                    counts = dashboardStatsService.buildCounts(principal);
+                    byScope.put(scope, counts);
+                }
+                return counts;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private static String scopeOf(UserPrincipal principal) {
+            if (principal.isDoctor()) {
+                return "DOCTOR|" + principal.getDoctorId();
+            }
+            if (principal.isPatient()) {
+                return "PATIENT|" + principal.getPatientId();
+            }
+            return String.valueOf(principal.getRole());
+        }
+    }
+
+    private static class LiveEvent {
+        private final String name;
+        private final Object data;
+
+        private LiveEvent(String name, Object data) {
+            this.name = name;
+            this.data = data;
+        }
+    }
+}
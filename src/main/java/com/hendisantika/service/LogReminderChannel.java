@@ -0,0 +1,69 @@
+package com.hendisantika.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stand-in reminder channel: appends one line per reminder to
+ * app.reminders.log-file, or prints it when no file is set
+ */
+@Component
+public class LogReminderChannel implements ReminderChannel {
+
+    @Value("${app.reminders.log-file:}")
+    private String logFile;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    @Override
+    public String getName() {
+        return "log";
+    }
+
+    @Override
+    public Set<String> send(List<Message> messages) {
+        StringBuilder lines = new StringBuilder();
+        for (Message message : messages) {
+            lines.append(format(message)).append(System.lineSeparator());
+        }
+        if (logFile == null || logFile.isBlank()) {
+            System.out.print(lines);
+            return Set.of();
+        }
+        writeLock.lock();
+        try {
+            Path path = Path.of(logFile);
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(lines.toString());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writeLock.unlock();
+        }
+        return Set.of();
+    }
+
+    static String format(Message message) {
+        return "📅 Rappel " + message.getId() + " -> " + message.getPatientName()
+                + " <" + message.getEmail() + ", " + message.getPhone() + ">: rendez-vous "
+                + message.getAppointmentId() + " le " + message.getDate() + " à " + message.getTime()
+                + " avec " + message.getDoctorName()
+                + (message.getRoom() == null ? "" : " (" + message.getRoom() + ")");
+    }
+}
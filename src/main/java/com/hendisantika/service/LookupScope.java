@@ -0,0 +1,109 @@
+package com.hendisantika.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * Runs the independent blocking lookups of one request concurrently, each
+ * on its own virtual thread. Used like StructuredTaskScope.ShutdownOnFailure
+ * (still a preview API in Java 21): fork the subtasks inside a
+ * try-with-resources block, join(), then read the results. The first
+ * failure cancels the other subtasks and is rethrown by join(), and no
+ * subtask outlives the block.
+ */
+public final class LookupScope implements AutoCloseable {
+
+    private final BlockingQueue<Future<?>> completed = new LinkedBlockingQueue<>();
+    private final List<Future<?>> forked = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private boolean joined;
+
+    /**
+     * Start a subtask on a new virtual thread; its result can be read once
+     * join() has returned
+     */
+    public <T> Supplier<T> fork(Callable<T> task) {
+        if (joined) {
+            throw new IllegalStateException("Already joined");
+        }
+        FutureTask<T> future = new FutureTask<>(task) {
+            @Override
+            protected void done() {
+                completed.add(this);
+            }
+        };
+        forked.add(future);
+        threads.add(Thread.ofVirtual().start(future));
+        return () -> {
+            if (!joined) {
+                throw new IllegalStateException("join() has not been called");
+            }
+            return future.resultNow();
+        };
+    }
+
+    /**
+     * Wait for every subtask, in completion order. The first failure
+     * cancels the subtasks still running and is rethrown (unchecked
+     * exceptions as is).
+     */
+    public void join() {
+        try {
+            for (int remaining = forked.size(); remaining > 0; remaining--) {
+                Future<?> done = completed.take();
+                try {
+                    done.get();
+                } catch (ExecutionException e) {
+                    cancelAll();
+                    if (e.getCause() instanceof RuntimeException runtime) {
+                        throw runtime;
+                    }
+                    if (e.getCause() instanceof Error error) {
+                        throw error;
+                    }
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            joined = true;
+        } catch (InterruptedException e) {
+            cancelAll();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for lookups", e);
+        }
+    }
+
+    /**
+     * Cancel whatever is still running and wait for the subtask threads to end
+     */
+    @Override
+    public void close() {
+        cancelAll();
+        boolean interrupted = false;
+        for (Thread thread : threads) {
+            while (true) {
+                try {
+                    thread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void cancelAll() {
+        for (Future<?> future : forked) {
+            future.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.Appointment;
+import com.hendisantika.entity.AppointmentRequest;
+import com.hendisantika.entity.Doctor;
+import com.hendisantika.entity.Patient;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Keeps the doctor / patient name copies stored on appointments
+ * (patientName, doctorName, doctorSpecialization) and appointment requests
+ * (patientName, doctorName) in line with the doctor and patient documents.
+ * Renames are queued in memory and applied by a background worker: each
+ * batch coalesces the queued changes per doctor / patient and rewrites the
+ * stale copies with version-checked unordered bulks, recording an UPDATED
+ * outbox event per document (search index, live streams). Copies are
+ * eventually consistent; lag and batch size are exposed by getStats().
+ */
+@Service
+public class NamePropagationService {
+
+    private static final int PAGE_SIZE = 500;
+
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    @Autowired
+    private AppointmentChangeService appointmentChangeService;
+
+    @Value("${app.names.batch-size:200}")
+    private int batchSize = 200;
+
+    @Value("${app.names.retry-millis:1000}")
+    private long retryMillis = 1000;
+
+    private final BlockingQueue<NameChange> queue = new LinkedBlockingQueue<>();
+    private volatile Thread worker;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong documentsUpdated = new AtomicLong();
+    private final AtomicLong totalLagMillis = new AtomicLong();
+    private volatile long lastLagMillis;
+    private volatile long maxLagMillis;
+    private volatile int lastBatchSize;
+    private volatile int maxBatchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        worker = Thread.ofVirtual().name("name-propagation").start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread current = worker;
+        worker = null;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    /**
+     * A doctor was saved; previous is its state before the write. Nothing is
+     * queued unless the name or the specialization changed.
+     */
+    public void doctorSaved(Doctor previous, Doctor saved) {
+        if (previous == null || saved.getId() == null) {
+            return;
+        }
+        String name = fullName(saved.getFirstName(), saved.getLastName());
+        if (!name.equals(fullName(previous.getFirstName(), previous.getLastName()))
+                || !Objects.equals(previous.getSpecialization(), saved.getSpecialization())) {
+            enqueue(new NameChange(NameChange.DOCTOR, saved.getId(), saved.getDoctorId(), name,
+                    saved.getSpecialization()));
+        }
+    }
+
+    /**
+     * A patient was saved; previous is its state before the write
+     */
+    public void patientSaved(Patient previous, Patient saved) {
+        if (previous == null || saved.getId() == null) {
+            return;
+        }
+        String name = fullName(saved.getFirstName(), saved.getLastName());
+        if (!name.equals(fullName(previous.getFirstName(), previous.getLastName()))) {
+            enqueue(new NameChange(NameChange.PATIENT, saved.getId(), saved.getPatientId(), name, null));
+        }
+    }
+
+    /**
+     * Queue depth, lag (enqueue to write, in ms) and batch size counters
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long appliedCount = applied.get();
+        stats.put("queued", queue.size());
+        stats.put("enqueued", enqueued.get());
+        stats.put("applied", appliedCount);
+        stats.put("batches", batches.get());
+        stats.put("failures", failures.get());
+        stats.put("documentsUpdated", documentsUpdated.get());
+        stats.put("lastLagMillis", lastLagMillis);
+        stats.put("maxLagMillis", maxLagMillis);
+        stats.put("avgLagMillis", appliedCount == 0 ? 0 : totalLagMillis.get() / appliedCount);
+        stats.put("lastBatchSize", lastBatchSize);
+        stats.put("maxBatchSize", maxBatchSize);
+        stats.put("running", worker != null);
+        return stats;
+    }
+
+    private void enqueue(NameChange change) {
+        queue.add(change);
+        enqueued.incrementAndGet();
+    }
+
+    private void run() {
+        List<NameChange> batch = new ArrayList<>();
+        while (worker != null) {
+            try {
+                if (batch.isEmpty()) {
+                    batch.add(queue.take());
+                }
+                queue.drainTo(batch, Math.max(0, batchSize - batch.size()));
+                apply(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                failures.incrementAndGet();
+                System.out.println("⚠️  Name propagation batch failed, retrying: " + e.getMessage());
+                try {
+                    Thread.sleep(retryMillis); // the failed batch is kept and retried with what queued meanwhile
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Write one batch; the latest change per doctor / patient wins
+     */
+    void apply(List<NameChange> batch) {
+        // Appointments and requests reference a doctor / patient by either identifier
+        Map<String, NameChange> doctors = new HashMap<>();
+        Map<String, NameChange> patients = new HashMap<>();
+        for (NameChange change : batch) {
+            for (String id : change.ids()) {
+                (NameChange.DOCTOR.equals(change.type) ? doctors : patients).put(id, change);
+            }
+        }
+
+        // Only documents whose copy differs are rewritten
+        List<Criteria> staleAppointments = new ArrayList<>();
+        List<Criteria> staleRequests = new ArrayList<>();
+        for (NameChange change : new LinkedHashSet<>(doctors.values())) {
+            staleAppointments.add(Criteria.where("doctorId").in(change.ids()).orOperator(
+                    Criteria.where("doctorName").ne(change.name),
+                    Criteria.where("doctorSpecialization").ne(change.specialization)));
+            staleRequests.add(Criteria.where("doctorId").in(change.ids()).and("doctorName").ne(change.name));
+        }
+        for (NameChange change : new LinkedHashSet<>(patients.values())) {
+            staleAppointments.add(Criteria.where("patientId").in(change.ids()).and("patientName").ne(change.name));
+            staleRequests.add(Criteria.where("patientId").in(change.ids()).and("patientName").ne(change.name));
+        }
+
+        long updated = rewrite(Appointment.class, new Criteria().orOperator(staleAppointments), appointment -> {
+            Update update = new Update();
+            NameChange doctor = doctors.get(appointment.getDoctorId());
+            if (doctor != null) {
+                update.set("doctorName", doctor.name).set("doctorSpecialization", doctor.specialization);
+            }
+            NameChange patient = patients.get(appointment.getPatientId());
+            if (patient != null) {
+                update.set("patientName", patient.name);
+            }
+            return update;
+        }, Appointment::getId, Appointment::getVersion, appointmentChangeService::appointmentsUpdated);
+        updated += rewrite(AppointmentRequest.class, new Criteria().orOperator(staleRequests), request -> {
+            Update update = new Update();
+            NameChange doctor = doctors.get(request.getDoctorId());
+            if (doctor != null) {
+                update.set("doctorName", doctor.name);
+            }
+            NameChange patient = patients.get(request.getPatientId());
+            if (patient != null) {
+                update.set("patientName", patient.name);
+            }
+            return update;
+        }, AppointmentRequest::getId, AppointmentRequest::getVersion, appointmentChangeService::requestsUpdated);
+
+        long now = System.currentTimeMillis();
+        for (NameChange change : batch) {
+            long lag = now - change.enqueuedAt;
+            totalLagMillis.addAndGet(lag);
+            lastLagMillis = lag;
+            maxLagMillis = Math.max(maxLagMillis, lag);
+        }
+        applied.addAndGet(batch.size());
+        batches.incrementAndGet();
+        documentsUpdated.addAndGet(updated);
+        lastBatchSize = batch.size();
+        maxBatchSize = Math.max(maxBatchSize, batch.size());
+    }
+
+    /**
+     * Rewrite the stale documents a page at a time. Each one is updated only
+     * if its version is still the one read, with the version incremented, so
+     * an edit form opened before the rename fails on save instead of putting
+     * the old name back. The documents changed are read back and recorded in
+     * the outbox in the same transaction, which also re-indexes them.
+     * @return number of documents rewritten
+     */
+    private <T> long rewrite(Class<T> type, Criteria stale, Function<T, Update> rename, Function<T, String> id,
+            Function<T, Long> version, Consumer<List<T>> changed) {
+        long total = 0;
+        while (true) {
+            List<T> page = mongoOperations.find(new Query(stale).limit(PAGE_SIZE), type);
+            if (page.isEmpty()) {
+                return total;
+            }
+            long count = appointmentChangeService.inTransaction(() -> {
+                BulkOperations operations = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, type);
+                Map<String, Long> expected = new HashMap<>();
+                for (T document : page) {
+                    Long read = version.apply(document);
+                    operations.updateOne(new Query(Criteria.where("_id").is(id.apply(document)).and("version").is(read)),
+                            rename.apply(document).inc("version", 1));
+                    expected.put(id.apply(document), read == null ? 1 : read + 1);
+                }
+                operations.execute();
+                // Saved in between by someone else: still stale, picked up by the next page
+                List<T> rewritten = mongoOperations.find(new Query(Criteria.where("_id").in(expected.keySet())
+                        .norOperator(stale)), type).stream()
+                        .filter(document -> expected.get(id.apply(document)).equals(version.apply(document)))
+                        .toList();
+                changed.accept(rewritten);
+                return (long) rewritten.size();
+            });
+            if (count == 0) {
+                return total; // every document of the page is being saved concurrently; retried with the next rename
+            }
+            total += count;
+        }
+    }
+
+    private static String fullName(String firstName, String lastName) {
+        return firstName + " " + lastName;
+    }
+
+    static class NameChange {
+        static final String DOCTOR = "DOCTOR";
+        static final String PATIENT = "PATIENT";
+
+        private final String type;
+        private final String id;
+        private final String businessId; // D00001 / P00001-style id, may be null
+        private final String name;
+        private final String specialization;
+        private final long enqueuedAt = System.currentTimeMillis();
+
+        NameChange(String type, String id, String businessId, String name, String specialization) {
+            this.type = type;
+            this.id = id;
+            this.businessId = businessId;
+            this.name = name;
+            this.specialization = specialization;
+        }
+
+        private List<String> ids() {
+            return businessId == null || businessId.equals(id) ? List.of(id) : List.of(id, businessId);
+        }
+    }
+}
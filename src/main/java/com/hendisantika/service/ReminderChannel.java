@@ -0,0 +1,87 @@
+package com.hendisantika.service;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Delivery channel for appointment reminders (e-mail, SMS, ...). The
+ * channel named by app.reminders.channel is used; LogReminderChannel is the
+ * local stand-in.
+ */
+public interface ReminderChannel {
+
+    String getName();
+
+    /**
+     * Send one batch
+     * @return ids of the messages that could not be sent
+     */
+    Set<String> send(List<Message> messages);
+
+    final class Message {
+        private final String id;
+        private final String appointmentId;
+        private final String patientName;
+        private final String email;
+        private final String phone;
+        private final String doctorName;
+        private final String date;
+        private final String time;
+        private final String room;
+        private final int offsetMinutes;
+
+        public Message(String id, String appointmentId, String patientName, String email, String phone,
+                String doctorName, String date, String time, String room, int offsetMinutes) {
+            this.id = id;
+            this.appointmentId = appointmentId;
+            this.patientName = patientName;
+            this.email = email;
+            this.phone = phone;
+            this.doctorName = doctorName;
+            this.date = date;
+            this.time = time;
+            this.room = room;
+            this.offsetMinutes = offsetMinutes;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getAppointmentId() {
+            return appointmentId;
+        }
+
+        public String getPatientName() {
+            return patientName;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public String getPhone() {
+            return phone;
+        }
+
+        public String getDoctorName() {
+            return doctorName;
+        }
+
+        public String getDate() {
+            return date;
+        }
+
+        public String getTime() {
+            return time;
+        }
+
+        public String getRoom() {
+            return room;
+        }
+
+        public int getOffsetMinutes() {
+            return offsetMinutes;
+        }
+    }
+}
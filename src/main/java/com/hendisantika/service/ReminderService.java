@@ -0,0 +1,406 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.Appointment;
+import com.hendisantika.entity.AppointmentEvent;
+import com.hendisantika.entity.Patient;
+import com.hendisantika.entity.Reminder;
+import com.mongodb.bulk.BulkWriteError;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Sends reminders before scheduled appointments, app.reminders.offsets-minutes
+ * ahead (24 h and 2 h by default). Upcoming appointments are loaded by an
+ * indexed status / startAt range query that only covers the due times not
+ * loaded yet, and planned in a timing wheel; bookings, cancellations and
+ * reschedules inside the loaded range reach the wheel as outbox events.
+ * Due reminders are re-checked against the appointment, claimed by an
+ * insert into appointment_reminders (whose unique id makes a second send
+ * impossible, across restarts and nodes) and sent through the configured
+ * ReminderChannel, spaced at app.reminders.rate-per-second. A failed send
+ * releases its claim and is planned again with exponential backoff, up to
+ * app.reminders.max-attempts, before it is recorded as FAILED.
+ */
+@Service
+public class ReminderService implements AppointmentEventListener {
+
+    private static final String SCHEDULED = "Planifié";
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    @Autowired(required = false)
+    private List<ReminderChannel> channels = List.of();
+
+    @Value("${app.reminders.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.reminders.offsets-minutes:1440,120}")
+    private int[] offsetsMinutes = {1440, 120};
+
+    @Value("${app.reminders.horizon-minutes:60}")
+    private long horizonMinutes = 60;
+
+    @Value("${app.reminders.tick-seconds:30}")
+    private long tickSeconds = 30;
+
+    @Value("${app.reminders.grace-minutes:30}")
+    private long graceMinutes = 30;
+
+    @Value("${app.reminders.batch-size:100}")
+    private int batchSize = 100;
+
+    @Value("${app.reminders.rate-per-second:20}")
+    private double ratePerSecond = 20;
+
+    @Value("${app.reminders.retry-seconds:60}")
+    private long retrySeconds = 60;
+
+    @Value("${app.reminders.max-attempts:5}")
+    private int maxAttempts = 5;
+
+    @Value("${app.reminders.channel:log}")
+    private String channelName = "log";
+
+    private volatile ReminderWheel wheel;
+    private volatile ReminderChannel channel;
+    private volatile Thread worker;
+    // Due times below this are in the wheel (or were sent); later ones come with the next scan
+    private volatile long loadedUntil;
+    private long nextSendAt;
+
+    private final AtomicLong planned = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong stale = new AtomicLong();
+    private final AtomicLong alreadySent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private volatile long lastScanMillis;
+    private volatile int lastBatchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        channel = channels.stream().filter(c -> c.getName().equals(channelName)).findFirst()
+                .orElseThrow(() -> new IllegalStateException("No reminder channel named " + channelName));
+        long now = System.currentTimeMillis();
+        long tick = TimeUnit.SECONDS.toMillis(tickSeconds);
+        // Reminders missed while the application was down are still sent within the grace period
+        loadedUntil = now - TimeUnit.MINUTES.toMillis(graceMinutes);
+        wheel = new ReminderWheel(tick, (int) (TimeUnit.MINUTES.toMillis(horizonMinutes) / tick) + 2, now);
+        worker = Thread.ofVirtual().name("appointment-reminders").start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread current = worker;
+        worker = null;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    /**
+     * Re-plan the reminders of a changed appointment whose due times are
+     * already loaded; later ones are picked up by the scan
+     */
+    @Override
+    public void onEvent(AppointmentEvent event) {
+        ReminderWheel current = wheel;
+        Appointment appointment = event.getAppointment();
+        if (current == null || appointment == null) {
+            return;
+        }
+        current.cancel(appointment.getId());
+        if (AppointmentEvent.DELETED.equals(event.getType()) || !SCHEDULED.equals(appointment.getStatus())) {
+            return;
+        }
+        Instant startAt = appointment.getStartAt() != null ? appointment.getStartAt()
+                : AppointmentTimes.startAt(appointment.getDate(), appointment.getTime());
+        if (startAt == null) {
+            return;
+        }
+        long earliest = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(graceMinutes);
+        for (int offset : offsetsMinutes) {
+            ReminderWheel.Entry entry = new ReminderWheel.Entry(appointment.getId(), startAt.toEpochMilli(), offset);
+            if (entry.getDueAt() >= earliest && entry.getDueAt() < loadedUntil && current.schedule(entry)) {
+                planned.incrementAndGet();
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        ReminderWheel current = wheel;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("channel", channelName);
+        stats.put("inWheel", current == null ? 0 : current.size());
+        stats.put("loadedUntil", loadedUntil == 0 ? null : Instant.ofEpochMilli(loadedUntil).toString());
+        stats.put("planned", planned.get());
+        stats.put("sent", sent.get());
+        stats.put("stale", stale.get());
+        stats.put("alreadySent", alreadySent.get());
+        stats.put("failed", failed.get());
+        stats.put("retried", retried.get());
+        stats.put("batches", batches.get());
+        stats.put("lastScanMillis", lastScanMillis);
+        stats.put("lastBatchSize", lastBatchSize);
+        stats.put("running", worker != null);
+        return stats;
+    }
+
+    private void run() {
+        long tick = TimeUnit.SECONDS.toMillis(tickSeconds);
+        long horizon = TimeUnit.MINUTES.toMillis(horizonMinutes);
+        while (worker != null) {
+            try {
+                long now = System.currentTimeMillis();
+                if (loadedUntil - now < horizon / 2) {
+                    load(now + horizon);
+                }
+                List<ReminderWheel.Entry> due = wheel.advance(now);
+                for (int i = 0; i < due.size(); i += batchSize) {
+                    try {
+                        dispatch(due.subList(i, Math.min(i + batchSize, due.size())));
+                    } catch (RuntimeException e) {
+                        // Back into the wheel for the next tick; claimed ones will not be sent twice
+                        due.subList(i, due.size()).forEach(wheel::schedule);
+                        throw e;
+                    }
+                }
+                Thread.sleep(tick - System.currentTimeMillis() % tick);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                System.out.println("⚠️  Appointment reminders failed, retrying: " + e.getMessage());
+                try {
+                    Thread.sleep(tick);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Plan the reminders due in [loadedUntil, until): one range query on
+     * (status, startAt) per offset
+     */
+    private void load(long until) {
+        long started = System.currentTimeMillis();
+        long from = loadedUntil;
+        // Moved first so that changes made during the scan are planned by onEvent
+        loadedUntil = until;
+        for (int offset : offsetsMinutes) {
+            long offsetMillis = TimeUnit.MINUTES.toMillis(offset);
+            Query query = new Query(Criteria.where("status").is(SCHEDULED)
+                    .and("startAt").gte(Instant.ofEpochMilli(from + offsetMillis))
+                    .lt(Instant.ofEpochMilli(until + offsetMillis)));
+            query.fields().include("_id", "startAt");
+            query.cursorBatchSize(1000);
+            try (Stream<Appointment> appointments = mongoOperations.stream(query, Appointment.class)) {
+                appointments.forEach(appointment -> {
+                    if (wheel.schedule(new ReminderWheel.Entry(appointment.getId(),
+                            appointment.getStartAt().toEpochMilli(), offset))) {
+                        planned.incrementAndGet();
+                    }
+                });
+            }
+        }
+        lastScanMillis = System.currentTimeMillis() - started;
+    }
+
+    /**
+     * Check, claim and send one batch of due reminders
+     */
+    void dispatch(List<ReminderWheel.Entry> batch) throws InterruptedException {
+        Set<String> appointmentIds = new HashSet<>();
+        for (ReminderWheel.Entry entry : batch) {
+            appointmentIds.add(entry.getAppointmentId());
+        }
+        Query byIds = new Query(Criteria.where("_id").in(appointmentIds));
+        byIds.fields().include("appointmentId", "patientId", "patientName", "doctorName", "date", "time", "room",
+                "status", "startAt");
+        Map<String, Appointment> appointments = new HashMap<>();
+        for (Appointment appointment : mongoOperations.find(byIds, Appointment.class)) {
+            appointments.put(appointment.getId(), appointment);
+        }
+
+        // Cancelled or rescheduled since planned: the reschedule planned its own entry
+        Map<String, ReminderWheel.Entry> current = new LinkedHashMap<>();
+        List<Reminder> claims = new ArrayList<>();
+        for (ReminderWheel.Entry entry : batch) {
+            Appointment appointment = appointments.get(entry.getAppointmentId());
+            if (appointment == null || !SCHEDULED.equals(appointment.getStatus()) || appointment.getStartAt() == null
+                    || appointment.getStartAt().toEpochMilli() != entry.getStartAt()) {
+                stale.incrementAndGet();
+                continue;
+            }
+            current.put(entry.getKey(), entry);
+            claims.add(new Reminder(entry.getKey(), entry.getAppointmentId(), appointment.getPatientId(),
+                    entry.getOffsetMinutes(), channel.getName(), Reminder.SENDING, null, null,
+                    new Date(entry.getDueAt())));
+        }
+        Set<String> claimed = claim(claims);
+        if (claimed.isEmpty()) {
+            return;
+        }
+
+        Set<String> patientIds = new HashSet<>();
+        for (String key : claimed) {
+            patientIds.add(appointments.get(current.get(key).getAppointmentId()).getPatientId());
+        }
+        Query patientsById = new Query(Criteria.where("_id").in(patientIds));
+        patientsById.fields().include("email", "phone");
+        Map<String, Patient> patients = new HashMap<>();
+        for (Patient patient : mongoOperations.find(patientsById, Patient.class)) {
+            patients.put(patient.getId(), patient);
+        }
+
+        List<ReminderChannel.Message> messages = new ArrayList<>();
+        for (ReminderWheel.Entry entry : current.values()) {
+            if (!claimed.contains(entry.getKey())) {
+                continue;
+            }
+            Appointment appointment = appointments.get(entry.getAppointmentId());
+            Patient patient = patients.get(appointment.getPatientId());
+            messages.add(new ReminderChannel.Message(entry.getKey(), appointment.getAppointmentId(),
+                    appointment.getPatientName(), patient == null ? null : patient.getEmail(),
+                    patient == null ? null : patient.getPhone(), appointment.getDoctorName(), appointment.getDate(),
+                    appointment.getTime(), appointment.getRoom(), entry.getOffsetMinutes()));
+        }
+
+        // Sent in chunks of a tenth of a second's worth, so the batch does not go out in one burst
+        int chunkSize = Math.max(1, (int) (ratePerSecond / 10));
+        Set<String> notSent = new HashSet<>();
+        String error = null;
+        InterruptedException interrupted = null;
+        for (int i = 0; i < messages.size() && interrupted == null; i += chunkSize) {
+            List<ReminderChannel.Message> chunk = messages.subList(i, Math.min(i + chunkSize, messages.size()));
+            try {
+                pace(chunk.size());
+                notSent.addAll(channel.send(chunk));
+            } catch (InterruptedException e) {
+                interrupted = e;
+                messages.subList(i, messages.size()).forEach(message -> notSent.add(message.getId()));
+            } catch (RuntimeException e) {
+                chunk.forEach(message -> notSent.add(message.getId()));
+                error = e.getMessage();
+            }
+        }
+        List<String> sentIds = claimed.stream().filter(id -> !notSent.contains(id)).toList();
+        if (!sentIds.isEmpty()) {
+            mongoOperations.updateMulti(new Query(Criteria.where("_id").in(sentIds)),
+                    Update.update("status", Reminder.SENT).set("sentAt", System.currentTimeMillis()), Reminder.class);
+        }
+        if (!notSent.isEmpty()) {
+            retryOrFail(notSent, current, error);
+        }
+        sent.addAndGet(sentIds.size());
+        batches.incrementAndGet();
+        lastBatchSize = messages.size();
+        if (interrupted != null) {
+            throw interrupted;
+        }
+    }
+
+    /**
+     * Release the claims of reminders that could not be sent and plan them
+     * again after retry-seconds, doubled on each attempt; a reminder out of
+     * attempts, or whose retry would come after the appointment, is FAILED
+     */
+    private void retryOrFail(Set<String> notSent, Map<String, ReminderWheel.Entry> entries, String error) {
+        long now = System.currentTimeMillis();
+        List<ReminderWheel.Entry> retries = new ArrayList<>();
+        List<String> failedIds = new ArrayList<>();
+        for (String key : notSent) {
+            ReminderWheel.Entry entry = entries.get(key);
+            long retryAt = now + (TimeUnit.SECONDS.toMillis(retrySeconds) << Math.min(entry.getAttempts(), 20));
+            if (entry.getAttempts() + 1 < maxAttempts && retryAt < entry.getStartAt()) {
+                retries.add(entry.retry(retryAt));
+            } else {
+                failedIds.add(key);
+            }
+        }
+        if (!retries.isEmpty()) {
+            mongoOperations.remove(new Query(Criteria.where("_id").in(retries.stream()
+                    .map(ReminderWheel.Entry::getKey).toList()).and("status").is(Reminder.SENDING)), Reminder.class);
+            ReminderWheel current = wheel;
+            if (current != null) {
+                retries.forEach(current::schedule);
+            }
+            retried.addAndGet(retries.size());
+        }
+        if (!failedIds.isEmpty()) {
+            mongoOperations.updateMulti(new Query(Criteria.where("_id").in(failedIds)),
+                    Update.update("status", Reminder.FAILED).set("error", error), Reminder.class);
+            failed.addAndGet(failedIds.size());
+        }
+    }
+
+    /**
+     * Insert the claims with one unordered bulk write
+     * @return ids of the reminders this call claimed; a duplicate key means
+     * the reminder was claimed before
+     */
+    private Set<String> claim(List<Reminder> claims) {
+        Set<String> claimed = new HashSet<>();
+        if (claims.isEmpty()) {
+            return claimed;
+        }
+        claims.forEach(reminder -> claimed.add(reminder.getId()));
+        BulkOperations operations = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Reminder.class);
+        operations.insert(claims);
+        try {
+            operations.execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError writeError : e.getErrors()) {
+                claimed.remove(claims.get(writeError.getIndex()).getId());
+                if (writeError.getCode() == DUPLICATE_KEY) {
+                    alreadySent.incrementAndGet();
+                } else {
+                    failed.incrementAndGet();
+                }
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Hold the next count sends back so that they stay under app.reminders.rate-per-second
+     */
+    private void pace(int count) throws InterruptedException {
+        long now = System.currentTimeMillis();
+        long wait = nextSendAt - now;
+        nextSendAt = Math.max(nextSendAt, now) + (long) (count * 1000 / ratePerSecond);
+        if (wait > 0) {
+            Thread.sleep(wait);
+        }
+    }
+}
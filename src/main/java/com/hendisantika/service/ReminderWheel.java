@@ -0,0 +1,176 @@
+package com.hendisantika.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hashed timing wheel of planned reminders: one slot per tick, an entry
+ * goes to the slot of its due tick (modulo the slot count) and is handed
+ * out by advance() once that tick is reached. Scheduling, cancelling and
+ * each advance only touch the entries involved, whatever the number
+ * planned.
+ */
+class ReminderWheel {
+
+    private final long tickMillis;
+    private final List<List<Entry>> slots;
+    private final Map<String, Entry> byKey = new HashMap<>();
+    private final Map<String, List<Entry>> byAppointment = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private long nextTick;
+
+    ReminderWheel(long tickMillis, int slotCount, long now) {
+        this.tickMillis = tickMillis;
+        this.slots = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            slots.add(new ArrayList<>());
+        }
+        this.nextTick = now / tickMillis;
+    }
+
+    /**
+     * Plan an entry; one already due goes to the next tick
+     * @return false if an entry with the same key is already planned
+     */
+    boolean schedule(Entry entry) {
+        lock.lock();
+        try {
+            if (byKey.containsKey(entry.key)) {
+                return false;
+            }
+            entry.tick = Math.max(entry.sendAt / tickMillis, nextTick);
+            slots.get((int) (entry.tick % slots.size())).add(entry);
+            byKey.put(entry.key, entry);
+            byAppointment.computeIfAbsent(entry.appointmentId, k -> new ArrayList<>()).add(entry);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop every planned entry of an appointment
+     */
+    void cancel(String appointmentId) {
+        lock.lock();
+        try {
+            List<Entry> entries = byAppointment.remove(appointmentId);
+            if (entries == null) {
+                return;
+            }
+            for (Entry entry : entries) {
+                byKey.remove(entry.key);
+                slots.get((int) (entry.tick % slots.size())).remove(entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hand out the entries due up to now, in due order
+     */
+    List<Entry> advance(long now) {
+        lock.lock();
+        try {
+            long target = now / tickMillis;
+            List<Entry> due = new ArrayList<>();
+            // After a long pause every slot is visited once
+            long last = Math.min(target, nextTick + slots.size() - 1);
+            for (long tick = nextTick; tick <= last; tick++) {
+                Iterator<Entry> slot = slots.get((int) (tick % slots.size())).iterator();
+                while (slot.hasNext()) {
+                    Entry entry = slot.next();
+                    if (entry.tick <= target) {
+                        slot.remove();
+                        byKey.remove(entry.key);
+                        List<Entry> planned = byAppointment.get(entry.appointmentId);
+                        planned.remove(entry);
+                        if (planned.isEmpty()) {
+                            byAppointment.remove(entry.appointmentId);
+                        }
+                        due.add(entry);
+                    }
+                }
+            }
+            nextTick = Math.max(nextTick, target + 1);
+            due.sort((a, b) -> Long.compare(a.sendAt, b.sendAt));
+            return due;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return byKey.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static final class Entry {
+        private final String key;
+        private final String appointmentId;
+        private final long startAt;
+        private final int offsetMinutes;
+        private final long dueAt;
+        private final long sendAt;
+        private final int attempts;
+        private long tick;
+
+        Entry(String appointmentId, long startAt, int offsetMinutes) {
+            this(appointmentId, startAt, offsetMinutes, startAt - offsetMinutes * 60_000L, 0);
+        }
+
+        private Entry(String appointmentId, long startAt, int offsetMinutes, long sendAt, int attempts) {
+            this.key = appointmentId + "|" + offsetMinutes + "|" + startAt;
+            this.appointmentId = appointmentId;
+            this.startAt = startAt;
+            this.offsetMinutes = offsetMinutes;
+            this.dueAt = startAt - offsetMinutes * 60_000L;
+            this.sendAt = sendAt;
+            this.attempts = attempts;
+        }
+
+        /**
+         * The same reminder, planned again at sendAt after a failed attempt
+         */
+        Entry retry(long sendAt) {
+            return new Entry(appointmentId, startAt, offsetMinutes, sendAt, attempts + 1);
+        }
+
+        String getKey() {
+            return key;
+        }
+
+        String getAppointmentId() {
+            return appointmentId;
+        }
+
+        long getStartAt() {
+            return startAt;
+        }
+
+        int getOffsetMinutes() {
+            return offsetMinutes;
+        }
+
+        long getDueAt() {
+            return dueAt;
+        }
+
+        long getSendAt() {
+            return sendAt;
+        }
+
+        int getAttempts() {
+            return attempts;
+        }
+    }
+}
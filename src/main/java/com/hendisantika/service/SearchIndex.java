@@ -0,0 +1,272 @@
+package com.hendisantika.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory word-prefix index. Every indexed field is normalized (lower case,
+ * accents removed) and split into words; a query matches a document when each
+ * query word is a prefix of one of its words. Words are kept in a sorted tree
+ * so a prefix is a range lookup, and posting lists hold compact int doc IDs.
+ * Removed and replaced documents leave a gap in the doc IDs; once gaps make
+ * up half of them the IDs are renumbered.
+ */
+public class SearchIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int MIN_COMPACTION = 1024;
+
+    private final TreeMap<String, Postings> words = new TreeMap<>();
+    private final Map<String, Integer> docById = new HashMap<>();
+    private List<Doc> docs = new ArrayList<>();
+    private int removed;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Lower-case a value and strip accents so "Hélène" matches "helene"
+     */
+    public static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return MARKS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Split a value into normalized words
+     */
+    public static String[] tokenize(String value) {
+        return Arrays.stream(SEPARATORS.split(normalize(value)))
+                .filter(word -> !word.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    /**
+     * Add or replace a document. scope is an opaque value matched by the
+     * search predicate (e.g. doctor and patient IDs of an appointment).
+     */
+    public void put(String id, Object scope, String... fields) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String field : fields) {
+            tokens.addAll(Arrays.asList(tokenize(field)));
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            int doc = docs.size();
+            docs.add(new Doc(id, scope, tokens.toArray(new String[0])));
+            docById.put(id, doc);
+            for (String token : tokens) {
+                words.computeIfAbsent(token, t -> new Postings()).add(doc);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            words.clear();
+            docById.clear();
+            docs.clear();
+            removed = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * IDs of at most limit documents matching every word of the query and
+     * accepted by the scope predicate, in indexing order. An empty query
+     * matches every document.
+     */
+    public List<String> search(String query, Predicate<Object> scope, int limit) {
+        String[] terms = tokenize(query);
+        List<String> results = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            if (terms.length == 0) {
+                for (Doc doc : docs) {
+                    if (results.size() >= limit) {
+                        break;
+                    }
+                    if (doc != null && scope.test(doc.scope)) {
+                        results.add(doc.id);
+                    }
+                }
+                return results;
+            }
+
+            // The longest word is usually the most selective one: walk its postings, verify the rest
+            String driver = terms[0];
+            for (String term : terms) {
+                if (term.length() > driver.length()) {
+                    driver = term;
+                }
+            }
+
+            Set<Integer> seen = new HashSet<>();
+            for (Postings postings : prefixRange(driver).values()) {
+                for (int i = 0; i < postings.size && results.size() < limit; i++) {
+                    int docId = postings.ids[i];
+                    Doc doc = docs.get(docId);
+                    if (seen.add(docId) && doc.matchesAll(terms) && scope.test(doc.scope)) {
+                        results.add(doc.id);
+                    }
+                }
+                if (results.size() >= limit) {
+                    break;
+                }
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private NavigableMap<String, Postings> prefixRange(String prefix) {
+        return words.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private void removeLocked(String id) {
+        Integer doc = docById.remove(id);
+        if (doc == null) {
+            return;
+        }
+        for (String token : docs.get(doc).tokens) {
+            Postings postings = words.get(token);
+            if (postings != null && postings.remove(doc) && postings.size == 0) {
+                words.remove(token);
+            }
+        }
+        docs.set(doc, null);
+        if (++removed >= MIN_COMPACTION && removed * 2 >= docs.size()) {
+            compactLocked();
+        }
+    }
+
+    /**
+     * Renumber the documents without the removed ones. Indexing order is
+     * kept, so the posting lists stay sorted.
+     */
+    private void compactLocked() {
+        int[] renumbered = new int[docs.size()];
+        List<Doc> live = new ArrayList<>(docById.size());
+        for (int i = 0; i < docs.size(); i++) {
+            Doc doc = docs.get(i);
+            if (doc != null) {
+                renumbered[i] = live.size();
+                docById.put(doc.id, live.size());
+                live.add(doc);
+            }
+        }
+        for (Postings postings : words.values()) {
+            for (int i = 0; i < postings.size; i++) {
+                postings.ids[i] = renumbered[postings.ids[i]];
+            }
+        }
+        docs = live;
+        removed = 0;
+    }
+
+    /**
+     * Number of doc IDs in use, removed documents included
+     */
+    int capacity() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static class Doc {
+        private final String id;
+        private final Object scope;
+        private final String[] tokens;
+
+        private Doc(String id, Object scope, String[] tokens) {
+            this.id = id;
+            this.scope = scope;
+            this.tokens = tokens;
+        }
+
+        private boolean matchesAll(String[] terms) {
+            for (String term : terms) {
+                boolean found = false;
+                for (String token : tokens) {
+                    if (token.startsWith(term)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Growable int array of doc IDs, in ascending order since IDs only grow
+     */
+    private static class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        private void add(int doc) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = doc;
+        }
+
+        private boolean remove(int doc) {
+            int index = Arrays.binarySearch(ids, 0, size, doc);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.hendisantika.service;
+
+import com.hendisantika.dto.AppointmentSummary;
+import com.hendisantika.dto.DoctorSummary;
+import com.hendisantika.dto.PatientSummary;
+import com.hendisantika.entity.Appointment;
+import com.hendisantika.entity.AppointmentEvent;
+import com.hendisantika.entity.Doctor;
+import com.hendisantika.entity.Patient;
+import com.hendisantika.repository.AppointmentRepository;
+import com.hendisantika.repository.DoctorRepository;
+import com.hendisantika.repository.PatientRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Live search over patients, doctors and appointments backed by in-memory
+ * word-prefix indexes. Indexes are built at startup and maintained on every
+ * write; a search returns IDs and loads only the matching page, as summary
+ * projections.
+ */
+@Service
+public class SearchService implements AppointmentEventListener {
+
+    public static final int MAX_RESULTS = 500;
+
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    private final SearchIndex patients = new SearchIndex();
+    private final SearchIndex doctors = new SearchIndex();
+    private final SearchIndex appointments = new SearchIndex();
+
+    /**
+     * Build every index from MongoDB
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            patients.clear();
+            try (Stream<Patient> stream = mongoOperations.stream(new Query(), Patient.class)) {
+                stream.forEach(this::patientSaved);
+            }
+            doctors.clear();
+            try (Stream<Doctor> stream = mongoOperations.stream(new Query(), Doctor.class)) {
+                stream.forEach(this::doctorSaved);
+            }
+            appointments.clear();
+            Query appointmentFields = new Query();
+            appointmentFields.fields().include("appointmentId", "patientId", "patientName", "doctorId",
+                    "doctorName", "doctorSpecialization", "date", "status");
+            try (Stream<Appointment> stream = mongoOperations.stream(appointmentFields, Appointment.class)) {
+                stream.forEach(this::appointmentSaved);
+            }
+            System.out.println("✅ Search indexes built: " + patients.size() + " patients, "
+                    + doctors.size() + " doctors, " + appointments.size() + " appointments");
+        } catch (Exception e) {
+            System.out.println("ℹ️  Search index build failed: " + e.getMessage());
+        }
+    }
+
+    public void patientSaved(Patient patient) {
+        patients.put(patient.getId(), null, patient.getFirstName(), patient.getLastName(), patient.getEmail(),
+                patient.getPhone(), patient.getPatientId());
+    }
+
+    public void doctorSaved(Doctor doctor) {
+        doctors.put(doctor.getId(), null, doctor.getFirstName(), doctor.getLastName(), doctor.getDoctorId(),
+                doctor.getSpecialization(), doctor.getEmail(), doctor.getPhone());
+    }
+
+    public void appointmentSaved(Appointment appointment) {
+        AppointmentScope scope = new AppointmentScope(appointment.getDoctorId(), appointment.getPatientId());
+        appointments.put(appointment.getId(), scope,
+                appointment.getPatientName(), appointment.getDoctorName(), appointment.getAppointmentId(),
+                appointment.getDoctorSpecialization(), appointment.getDate(), appointment.getStatus());
+    }
+
+    public void appointmentDeleted(Appointment appointment) {
+        appointments.remove(appointment.getId());
+    }
+
+    /**
+     * Appointment changes arrive from the outbox; request events carry no indexed field
+     */
+    @Override
+    public void onEvent(AppointmentEvent event) {
+        if (event.getAppointment() == null) {
+            return;
+        }
+        if (AppointmentEvent.DELETED.equals(event.getType())) {
+            appointmentDeleted(event.getAppointment());
+        } else {
+            appointmentSaved(event.getAppointment());
+        }
+    }
+
+    public List<PatientSummary> searchPatients(String query, int limit) {
+        return load(patients.search(query, scope -> true, cap(limit)), patientRepository::findSummariesByIdIn,
+                PatientSummary::getId);
+    }
+
+    public List<DoctorSummary> searchDoctors(String query, int limit) {
+        return load(doctors.search(query, scope -> true, cap(limit)), doctorRepository::findSummariesByIdIn,
+                DoctorSummary::getId);
+    }
+
+    /**
+     * Search appointments visible to the user: doctors and patients only see
+     * their own, admins see all
+     */
+    public List<AppointmentSummary> searchAppointments(String query, UserPrincipal currentUser, int limit) {
+        Predicate<Object> visible = scope -> false;
+        if (currentUser != null && currentUser.isAdmin()) {
+            visible = scope -> true;
+        } else if (currentUser != null && currentUser.isDoctor() && currentUser.getDoctorId() != null) {
+            visible = scope -> currentUser.getDoctorId().equals(((AppointmentScope) scope).doctorId);
+        } else if (currentUser != null && currentUser.isPatient() && currentUser.getPatientId() != null) {
+            visible = scope -> currentUser.getPatientId().equals(((AppointmentScope) scope).patientId);
+        }
+        return load(appointments.search(query, visible, cap(limit)), appointmentRepository::findSummariesByIdIn,
+                AppointmentSummary::getId);
+    }
+
+    private static int cap(int limit) {
+        return Math.min(Math.max(limit, 1), MAX_RESULTS);
+    }
+
+    /**
+     * Load the matching summaries in one query and keep the index order
+     */
+    private static <T> List<T> load(List<String> ids, Function<Collection<String>, List<T>> finder,
+            Function<T, String> idOf) {
+        Map<String, T> byId = new HashMap<>();
+        finder.apply(ids).forEach(summary -> byId.put(idOf.apply(summary), summary));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    private static class AppointmentScope {
+        private final String doctorId;
+        private final String patientId;
+
+        private AppointmentScope(String doctorId, String patientId) {
+            this.doctorId = doctorId;
+            this.patientId = patientId;
+        }
+    }
+}
@@ -1,47 +1,131 @@
 package com.hendisantika.service;
 
 import com.hendisantika.entity.Sequence;
-import com.hendisantika.repository.SequenceRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
- * Service for generating auto-increment IDs in MongoDB
+ * Service for generating auto-increment IDs in MongoDB.
+ * IDs are leased in blocks (hi/lo): one atomic upsert reserves a range of
+ * values for this node, which are then handed out lock-free from memory.
+ * Unused values of a block are skipped after a restart.
  */
 @Service
 public class SequenceService {
 
+    private static final int ID_WIDTH = 5;
+
     @Autowired
     private MongoOperations mongoOperations;
 
-    @Autowired
-    private SequenceRepository sequenceRepository;
+    @Value("${app.sequence.block-size:50}")
+    private int blockSize = 50;
+
+    private final ConcurrentHashMap<String, Block> blocks = new ConcurrentHashMap<>();
+
+    // One lock per sequence, so that refilling one does not hold back the others. A lock
+    // rather than a monitor: a virtual thread blocked on MongoDB inside a synchronized
+    // block would pin its carrier thread
+    private final ConcurrentHashMap<String, ReentrantLock> refillLocks = new ConcurrentHashMap<>();
 
     /**
      * Generate next sequence ID with prefix
      * @param seqName sequence name (e.g., "patient_seq", "doctor_seq", "appointment_seq")
      * @param prefix prefix for ID (e.g., "P", "D", "A")
-     * @return formatted ID (e.g., "P00001", "D00001", "A00001")
+     * @return formatted ID (e.g., "P00001", "D00001", "A00001"); values past
+     * 99999 keep growing in width (e.g., "A100000") instead of wrapping
      */
     public String getNextSequenceId(String seqName, String prefix) {
+        return format(prefix, getNextValue(seqName));
+    }
+
+    /**
+     * Next raw value of a sequence
+     */
+    public long getNextValue(String seqName) {
+        while (true) {
+            Block block = blocks.get(seqName);
+            if (block != null) {
+                long value = block.next.getAndIncrement();
+                if (value <= block.last) {
+                    return value;
+                }
+            }
+            refill(seqName, block);
+        }
+    }
+
+    /**
+     * Reserve count consecutive values in one round trip, bypassing the
+     * node's block (used by bulk writes)
+     * @return the first reserved value; the range is [first, first + count)
+     */
+    public long reserveRange(String seqName, int count) {
+        return lease(seqName, count);
+    }
+
+    /**
+     * Format a raw value as an ID with the usual zero-padded width
+     */
+    public static String format(String prefix, long value) {
+        String digits = Long.toString(value);
+        StringBuilder id = new StringBuilder(prefix.length() + Math.max(ID_WIDTH, digits.length()));
+        id.append(prefix);
+        for (int i = digits.length(); i < ID_WIDTH; i++) {
+            id.append('0');
+        }
+        return id.append(digits).toString();
+    }
+
+    /**
+     * Replace an exhausted block; only one caller per sequence hits MongoDB
+     */
+    private void refill(String seqName, Block exhausted) {
+        ReentrantLock refillLock = refillLocks.computeIfAbsent(seqName, name -> new ReentrantLock());
+        refillLock.lock();
+        try {
+            if (blocks.get(seqName) != exhausted) {
+                return; // another thread already refilled it
+            }
+            long first = lease(seqName, blockSize);
+            blocks.put(seqName, new Block(first, first + blockSize - 1));
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    /**
+     * Atomically add count to the sequence, creating it if missing
+     * @return the first value of the leased range
+     */
+    private long lease(String seqName, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be positive: " + count);
+        }
         Query query = new Query(Criteria.where("_id").is(seqName));
-        Update update = new Update().inc("seq", 1);
-        
-        Sequence sequence = mongoOperations.findAndModify(query, update, Sequence.class);
-        
-        if (sequence == null) {
-            // First time, create the sequence
-            sequence = new Sequence();
-            sequence.setId(seqName);
-            sequence.setSeq(1);
-            sequenceRepository.save(sequence);
-            return prefix + String.format("%05d", 1);
+        Update update = new Update().inc("seq", count);
+        Sequence sequence = mongoOperations.findAndModify(query, update,
+                FindAndModifyOptions.options().upsert(true).returnNew(true), Sequence.class);
+        return sequence.getSeq() - count + 1;
+    }
+
+    private static class Block {
+        private final AtomicLong next;
+        private final long last;
+
+        private Block(long first, long last) {
+            this.next = new AtomicLong(first);
+            this.last = last;
         }
-        
-        return prefix + String.format("%05d", sequence.getSeq() + 1);
     }
 }
@@ -0,0 +1,171 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.Appointment;
+import com.hendisantika.entity.SlotLock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import com.mongodb.bulk.BulkWriteError;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Cluster-wide slot reservation backed by the slot_locks collection. An
+ * appointment claims every granule its [start, end) interval touches, for
+ * its doctor and its room, with one insert; the unique _id makes the
+ * insert fail if any granule is already held, and the partial claim is
+ * rolled back. Two overlapping intervals always share a granule.
+ */
+@Service
+public class SlotLockService {
+
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    @Value("${app.booking.slot-granularity-minutes:5}")
+    private int granularityMinutes = 5;
+
+    @Value("${app.appointment.default-duration-minutes:30}")
+    private int defaultDurationMinutes = 30;
+
+    /**
+     * Claim the appointment's doctor and room granules
+     * @return false when another appointment holds one of them
+     * @throws IllegalArgumentException when the date or time cannot be parsed
+     */
+    public boolean acquire(Appointment appointment) {
+        List<SlotLock> locks = locksOf(appointment);
+        try {
+            mongoOperations.insert(locks, SlotLock.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // The insert is ordered: granules before the duplicate were written, drop them
+            release(appointment.getId());
+            return false;
+        }
+    }
+
+    /**
+     * Claim the granules of several appointments with one unordered bulk
+     * insert. The appointments must not overlap each other. An appointment
+     * with any granule already held loses all of its granules.
+     * @return ids of the appointments that could not be claimed
+     * @throws IllegalArgumentException when a date or time cannot be parsed
+     */
+    public Set<String> acquireAll(Collection<Appointment> appointments) {
+        List<SlotLock> locks = new ArrayList<>();
+        for (Appointment appointment : appointments) {
+            locks.addAll(locksOf(appointment));
+        }
+        if (locks.isEmpty()) {
+            return Set.of();
+        }
+        BulkOperations operations = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, SlotLock.class);
+        operations.insert(locks);
+        try {
+            operations.execute();
+            return Set.of();
+        } catch (BulkOperationException e) {
+            Set<String> failed = new LinkedHashSet<>();
+            for (BulkWriteError error : e.getErrors()) {
+                failed.add(locks.get(error.getIndex()).getAppointmentId());
+            }
+            mongoOperations.remove(new Query(Criteria.where("appointmentId").in(failed)), SlotLock.class);
+            return failed;
+        }
+    }
+
+    /**
+     * Claim the granules of an appointment's interval that it does not hold
+     * yet, for a move; the ones it already holds stay as they are
+     * @return false when another appointment holds one of them; the granules
+     * claimed by this call are dropped again
+     * @throws IllegalArgumentException when the date or time cannot be parsed
+     */
+    public boolean acquireMissing(Appointment appointment) {
+        List<SlotLock> locks = locksOf(appointment);
+        Set<String> held = new HashSet<>();
+        Query heldByAppointment = new Query(Criteria.where("appointmentId").is(appointment.getId()));
+        heldByAppointment.fields().include("_id");
+        for (SlotLock lock : mongoOperations.find(heldByAppointment, SlotLock.class)) {
+            held.add(lock.getId());
+        }
+        List<SlotLock> missing = locks.stream().filter(lock -> !held.contains(lock.getId())).toList();
+        if (missing.isEmpty()) {
+            return true;
+        }
+        try {
+            mongoOperations.insert(missing, SlotLock.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            mongoOperations.remove(new Query(Criteria.where("_id").in(missing.stream().map(SlotLock::getId).toList())
+                    .and("appointmentId").is(appointment.getId())), SlotLock.class);
+            return false;
+        }
+    }
+
+    /**
+     * Free the granules an appointment holds outside its current interval,
+     * or all of them once it is cancelled
+     */
+    public void retain(Appointment appointment) {
+        if (DoctorSlotIndex.CANCELLED.equals(appointment.getStatus())) {
+            release(appointment.getId());
+            return;
+        }
+        List<String> kept = locksOf(appointment).stream().map(SlotLock::getId).toList();
+        mongoOperations.remove(new Query(Criteria.where("appointmentId").is(appointment.getId())
+                .and("_id").nin(kept)), SlotLock.class);
+    }
+
+    /**
+     * Free every granule held by an appointment
+     */
+    public void release(String appointmentId) {
+        if (appointmentId != null) {
+            mongoOperations.remove(new Query(Criteria.where("appointmentId").is(appointmentId)), SlotLock.class);
+        }
+    }
+
+    /**
+     * Granules of an appointment; never empty, so no booking passes unreserved
+     * @throws IllegalArgumentException when the date or time cannot be parsed
+     */
+    List<SlotLock> locksOf(Appointment appointment) {
+        if (appointment.getId() == null) {
+            throw new IllegalArgumentException("Rendez-vous sans identifiant");
+        }
+        Instant startAt = AppointmentTimes.requireStartAt(appointment);
+        int start = AppointmentTimes.minuteOfDay(appointment);
+        Integer duration = appointment.getDurationMinutes();
+        int end = start + (duration != null && duration > 0 ? duration : defaultDurationMinutes);
+        Date expiresAt = Date.from(startAt.plus(end - start, ChronoUnit.MINUTES).plus(1, ChronoUnit.DAYS));
+        String date = AppointmentTimes.day(appointment);
+
+        List<SlotLock> locks = new ArrayList<>();
+        for (int granule = start - Math.floorMod(start, granularityMinutes); granule < end;
+                granule += granularityMinutes) {
+            locks.add(new SlotLock("D|" + appointment.getDoctorId() + "|" + date + "|" + granule,
+                    appointment.getId(), expiresAt));
+            if (appointment.getRoom() != null && !appointment.getRoom().isBlank()) {
+                locks.add(new SlotLock("R|" + appointment.getRoom() + "|" + date + "|" + granule,
+                        appointment.getId(), expiresAt));
+            }
+        }
+        return locks;
+    }
+}
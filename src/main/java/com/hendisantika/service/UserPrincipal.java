@@ -0,0 +1,40 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.User;
+import lombok.Value;
+
+/**
+ * Resolved, immutable view of the logged-in user (role and linked doctor /
+ * patient IDs) shared by controllers instead of re-reading the users collection
+ */
+@Value
+public class UserPrincipal {
+    String id;
+    String username;
+    String role;
+    String doctorId;
+    String patientId;
+    boolean active;
+
+    public static UserPrincipal from(User user) {
+        return new UserPrincipal(
+                user.getId(),
+                user.getUsername(),
+                user.getRole(), // null stays null: such a user gets no role-scoped access
+                user.getDoctorId(),
+                user.getPatientId(),
+                user.isActive());
+    }
+
+    public boolean isAdmin() {
+        return "ADMIN".equals(role);
+    }
+
+    public boolean isDoctor() {
+        return "DOCTOR".equals(role);
+    }
+
+    public boolean isPatient() {
+        return "PATIENT".equals(role);
+    }
+}
@@ -0,0 +1,136 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.User;
+import com.hendisantika.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, TTL-evicted cache of resolved user principals keyed by username.
+ * Filled at authentication time by CustomUserDetailsService and invalidated
+ * when accounts are deactivated.
+ */
+@Service
+public class UserPrincipalCache {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${app.user-cache.max-size:1000}")
+    private int maxSize = 1000;
+
+    @Value("${app.user-cache.ttl-seconds:300}")
+    private long ttlSeconds = 300;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    // Access-ordered so the least recently used entry is evicted first
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    /**
+     * Get the principal for a username, loading it from MongoDB on a miss
+     */
+    public UserPrincipal get(String username) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(username);
+            if (entry != null && entry.expiresAt > now) {
+                hits.incrementAndGet();
+                return entry.principal;
+            }
+            if (entry != null) {
+                entries.remove(username);
+            }
+        }
+
+        misses.incrementAndGet();
+        return userRepository.findByUsername(username).map(this::put).orElse(null);
+    }
+
+    /**
+     * Store a freshly loaded user and return its principal
+     */
+    public UserPrincipal put(User user) {
+        UserPrincipal principal = UserPrincipal.from(user);
+        synchronized (entries) {
+            entries.put(user.getUsername(), new Entry(principal, System.currentTimeMillis() + ttlSeconds * 1000));
+        }
+        return principal;
+    }
+
+    /**
+     * Drop every cached principal linked to the given doctor or patient
+     */
+    public void invalidate(String doctorId, String patientId) {
+        synchronized (entries) {
+            entries.values().removeIf(entry -> (doctorId != null && doctorId.equals(entry.principal.getDoctorId()))
+                    || (patientId != null && patientId.equals(entry.principal.getPatientId())));
+        }
+    }
+
+    /**
+     * Drop the cached principals linked to any of the given doctors
+     */
+    public void invalidateDoctors(Collection<String> doctorIds) {
+        synchronized (entries) {
+            entries.values().removeIf(entry -> entry.principal.getDoctorId() != null
+                    && doctorIds.contains(entry.principal.getDoctorId()));
+        }
+    }
+
+    /**
+     * Drop the cached principal of one username
+     */
+    public void invalidate(String username) {
+        synchronized (entries) {
+            entries.remove(username);
+        }
+    }
+
+    /**
+     * Drop every cached principal
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Hit / miss counters and current size
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        synchronized (entries) {
+            stats.put("size", entries.size());
+        }
+        stats.put("maxSize", maxSize);
+        stats.put("ttlSeconds", ttlSeconds);
+        return stats;
+    }
+
+    private static class Entry {
+        private final UserPrincipal principal;
+        private final long expiresAt;
+
+        private Entry(UserPrincipal principal, long expiresAt) {
+            this.principal = principal;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
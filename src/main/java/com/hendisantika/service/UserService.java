@@ -2,9 +2,18 @@ package com.hendisantika.service;
 
 import com.hendisantika.entity.User;
 import com.hendisantika.repository.UserRepository;
+import com.mongodb.client.result.UpdateResult;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 /**
  * User Service for managing user account creation and operations
  */
@@ -14,6 +23,12 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
     /**
      * Create a user account for a doctor
      */
@@ -50,24 +65,36 @@ public class UserService {
     }
 
     /**
-     * Deactivate user account
+     * Deactivate user account(s) linked to a doctor and/or a patient in a
+     * single indexed update
      */
     public void deactivateUser(String doctorId, String patientId) {
+        List<Criteria> links = new ArrayList<>();
         if (doctorId != null && !doctorId.isEmpty()) {
-            userRepository.findAll().stream()
-                    .filter(u -> doctorId.equals(u.getDoctorId()))
-                    .forEach(u -> {
-                        u.setActive(false);
-                        userRepository.save(u);
-                    });
+            links.add(Criteria.where("doctorId").is(doctorId));
         }
         if (patientId != null && !patientId.isEmpty()) {
-            userRepository.findAll().stream()
-                    .filter(u -> patientId.equals(u.getPatientId()))
-                    .forEach(u -> {
-                        u.setActive(false);
-                        userRepository.save(u);
-                    });
+            links.add(Criteria.where("patientId").is(patientId));
+        }
+        if (!links.isEmpty()) {
+            mongoOperations.updateMulti(new Query(new Criteria().orOperator(links)),
+                    Update.update("active", false), User.class);
+        }
+        userPrincipalCache.invalidate(doctorId, patientId);
+    }
+
+    /**
+     * Deactivate the user accounts of several doctors at once
+     * @return number of accounts deactivated
+     */
+    public long deactivateDoctorUsers(Collection<String> doctorIds) {
+        if (doctorIds.isEmpty()) {
+            return 0;
         }
+        UpdateResult result = mongoOperations.updateMulti(
+                new Query(Criteria.where("doctorId").in(doctorIds).and("active").is(true)),
+                Update.update("active", false), User.class);
+        userPrincipalCache.invalidateDoctors(doctorIds);
+        return result.getModifiedCount();
     }
 }
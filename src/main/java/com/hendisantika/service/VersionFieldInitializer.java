@@ -0,0 +1,43 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.Appointment;
+import com.hendisantika.entity.AppointmentRequest;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gives documents written before optimistic locking a version of 0.
+ * Spring Data treats an entity with a null @Version as new and would
+ * insert it again on save, so this must run before the first request,
+ * hence at bean initialization rather than on ApplicationReadyEvent.
+ */
+@Component
+public class VersionFieldInitializer {
+
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    @PostConstruct
+    public void initialize() {
+        try {
+            long appointments = backfill(Appointment.class);
+            long requests = backfill(AppointmentRequest.class);
+            if (appointments + requests > 0) {
+                System.out.println("✅ Version field initialized on " + appointments + " appointments and "
+                        + requests + " appointment requests");
+            }
+        } catch (Exception e) {
+            System.out.println("ℹ️  Version field initialization skipped: " + e.getMessage());
+        }
+    }
+
+    private long backfill(Class<?> type) {
+        return mongoOperations.updateMulti(new Query(Criteria.where("version").exists(false)),
+                Update.update("version", 0L), type).getModifiedCount();
+    }
+}
@@ -65,7 +65,7 @@ document.addEventListener('DOMContentLoaded', function () {
             return;
         }
 
-        fetch(`${searchEndpoint}?query=${encodeURIComponent(query)}`)
+        fetch(`${searchEndpoint}?query=${encodeURIComponent(query)}&limit=500`)
             .then(response => response.json())
             .then(data => {
                 const rows = document.querySelectorAll(rowSelector);
@@ -0,0 +1,65 @@
+package com.hendisantika.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hendisantika.repository.AppointmentRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Latency of the calendar feed for a one-week view against the whole
+ * 3-year dataset of CalendarControllerTest, repository in memory.
+ * Run the main method, it is not part of the unit test suite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CalendarControllerBenchmark {
+
+    private CalendarController controller;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        controller = CalendarControllerTest.controller(mock(AppointmentRepository.class), new ObjectMapper());
+    }
+
+    @Benchmark
+    public int fullDataset() throws Exception {
+        return fetch(CalendarControllerTest.DATASET_START.toString(), CalendarControllerTest.DATASET_END.toString());
+    }
+
+    @Benchmark
+    public int oneWeek() throws Exception {
+        return fetch("2024-06-03T00:00:00+02:00", "2024-06-10T00:00:00+02:00");
+    }
+
+    private int fetch(String start, String end) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.getCalendarEvents(start, end, response);
+        return response.getContentAsByteArray().length;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(CalendarControllerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,101 @@
+package com.hendisantika.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hendisantika.entity.Appointment;
+import com.hendisantika.repository.AppointmentRepository;
+import com.hendisantika.service.CurrentUserService;
+import com.hendisantika.service.UserPrincipal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The windowed calendar feed only queries and serializes the requested
+ * range of a 3-year dataset; CalendarControllerBenchmark measures the time
+ */
+class CalendarControllerTest {
+
+    static final LocalDate DATASET_START = LocalDate.of(2023, 1, 1);
+    static final LocalDate DATASET_END = DATASET_START.plusYears(3);
+    static final int APPOINTMENTS_PER_DAY = 30;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private AppointmentRepository appointmentRepository;
+    private CalendarController controller;
+
+    @BeforeEach
+    void setUp() {
+        appointmentRepository = mock(AppointmentRepository.class);
+        controller = controller(appointmentRepository, objectMapper);
+    }
+
+    @Test
+    void weekViewQueriesAndSerializesOneWeek() throws Exception {
+        MockHttpServletResponse week = fetch("2024-06-03T00:00:00+02:00", "2024-06-10T00:00:00+02:00");
+        MockHttpServletResponse full = fetch(DATASET_START.toString(), DATASET_END.toString());
+
+        verify(appointmentRepository, times(1)).streamEventsByDateRange("2024-06-03", "2024-06-10");
+        assertEquals(7 * APPOINTMENTS_PER_DAY, objectMapper.readTree(week.getContentAsByteArray()).size());
+        assertTrue(week.getContentAsByteArray().length * 100L < full.getContentAsByteArray().length,
+                "week payload should be a small fraction of the dataset");
+    }
+
+    private MockHttpServletResponse fetch(String start, String end) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.getCalendarEvents(start, end, response);
+        return response;
+    }
+
+    /**
+     * A controller for an admin over DATASET_START..DATASET_END, APPOINTMENTS_PER_DAY a day
+     */
+    static CalendarController controller(AppointmentRepository appointmentRepository, ObjectMapper objectMapper) {
+        List<Appointment> dataset = new ArrayList<>();
+        int counter = 0;
+        for (LocalDate day = DATASET_START; day.isBefore(DATASET_END); day = day.plusDays(1)) {
+            for (int i = 0; i < APPOINTMENTS_PER_DAY; i++) {
+                Appointment appointment = new Appointment();
+                appointment.setId("id" + counter);
+                appointment.setAppointmentId(String.format("A%05d", counter++ % 100000));
+                appointment.setPatientId("P" + (i % 50));
+                appointment.setPatientName("Patient " + i);
+                appointment.setDoctorId("D" + (i % 10));
+                appointment.setDoctorName("Docteur " + (i % 10));
+                appointment.setDate(day.toString());
+                appointment.setTime(String.format("%02d:%02d", 8 + i / 4, (i % 4) * 15));
+                appointment.setStatus("Planifié");
+                dataset.add(appointment);
+            }
+        }
+
+        when(appointmentRepository.streamEventsByDateRange(anyString(), anyString())).thenAnswer(invocation -> {
+            String start = invocation.getArgument(0);
+            String end = invocation.getArgument(1);
+            return dataset.stream()
+                    .filter(a -> a.getDate().compareTo(start) >= 0 && a.getDate().compareTo(end) < 0);
+        });
+
+        CurrentUserService currentUserService = mock(CurrentUserService.class);
+        when(currentUserService.getCurrentUser())
+                .thenReturn(new UserPrincipal("u1", "admin", "ADMIN", null, null, true));
+
+        CalendarController controller = new CalendarController();
+        ReflectionTestUtils.setField(controller, "appointmentRepository", appointmentRepository);
+        ReflectionTestUtils.setField(controller, "currentUserService", currentUserService);
+        ReflectionTestUtils.setField(controller, "objectMapper", objectMapper);
+        return controller;
+    }
+}
@@ -0,0 +1,49 @@
+package com.hendisantika.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.embedded.EmbeddedWebServerFactoryCustomizerAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Requests are handled on virtual threads: a real Tomcat started with the
+ * application's own application.properties (spring.threads.virtual.enabled)
+ * reports the thread its handler ran on. Only the web auto-configuration is
+ * loaded, so no MongoDB is needed.
+ */
+@SpringBootTest(classes = VirtualThreadRequestTest.ThreadProbe.class,
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class VirtualThreadRequestTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    void handlerRunsOnAVirtualThread() {
+        assertEquals("true", restTemplate.getForObject("/probe/virtual", String.class));
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ImportAutoConfiguration({ServletWebServerFactoryAutoConfiguration.class,
+            EmbeddedWebServerFactoryCustomizerAutoConfiguration.class, DispatcherServletAutoConfiguration.class,
+            WebMvcAutoConfiguration.class, HttpMessageConvertersAutoConfiguration.class})
+    @RestController
+    static class ThreadProbe {
+
+        @GetMapping("/probe/virtual")
+        String virtual() {
+            return String.valueOf(Thread.currentThread().isVirtual());
+        }
+    }
+}
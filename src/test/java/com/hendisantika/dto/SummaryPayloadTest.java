@@ -0,0 +1,41 @@
+package com.hendisantika.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hendisantika.entity.Patient;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SummaryPayloadTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void patientSummaryLeavesOutPasswordAndAddress() throws Exception {
+        Patient patient = new Patient();
+        patient.setId("665f1c2e9b1d4a3f8c7e6d5a");
+        patient.setPatientId("P00001");
+        patient.setFirstName("Amina");
+        patient.setLastName("Benali");
+        patient.setGender("Female");
+        patient.setEmail("amina.benali@example.com");
+        patient.setPhone("+33612345678");
+        patient.setAddress("12 rue de la République");
+        patient.setCity("Lyon");
+        patient.setPostalCode("69002");
+        patient.setCountry("France");
+        patient.setPassword("secret");
+        PatientSummary summary = new PatientSummary(patient.getId(), patient.getPatientId(), patient.getFirstName(),
+                patient.getLastName(), patient.getGender(), patient.getEmail(), patient.getPhone(), true);
+
+        String full = objectMapper.writeValueAsString(patient);
+        String json = objectMapper.writeValueAsString(summary);
+
+        assertFalse(json.contains("password"));
+        assertFalse(json.contains("secret"));
+        assertFalse(json.contains("République"));
+        assertTrue(json.contains("\"active\":true"));
+        assertTrue(json.length() < full.length());
+    }
+}
@@ -0,0 +1,57 @@
+package com.hendisantika.service;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AppointmentAnalyticsServiceTest {
+
+    private MongoOperations mongoOperations;
+    private AppointmentAnalyticsService service;
+
+    @BeforeEach
+    void setUp() {
+        mongoOperations = mock(MongoOperations.class);
+        service = new AppointmentAnalyticsService();
+        ReflectionTestUtils.setField(service, "mongoOperations", mongoOperations);
+        when(mongoOperations.aggregate(any(Aggregation.class), eq("appointments"), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(
+                        new Document("_id", "Cardiologie").append("total", 8).append("cancelled", 2),
+                        new Document("_id", "Dermatologie").append("total", 3).append("cancelled", 0)),
+                        new Document()));
+    }
+
+    @Test
+    void cancellationRatesAreMappedAndCachedWithinTheBucket() {
+        AppointmentAnalyticsService.AnalyticsResult<List<AppointmentAnalyticsService.CancellationRow>> first =
+                service.cancellationRates("2025-01-01", "2025-02-01");
+        AppointmentAnalyticsService.AnalyticsResult<List<AppointmentAnalyticsService.CancellationRow>> second =
+                service.cancellationRates("2025-01-01", "2025-02-01");
+
+        assertSame(first, second);
+        assertEquals(0.25, first.getData().get(0).getCancellationRate());
+        assertEquals(0.0, first.getData().get(1).getCancellationRate());
+        verify(mongoOperations, times(1)).aggregate(any(Aggregation.class), eq("appointments"), eq(Document.class));
+
+        // Another range is another key; clearing the cache forces a recomputation
+        service.cancellationRates("2025-02-01", "2025-03-01");
+        service.clearCache();
+        service.cancellationRates("2025-01-01", "2025-02-01");
+        verify(mongoOperations, times(3)).aggregate(any(Aggregation.class), eq("appointments"), eq(Document.class));
+    }
+}
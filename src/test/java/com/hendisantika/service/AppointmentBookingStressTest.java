@@ -0,0 +1,184 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.Appointment;
+import com.hendisantika.entity.SlotLock;
+import com.hendisantika.repository.AppointmentRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 200 virtual threads book overlapping slots of the same doctor and room.
+ * Every thread acts as its own application node (own in-memory slot index),
+ * so only the slot_locks reservation can stop double bookings; its unique
+ * _id is emulated with a concurrent map.
+ */
+class AppointmentBookingStressTest {
+
+    private static final int THREADS = 200;
+
+    private final ConcurrentHashMap<String, String> slotLocks = new ConcurrentHashMap<>();
+
+    @Test
+    void exactlyOneOfTwoHundredConcurrentBookingsWins() throws Exception {
+        List<AppointmentBookingService> nodes = nodes(THREADS);
+
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger winners = new AtomicInteger();
+        AtomicInteger losers = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            AppointmentBookingService node = nodes.get(i);
+            // 10:00, 10:05 and 10:10 starts all overlap a 30-minute booking of each other
+            Appointment appointment = appointment("P" + i, String.format("10:%02d", (i % 3) * 5));
+            threads.add(Thread.ofVirtual().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (node.book(appointment).isBooked()) {
+                    winners.incrementAndGet();
+                } else {
+                    losers.incrementAndGet();
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, winners.get());
+        assertEquals(THREADS - 1, losers.get());
+        // Only the winner's granules remain: 6 doctor + 6 room granules for 30 minutes
+        assertEquals(12, slotLocks.size());
+        assertEquals(1, slotLocks.values().stream().distinct().count());
+        assertTrue(slotLocks.keySet().stream().anyMatch(key -> key.startsWith("R|Bureau 101|")));
+    }
+
+    @Test
+    void rescheduleOntoAnotherNodesBookingKeepsTheOldReservation() {
+        List<AppointmentBookingService> nodes = nodes(2);
+        Appointment first = nodes.get(0).book(appointment("P1", "10:00")).getAppointment();
+        assertTrue(nodes.get(1).book(appointment("P2", "11:00")).isBooked());
+
+        // Node 0 has not seen the 11:00 booking: only slot_locks catches the overlap
+        Appointment clash = first.toBuilder().time("11:15").build();
+        assertFalse(nodes.get(0).reschedule(first, clash).isBooked());
+        assertEquals(12, locksOf(first.getId()).size());
+        assertTrue(locksOf(first.getId()).stream().anyMatch(key -> key.endsWith("|600")));
+
+        // Overlapping its own old interval is fine; the granules it left are freed
+        Appointment moved = first.toBuilder().time("10:15").build();
+        assertTrue(nodes.get(0).reschedule(first, moved).isBooked());
+        List<String> held = locksOf(first.getId());
+        assertEquals(12, held.size());
+        assertTrue(held.stream().anyMatch(key -> key.endsWith("|615")));
+        assertFalse(held.stream().anyMatch(key -> key.endsWith("|600")));
+    }
+
+    /**
+     * Booking services acting as separate application nodes: each has its
+     * own slot index, all share the slot_locks store
+     */
+    @SuppressWarnings("unchecked")
+    private List<AppointmentBookingService> nodes(int count) {
+        AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+        when(appointmentRepository.findByDoctorIdAndDate(anyString(), anyString())).thenReturn(List.of());
+        when(appointmentRepository.findByRoomAndDate(anyString(), anyString())).thenReturn(List.of());
+        when(appointmentRepository.save(any(Appointment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        SlotLockService slotLockService = new SlotLockService();
+        ReflectionTestUtils.setField(slotLockService, "mongoOperations", uniqueKeyStore());
+        AppointmentChangeService appointmentChangeService = mock(AppointmentChangeService.class);
+        when(appointmentChangeService.inTransaction(any(Supplier.class)))
+                .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(0)).get());
+
+        List<AppointmentBookingService> nodes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            DoctorSlotIndex doctorSlotIndex = new DoctorSlotIndex();
+            ReflectionTestUtils.setField(doctorSlotIndex, "appointmentRepository", appointmentRepository);
+            AppointmentBookingService node = new AppointmentBookingService();
+            ReflectionTestUtils.setField(node, "appointmentRepository", appointmentRepository);
+            ReflectionTestUtils.setField(node, "doctorSlotIndex", doctorSlotIndex);
+            ReflectionTestUtils.setField(node, "appointmentChangeService", appointmentChangeService);
+            ReflectionTestUtils.setField(node, "slotLockService", slotLockService);
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    private List<String> locksOf(String appointmentId) {
+        return slotLocks.entrySet().stream().filter(entry -> entry.getValue().equals(appointmentId))
+                .map(Map.Entry::getKey).toList();
+    }
+
+    /**
+     * MongoOperations whose slot_locks insert behaves like an ordered
+     * insertMany against a unique _id
+     */
+    @SuppressWarnings("unchecked")
+    private MongoOperations uniqueKeyStore() {
+        MongoOperations mongoOperations = mock(MongoOperations.class);
+        when(mongoOperations.insert(anyCollection(), eq(SlotLock.class))).thenAnswer(invocation -> {
+            Collection<SlotLock> locks = invocation.getArgument(0);
+            for (SlotLock lock : locks) {
+                if (slotLocks.putIfAbsent(lock.getId(), lock.getAppointmentId()) != null) {
+                    throw new DuplicateKeyException("E11000 duplicate key: " + lock.getId());
+                }
+            }
+            return locks;
+        });
+        when(mongoOperations.remove(any(Query.class), eq(SlotLock.class))).thenAnswer(invocation -> {
+            Document query = ((Query) invocation.getArgument(0)).getQueryObject();
+            Object appointmentId = query.get("appointmentId");
+            Document ids = (Document) query.get("_id");
+            slotLocks.entrySet().removeIf(entry -> entry.getValue().equals(appointmentId) && (ids == null
+                    || (ids.containsKey("$in") ? ((Collection<?>) ids.get("$in")).contains(entry.getKey())
+                            : !((Collection<?>) ids.get("$nin")).contains(entry.getKey()))));
+            return null;
+        });
+        when(mongoOperations.find(any(Query.class), eq(SlotLock.class))).thenAnswer(invocation -> {
+            Object appointmentId = ((Query) invocation.getArgument(0)).getQueryObject().get("appointmentId");
+            return locksOf((String) appointmentId).stream().map(id -> new SlotLock(id, (String) appointmentId, null))
+                    .toList();
+        });
+        return mongoOperations;
+    }
+
+    private static Appointment appointment(String patientId, String time) {
+        Appointment appointment = new Appointment();
+        appointment.setPatientId(patientId);
+        appointment.setDoctorId("D00001");
+        appointment.setRoom("Bureau 101");
+        appointment.setDate("2030-01-07");
+        appointment.setTime(time);
+        appointment.setDurationMinutes(30);
+        appointment.setStatus("Planifié");
+        return appointment;
+    }
+}
@@ -0,0 +1,97 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.AppointmentEvent;
+import com.hendisantika.entity.EventNode;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AppointmentEventDispatcherTest {
+
+    @Test
+    void failedEventHoldsBackItsAggregateOnly() {
+        MongoOperations mongoOperations = mock(MongoOperations.class);
+        BulkOperations failures = mock(BulkOperations.class);
+        when(mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, AppointmentEvent.class)).thenReturn(failures);
+        when(mongoOperations.find(any(Query.class), eq(AppointmentEvent.class))).thenReturn(List.of(
+                event("e1", "a1"), event("e2", "a2"), event("e3", "a1")));
+
+        List<String> seen = new ArrayList<>();
+        AppointmentEventListener listener = event -> {
+            seen.add(event.getId());
+            if ("e1".equals(event.getId())) {
+                throw new IllegalStateException("index unavailable");
+            }
+        };
+        AppointmentEventDispatcher dispatcher = new AppointmentEventDispatcher();
+        ReflectionTestUtils.setField(dispatcher, "mongoOperations", mongoOperations);
+        ReflectionTestUtils.setField(dispatcher, "listeners", List.of(listener));
+        ReflectionTestUtils.setField(dispatcher, "nodeId", "node-1");
+
+        assertFalse(dispatcher.dispatchBatch());
+
+        // e3 waits behind e1 (same appointment); e2 goes through
+        assertEquals(List.of("e1", "e2"), seen);
+        ArgumentCaptor<Query> delivered = ArgumentCaptor.forClass(Query.class);
+        verify(mongoOperations).updateMulti(delivered.capture(), any(Update.class), eq(AppointmentEvent.class));
+        assertEquals(List.of("e2"), ((Document) delivered.getValue().getQueryObject().get("_id")).get("$in"));
+        verify(failures, times(1)).updateOne(any(Query.class), any(Update.class));
+        assertEquals(1L, dispatcher.getStats().get("failedAttempts"));
+    }
+
+    @Test
+    void onlyNodesWithAnExpiredHeartbeatAreAdopted() {
+        MongoOperations mongoOperations = mock(MongoOperations.class);
+        when(mongoOperations.findDistinct(any(Query.class), eq("node"), eq(AppointmentEvent.class), eq(String.class)))
+                .thenReturn(List.of("live", "stopped"));
+        // The heartbeat of "live" is recent: it is not removed, so its held-back events stay put
+        when(mongoOperations.findAndRemove(any(Query.class), eq(EventNode.class))).thenAnswer(invocation -> {
+            Query query = invocation.getArgument(0);
+            return "stopped".equals(query.getQueryObject().get("_id")) ? new EventNode("stopped", new Date(0)) : null;
+        });
+        when(mongoOperations.updateMulti(any(Query.class), any(Update.class), eq(AppointmentEvent.class)))
+                .thenReturn(UpdateResult.acknowledged(2, 2L, null));
+        AppointmentEventDispatcher dispatcher = new AppointmentEventDispatcher();
+        ReflectionTestUtils.setField(dispatcher, "mongoOperations", mongoOperations);
+        ReflectionTestUtils.setField(dispatcher, "nodeId", "node-1");
+
+        dispatcher.adoptOrphans(System.currentTimeMillis());
+
+        // All pending events of the stopped node move in one update, whatever their appointment
+        ArgumentCaptor<Query> adopted = ArgumentCaptor.forClass(Query.class);
+        verify(mongoOperations, times(1)).updateMulti(adopted.capture(), any(Update.class), eq(AppointmentEvent.class));
+        assertEquals("stopped", adopted.getValue().getQueryObject().get("node"));
+        assertEquals(2L, dispatcher.getStats().get("adopted"));
+    }
+
+    private static AppointmentEvent event(String id, String appointmentId) {
+        AppointmentEvent event = new AppointmentEvent();
+        event.setId(id);
+        event.setAggregateType(AppointmentEvent.APPOINTMENT);
+        event.setAggregateId(appointmentId);
+        event.setType(AppointmentEvent.UPDATED);
+        event.setNode("node-1");
+        event.setOccurredAt(System.currentTimeMillis());
+        event.setAttempts(0);
+        return event;
+    }
+}
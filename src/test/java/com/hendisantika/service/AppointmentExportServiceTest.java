@@ -0,0 +1,96 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.Appointment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AppointmentExportServiceTest {
+
+    private MongoOperations mongoOperations;
+    private AppointmentExportService service;
+
+    @BeforeEach
+    void setUp() {
+        mongoOperations = mock(MongoOperations.class);
+        service = new AppointmentExportService();
+        ReflectionTestUtils.setField(service, "mongoOperations", mongoOperations);
+        when(mongoOperations.stream(any(Query.class), eq(Appointment.class)))
+                .thenAnswer(invocation -> Stream.of(
+                        appointment("APT0001", "Dupont, Marie", "=HYPERLINK(\"x\")"),
+                        appointment("APT0002", "Élodie \"Lili\" Martin", null)));
+    }
+
+    @Test
+    void csvIsQuotedAndNeutralizesFormulas() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = service.export(new AppointmentExportService.Filter(null, "2025-01-01", "2025-02-01", null),
+                AppointmentExportService.Format.CSV, out);
+
+        assertEquals(2, rows);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals('\uFEFF' + String.join(",", AppointmentExportService.COLUMNS), lines[0]);
+        assertEquals("APT0001,2025-01-15,09:30,30,Planifié,D1,Dr House,,,P1,\"Dupont, Marie\","
+                + "\"'=HYPERLINK(\"\"x\"\")\"", lines[1]);
+        assertTrue(lines[2].contains("\"Élodie \"\"Lili\"\" Martin\""));
+    }
+
+    @Test
+    void xlsxIsAZipWithOneRowPerAppointment() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.export(new AppointmentExportService.Filter("D1", null, null, " "),
+                AppointmentExportService.Format.XLSX, out);
+
+        List<String> entries = new ArrayList<>();
+        String sheet = null;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (ZipEntry entry; (entry = zip.getNextEntry()) != null; ) {
+                entries.add(entry.getName());
+                if (entry.getName().equals("xl/worksheets/sheet1.xml")) {
+                    sheet = new String(zip.readAllBytes(), StandardCharsets.UTF_8);
+                }
+            }
+        }
+        assertTrue(entries.contains("[Content_Types].xml"));
+        assertTrue(entries.contains("xl/workbook.xml"));
+        assertEquals(3, sheet.split("<row>").length - 1);
+        assertTrue(sheet.contains("<c><v>30</v></c>"));
+        assertTrue(sheet.contains("Élodie &quot;Lili&quot; Martin"));
+        assertTrue(sheet.endsWith("</sheetData></worksheet>"));
+    }
+
+    private static Appointment appointment(String appointmentId, String patientName, String cancelledReason) {
+        Appointment appointment = new Appointment();
+        appointment.setAppointmentId(appointmentId);
+        appointment.setDate("2025-01-15");
+        appointment.setTime("09:30");
+        appointment.setDurationMinutes(30);
+        appointment.setStatus("Planifié");
+        appointment.setDoctorId("D1");
+        appointment.setDoctorName("Dr House");
+        appointment.setPatientId("P1");
+        appointment.setPatientName(patientName);
+        appointment.setCancelledReason(cancelledReason);
+        return appointment;
+    }
+}
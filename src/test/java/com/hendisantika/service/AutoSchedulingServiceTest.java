@@ -0,0 +1,151 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.Appointment;
+import com.hendisantika.entity.AppointmentRequest;
+import com.hendisantika.entity.Doctor;
+import com.hendisantika.repository.AppointmentRepository;
+import com.hendisantika.repository.AppointmentRequestRepository;
+import com.hendisantika.repository.DoctorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AutoSchedulingServiceTest {
+
+    // A Monday far enough ahead that "today" never cuts into the opening hours
+    private final LocalDate monday = LocalDate.now().plusWeeks(2).with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+
+    private final List<Appointment> booked = new ArrayList<>();
+    private final List<AppointmentRequest> pending = new ArrayList<>();
+    private DoctorRepository doctorRepository;
+    private DoctorSlotIndex doctorSlotIndex;
+    private AutoSchedulingService service;
+
+    @BeforeEach
+    void setUp() {
+        AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+        when(appointmentRepository.findActiveByDoctorIdsAndDateRange(anyCollection(), anyString(), anyString()))
+                .thenReturn(booked);
+        when(appointmentRepository.findActiveByRoomsAndDateRange(anyCollection(), anyString(), anyString()))
+                .thenReturn(booked);
+        doctorSlotIndex = new DoctorSlotIndex();
+        ReflectionTestUtils.setField(doctorSlotIndex, "appointmentRepository", appointmentRepository);
+
+        AppointmentRequestRepository appointmentRequestRepository = mock(AppointmentRequestRepository.class);
+        when(appointmentRequestRepository.findByDoctorIdInAndStatus(anyCollection(), eq("PENDING")))
+                .thenReturn(pending);
+        doctorRepository = mock(DoctorRepository.class);
+
+        service = new AutoSchedulingService();
+        ReflectionTestUtils.setField(service, "doctorRepository", doctorRepository);
+        ReflectionTestUtils.setField(service, "appointmentRequestRepository", appointmentRequestRepository);
+        ReflectionTestUtils.setField(service, "doctorSlotIndex", doctorSlotIndex);
+    }
+
+    @Test
+    void takenSlotMovesToNearestFreeStartAndOldestRequestWins() {
+        Doctor doctor = doctor("D1", null, "Lundi");
+        when(doctorRepository.findById("D1")).thenReturn(Optional.of(doctor));
+        booked.add(appointment("a1", "D1", null, "10:00"));
+        pending.add(request("r2", "D1", "10:00", 2000));
+        pending.add(request("r1", "D1", "11:00", 1000));
+
+        AutoSchedulingService.SchedulePlan plan = service.preview("D1", null);
+
+        assertEquals(2, plan.getProposals().size());
+        // 10:00-10:30 is booked, 11:00 went to the older request and a 10 minute gap is
+        // kept: 09:15 is the closest 15-minute step that fits
+        AutoSchedulingService.Proposal moved = proposal(plan, "r2");
+        assertEquals(monday.toString(), moved.getProposedDate());
+        assertEquals("09:15", moved.getProposedTime());
+        assertTrue(moved.isMoved());
+        assertEquals("11:00", proposal(plan, "r1").getProposedTime());
+    }
+
+    @Test
+    void sharedRoomAndWorkingDaysAreHonored() {
+        Doctor first = doctor("D1", "Bureau 101", "Lundi", "Mardi");
+        Doctor second = doctor("D2", "Bureau 101", "Mardi");
+        when(doctorRepository.findBySpecialization("Cardiologie")).thenReturn(List.of(first, second));
+        pending.add(request("r1", "D1", "09:00", 1000));
+        pending.add(request("r2", "D2", "09:00", 2000));
+
+        AutoSchedulingService.SchedulePlan plan = service.preview(null, "Cardiologie");
+
+        assertEquals(monday.toString(), proposal(plan, "r1").getProposedDate());
+        assertEquals("09:00", proposal(plan, "r1").getProposedTime());
+        // D2 does not work on Mondays; on Tuesday the room is free again
+        AutoSchedulingService.Proposal tuesday = proposal(plan, "r2");
+        assertEquals(monday.plusDays(1).toString(), tuesday.getProposedDate());
+        assertEquals("09:00", tuesday.getProposedTime());
+        assertTrue(plan.getUnassigned().isEmpty());
+    }
+
+    @Test
+    void farOffRequestOnlyLoadsItsOwnWindow() {
+        Doctor doctor = doctor("D1", null, "Lundi");
+        when(doctorRepository.findById("D1")).thenReturn(Optional.of(doctor));
+        pending.add(request("r1", "D1", "09:00", 1000));
+        AppointmentRequest farOff = request("r2", "D1", "09:00", 2000);
+        farOff.setAppointmentDate(monday.plusYears(5).toString());
+        pending.add(farOff);
+
+        AutoSchedulingService.SchedulePlan plan = service.preview("D1", null);
+
+        assertEquals(2, plan.getProposals().size());
+        // Two 30-day windows, not the five years between them
+        assertEquals(60, doctorSlotIndex.getLoadedDays());
+    }
+
+    private static AutoSchedulingService.Proposal proposal(AutoSchedulingService.SchedulePlan plan, String id) {
+        return plan.getProposals().stream().filter(p -> p.getId().equals(id)).findFirst().orElseThrow();
+    }
+
+    private static Doctor doctor(String id, String room, String... workingDays) {
+        Doctor doctor = new Doctor();
+        doctor.setId(id);
+        doctor.setFirstName("Dr");
+        doctor.setLastName(id);
+        doctor.setOfficeLocation(room);
+        doctor.setWorkingDays(List.of(workingDays));
+        return doctor;
+    }
+
+    private AppointmentRequest request(String id, String doctorId, String time, long createdAt) {
+        AppointmentRequest request = new AppointmentRequest();
+        request.setId(id);
+        request.setDoctorId(doctorId);
+        request.setAppointmentDate(monday.toString());
+        request.setAppointmentTime(time);
+        request.setStatus("PENDING");
+        request.setCreatedAt(String.valueOf(createdAt));
+        return request;
+    }
+
+    private Appointment appointment(String id, String doctorId, String room, String time) {
+        Appointment appointment = new Appointment();
+        appointment.setId(id);
+        appointment.setDoctorId(doctorId);
+        appointment.setRoom(room);
+        appointment.setDate(monday.toString());
+        appointment.setTime(time);
+        appointment.setDurationMinutes(30);
+        appointment.setStatus("Planifié");
+        return appointment;
+    }
+}
@@ -0,0 +1,133 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.Doctor;
+import com.hendisantika.entity.Patient;
+import com.hendisantika.repository.DoctorRepository;
+import com.hendisantika.repository.PatientRepository;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Cost of the data behind one appointment form render: the cached
+ * DirectoryService snapshots against the previous findAll() + isActive
+ * filtering. The GC profiler reports the bytes allocated per render
+ * (gc.alloc.rate.norm).
+ * Needs a local MongoDB (mongodb://localhost:27017, database grh_bench);
+ * run the main method, it is not part of the unit test suite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DirectoryServiceBenchmark {
+
+    private static final int PATIENTS = 2000;
+    private static final int DOCTORS = 200;
+
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private PatientRepository patientRepository;
+    private DoctorRepository doctorRepository;
+    private DirectoryService directoryService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        client = MongoClients.create("mongodb://localhost:27017");
+        mongoTemplate = new MongoTemplate(client, "grh_bench");
+        mongoTemplate.dropCollection(Patient.class);
+        mongoTemplate.dropCollection(Doctor.class);
+
+        List<Patient> patients = new ArrayList<>();
+        for (int i = 0; i < PATIENTS; i++) {
+            Patient patient = new Patient();
+            patient.setPatientId(SequenceService.format("P", i));
+            patient.setFirstName("Prenom" + i);
+            patient.setLastName("Nom" + i);
+            patient.setEmail("patient" + i + "@example.com");
+            patient.setPhone("06" + (10000000 + i));
+            patient.setAddress("12 rue de la République");
+            patient.setCity("Lyon");
+            patient.setPassword("password" + i);
+            patient.setActive(i % 10 != 0);
+            patients.add(patient);
+        }
+        mongoTemplate.insertAll(patients);
+        List<Doctor> doctors = new ArrayList<>();
+        for (int i = 0; i < DOCTORS; i++) {
+            Doctor doctor = new Doctor();
+            doctor.setDoctorId(SequenceService.format("D", i));
+            doctor.setFirstName("Jean" + i);
+            doctor.setLastName("Martin" + i);
+            doctor.setSpecialization(i % 2 == 0 ? "Cardiologie" : "Dermatologie");
+            doctor.setPhone("04" + (10000000 + i));
+            doctor.setWorkingDays(List.of("Lundi", "Mardi", "Mercredi"));
+            doctor.setPassword("password" + i);
+            doctors.add(doctor);
+        }
+        mongoTemplate.insertAll(doctors);
+
+        MongoRepositoryFactory factory = new MongoRepositoryFactory(mongoTemplate);
+        patientRepository = factory.getRepository(PatientRepository.class);
+        doctorRepository = factory.getRepository(DoctorRepository.class);
+        directoryService = new DirectoryService();
+        ReflectionTestUtils.setField(directoryService, "patientRepository", patientRepository);
+        ReflectionTestUtils.setField(directoryService, "doctorRepository", doctorRepository);
+        directoryService.reload();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mongoTemplate.dropCollection(Patient.class);
+        mongoTemplate.dropCollection(Doctor.class);
+        client.close();
+    }
+
+    @Benchmark
+    public void directorySnapshot(Blackhole blackhole) {
+        blackhole.consume(directoryService.getActivePatients());
+        blackhole.consume(directoryService.getActiveDoctors());
+    }
+
+    @Benchmark
+    public void findAllAndFilter(Blackhole blackhole) {
+        blackhole.consume(patientRepository.findAll().stream()
+                .filter(Patient::isActive)
+                .collect(Collectors.toList()));
+        blackhole.consume(doctorRepository.findAll().stream()
+                .filter(Doctor::isActive)
+                .collect(Collectors.toList()));
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(DirectoryServiceBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
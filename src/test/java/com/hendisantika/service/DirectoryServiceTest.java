@@ -0,0 +1,64 @@
+package com.hendisantika.service;
+
+import com.hendisantika.dto.DoctorSummary;
+import com.hendisantika.entity.Doctor;
+import com.hendisantika.repository.DoctorRepository;
+import com.hendisantika.repository.PatientRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DirectoryServiceTest {
+
+    @Test
+    void writesAreAppliedWithoutReloading() {
+        DoctorRepository doctorRepository = mock(DoctorRepository.class);
+        PatientRepository patientRepository = mock(PatientRepository.class);
+        when(doctorRepository.findSummariesByActiveTrue()).thenReturn(List.of(
+                summary("1", "Martin", "Cardiologie"), summary("2", "Bernard", "Dermatologie")));
+        when(patientRepository.findSummariesByActiveTrue()).thenReturn(List.of());
+        DirectoryService directoryService = new DirectoryService();
+        ReflectionTestUtils.setField(directoryService, "doctorRepository", doctorRepository);
+        ReflectionTestUtils.setField(directoryService, "patientRepository", patientRepository);
+
+        List<DoctorSummary> first = directoryService.getActiveDoctors();
+        assertEquals(List.of("Bernard", "Martin"), first.stream().map(DoctorSummary::getLastName).toList());
+        assertSame(first, directoryService.getActiveDoctors());
+        assertThrows(UnsupportedOperationException.class, () -> first.remove(0));
+
+        Doctor added = doctor("3", "Dubois", "Cardiologie", true);
+        Doctor deactivated = doctor("1", "Martin", "Cardiologie", false);
+        directoryService.doctorsSaved(List.of(added, deactivated));
+
+        assertEquals(List.of("Bernard", "Dubois"),
+                directoryService.getActiveDoctors().stream().map(DoctorSummary::getLastName).toList());
+        assertEquals(List.of("3"),
+                directoryService.getActiveDoctors("Cardiologie").stream().map(DoctorSummary::getId).toList());
+        // The snapshot handed out earlier is left untouched
+        assertEquals(2, first.size());
+        verify(doctorRepository, times(1)).findSummariesByActiveTrue();
+    }
+
+    private static DoctorSummary summary(String id, String lastName, String specialization) {
+        return new DoctorSummary(id, "D" + id, "Dr", lastName, specialization, null, null, null, true);
+    }
+
+    private static Doctor doctor(String id, String lastName, String specialization, boolean active) {
+        Doctor doctor = new Doctor();
+        doctor.setId(id);
+        doctor.setFirstName("Dr");
+        doctor.setLastName(lastName);
+        doctor.setSpecialization(specialization);
+        doctor.setActive(active);
+        return doctor;
+    }
+}
@@ -0,0 +1,159 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.Appointment;
+import com.hendisantika.repository.AppointmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DoctorSlotIndexTest {
+
+    private DoctorSlotIndex index;
+
+    @BeforeEach
+    void setUp() {
+        AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+        when(appointmentRepository.findByDoctorIdAndDate(anyString(), anyString())).thenReturn(List.of());
+        when(appointmentRepository.findByRoomAndDate(anyString(), anyString())).thenReturn(List.of());
+        index = new DoctorSlotIndex();
+        ReflectionTestUtils.setField(index, "appointmentRepository", appointmentRepository);
+    }
+
+    @Test
+    void longAppointmentBlocksOverlappingStarts() {
+        assertNull(index.reserve(appointment("a1", "D1", null, "09:00", 45), 0));
+
+        DoctorSlotIndex.Conflict conflict = index.reserve(appointment("a2", "D1", null, "09:30", 30), 0);
+        assertNotNull(conflict);
+        assertEquals(DoctorSlotIndex.Conflict.DOCTOR, conflict.getResource());
+        assertEquals(9 * 60, conflict.getMinute());
+
+        assertNull(index.reserve(appointment("a3", "D1", null, "09:45", 30), 0));
+        assertNotNull(index.reserve(appointment("a4", "D1", null, "10:10", 30), 10));
+    }
+
+    @Test
+    void roomIsSharedAcrossDoctors() {
+        assertNull(index.reserve(appointment("a1", "D1", "Bureau 101", "14:00", 60), 10));
+
+        DoctorSlotIndex.Conflict conflict = index.reserve(appointment("a2", "D2", "Bureau 101", "14:30", 30), 10);
+        assertNotNull(conflict);
+        assertEquals(DoctorSlotIndex.Conflict.ROOM, conflict.getResource());
+
+        assertNull(index.reserve(appointment("a3", "D2", "Bureau 202", "14:30", 30), 10));
+        assertNull(index.reserve(appointment("a4", "D3", "Bureau 101", "15:00", 30), 10));
+    }
+
+    @Test
+    void freeStartsSkipTheBookingsOfTheRoom() {
+        index.reserve(appointment("a1", "D2", "Bureau 101", "09:00", 30), 10);
+
+        assertEquals(List.of(480, 510, 570), index.findFreeStarts("D1", "Bureau 101", "2030-01-07", 480, 600, 30, 10, 10));
+        assertEquals(List.of(480, 510, 540, 570), index.findFreeStarts("D1", null, "2030-01-07", 480, 600, 30, 10, 10));
+    }
+
+    @Test
+    void freedIntervalCanBeBookedAgain() {
+        Appointment first = appointment("a1", "D1", "Bureau 101", "11:00", 30);
+        assertNull(index.reserve(first, 10));
+        index.onDeleted(first);
+        assertNull(index.reserve(appointment("a2", "D1", "Bureau 101", "11:00", 30), 10));
+    }
+
+    @Test
+    void malformedTimeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> index.reserve(appointment("a1", "D1", null, "9h", 30), 10));
+        assertThrows(IllegalArgumentException.class, () -> index.findConflict("D1", null, "2030-01-07", -1, 30, 10));
+    }
+
+    @Test
+    void pastDaysAreEvicted() {
+        Appointment past = appointment("a1", "D1", null, "09:00", 30);
+        past.setDate("2020-01-06");
+        assertNull(index.reserve(past, 10));
+        assertNull(index.reserve(appointment("a2", "D1", null, "09:00", 30), 10));
+        assertEquals(2, index.getLoadedDays());
+
+        // Next calendar day: the first call drops the days already over
+        ReflectionTestUtils.setField(index, "evictedBefore", "2020-01-01");
+        index.findConflict("D1", null, "2030-01-07", 600, 30, 10);
+        assertEquals(1, index.getLoadedDays());
+    }
+
+    @Test
+    void onlyOneOfConcurrentBookingsWins() throws Exception {
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger booked = new AtomicInteger();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Appointment appointment = appointment("a" + i, "D1", "Bureau 101", "16:00", 30);
+            workers.add(Thread.ofVirtual().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (index.reserve(appointment, 10) == null) {
+                    booked.incrementAndGet();
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(1, booked.get());
+    }
+
+    @Test
+    void dayChangedWhileLoadingIsLoadedAgain() throws Exception {
+        List<Appointment> stored = new ArrayList<>();
+        CountDownLatch inQuery = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+        when(appointmentRepository.findByDoctorIdAndDate("D1", "2030-01-07")).thenAnswer(invocation -> {
+            List<Appointment> snapshot = List.copyOf(stored);
+            inQuery.countDown();
+            resume.await();
+            return snapshot;
+        });
+        ReflectionTestUtils.setField(index, "appointmentRepository", appointmentRepository);
+
+        Thread loader = Thread.ofVirtual().start(() -> index.findConflict("D1", null, "2030-01-07", 600, 30, 0));
+        inQuery.await();
+        // Saved after the query read MongoDB: the stale load must not be installed
+        Appointment booked = appointment("a1", "D1", null, "10:00", 30);
+        stored.add(booked);
+        index.onSaved(null, booked);
+        resume.countDown();
+        loader.join();
+
+        assertNotNull(index.findConflict("D1", null, "2030-01-07", 600, 30, 0));
+    }
+
+    private static Appointment appointment(String id, String doctorId, String room, String time, int duration) {
+        Appointment appointment = new Appointment();
+        appointment.setId(id);
+        appointment.setDoctorId(doctorId);
+        appointment.setRoom(room);
+        appointment.setDate("2030-01-07");
+        appointment.setTime(time);
+        appointment.setDurationMinutes(duration);
+        appointment.setStatus("Planifié");
+        return appointment;
+    }
+}
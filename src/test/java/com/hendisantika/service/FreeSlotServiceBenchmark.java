@@ -0,0 +1,139 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.Appointment;
+import com.hendisantika.entity.Doctor;
+import com.hendisantika.repository.AppointmentRepository;
+import com.hendisantika.repository.DoctorRepository;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of one /api/free-slots search over 500 doctors and 90 days (target:
+ * under 50 ms with the slot index warm). Every doctor and room is booked
+ * all day except on the last day, so the search scans the whole range.
+ * warm searches a loaded index, cold clears it before each search and so
+ * includes the two preload queries.
+ * Needs a local MongoDB (mongodb://localhost:27017, database grh_bench);
+ * run the main method, it is not part of the unit test suite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FreeSlotServiceBenchmark {
+
+    private static final int DOCTORS = 500;
+    private static final int DAYS = 90;
+    private static final String SPECIALIZATION = "Cardiologie";
+
+    @Param({"warm", "cold"})
+    public String index;
+
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private DoctorSlotIndex doctorSlotIndex;
+    private FreeSlotService freeSlotService;
+    private LocalDate from;
+    private LocalDate to;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        client = MongoClients.create("mongodb://localhost:27017");
+        mongoTemplate = new MongoTemplate(client, "grh_bench");
+        mongoTemplate.dropCollection(Doctor.class);
+        mongoTemplate.dropCollection(Appointment.class);
+
+        // Starts tomorrow so no slot is dropped for having already started
+        from = LocalDate.now().plusDays(1);
+        to = from.plusDays(DAYS - 1);
+        List<Doctor> doctors = new ArrayList<>();
+        for (int i = 0; i < DOCTORS; i++) {
+            Doctor doctor = new Doctor();
+            doctor.setDoctorId(SequenceService.format("D", i));
+            doctor.setFirstName("Jean" + i);
+            doctor.setLastName("Martin" + i);
+            doctor.setSpecialization(SPECIALIZATION);
+            doctor.setWorkingDays(List.of("Lundi", "Mardi", "Mercredi", "Jeudi", "Vendredi", "Samedi", "Dimanche"));
+            doctor.setOfficeLocation("Cabinet " + i);
+            doctors.add(doctor);
+        }
+        mongoTemplate.insertAll(doctors);
+
+        List<Appointment> appointments = new ArrayList<>();
+        for (Doctor doctor : doctors) {
+            for (LocalDate date = from; date.isBefore(to); date = date.plusDays(1)) {
+                Appointment appointment = new Appointment();
+                appointment.setDoctorId(doctor.getId());
+                appointment.setDate(date.toString());
+                appointment.setTime("08:00");
+                appointment.setStartAt(AppointmentTimes.startAt(date.toString(), "08:00"));
+                appointment.setDurationMinutes(600);
+                appointment.setRoom(doctor.getOfficeLocation());
+                appointment.setStatus("Planifié");
+                appointments.add(appointment);
+            }
+        }
+        mongoTemplate.insertAll(appointments);
+
+        MongoRepositoryFactory factory = new MongoRepositoryFactory(mongoTemplate);
+        doctorSlotIndex = new DoctorSlotIndex();
+        ReflectionTestUtils.setField(doctorSlotIndex, "appointmentRepository",
+                factory.getRepository(AppointmentRepository.class));
+        freeSlotService = new FreeSlotService();
+        ReflectionTestUtils.setField(freeSlotService, "doctorRepository", factory.getRepository(DoctorRepository.class));
+        ReflectionTestUtils.setField(freeSlotService, "doctorSlotIndex", doctorSlotIndex);
+        if (freeSlotService.findFreeSlots(SPECIALIZATION, from, to, 30, 10).size() != 10) {
+            throw new IllegalStateException("Expected 10 free slots on the last day");
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void clearIndex() {
+        if ("cold".equals(index)) {
+            doctorSlotIndex.clear();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mongoTemplate.dropCollection(Doctor.class);
+        mongoTemplate.dropCollection(Appointment.class);
+        client.close();
+    }
+
+    @Benchmark
+    public List<FreeSlotService.FreeSlot> findFreeSlots() {
+        return freeSlotService.findFreeSlots(SPECIALIZATION, from, to, 30, 10);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(FreeSlotServiceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,82 @@
+package com.hendisantika.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The contract AppointmentController.reserverRendezVous relies on: the
+ * first failure cancels the other lookups and is rethrown by join(),
+ * results are only readable after join(), and no lookup outlives the block.
+ * Subtasks block on latches, so nothing depends on timing.
+ */
+class LookupScopeTest {
+
+    @Test
+    void firstFailureCancelsTheOtherLookupsAndIsRethrown() throws Exception {
+        IllegalArgumentException failure = new IllegalArgumentException("Patient introuvable");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        try (LookupScope scope = new LookupScope()) {
+            scope.fork(() -> blockUntilInterrupted(started, interrupted));
+            started.await(10, TimeUnit.SECONDS);
+            scope.fork(() -> {
+                throw failure;
+            });
+
+            assertSame(failure, assertThrows(IllegalArgumentException.class, scope::join));
+        }
+
+        assertEquals(0, interrupted.getCount(), "the blocked lookup should have been interrupted");
+    }
+
+    @Test
+    void resultsAreOnlyReadableAfterJoin() {
+        try (LookupScope scope = new LookupScope()) {
+            Supplier<String> patient = scope.fork(() -> "P00001");
+
+            assertThrows(IllegalStateException.class, patient::get);
+            scope.join();
+            assertEquals("P00001", patient.get());
+            assertThrows(IllegalStateException.class, () -> scope.fork(() -> "D00001"));
+        }
+    }
+
+    @Test
+    void closeWaitsForTheLookupThreads() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        AtomicBoolean finished = new AtomicBoolean();
+        try (LookupScope scope = new LookupScope()) {
+            scope.fork(() -> {
+                blockUntilInterrupted(started, interrupted);
+                // Still cleaning up after the cancellation: close() has to wait for it
+                Thread.sleep(100);
+                finished.set(true);
+                return null;
+            });
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+        }
+
+        assertEquals(0, interrupted.getCount());
+        assertTrue(finished.get(), "close() returned before the lookup thread ended");
+    }
+
+    private static Void blockUntilInterrupted(CountDownLatch started, CountDownLatch interrupted) {
+        started.countDown();
+        try {
+            new CountDownLatch(1).await();
+        } catch (InterruptedException e) {
+            interrupted.countDown();
+        }
+        return null;
+    }
+}
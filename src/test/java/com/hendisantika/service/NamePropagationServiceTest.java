@@ -0,0 +1,113 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.Appointment;
+import com.hendisantika.entity.AppointmentRequest;
+import com.hendisantika.entity.Doctor;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NamePropagationServiceTest {
+
+    private MongoOperations mongoOperations;
+    private BulkOperations appointments;
+    private AppointmentChangeService appointmentChangeService;
+    private NamePropagationService service;
+
+    @BeforeEach
+    void setUp() {
+        mongoOperations = mock(MongoOperations.class);
+        appointments = mock(BulkOperations.class);
+        when(mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Appointment.class)).thenReturn(appointments);
+        appointmentChangeService = mock(AppointmentChangeService.class);
+        when(appointmentChangeService.inTransaction(any(Supplier.class)))
+                .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(0)).get());
+        service = new NamePropagationService();
+        ReflectionTestUtils.setField(service, "mongoOperations", mongoOperations);
+        ReflectionTestUtils.setField(service, "appointmentChangeService", appointmentChangeService);
+    }
+
+    @Test
+    void renamesAreCoalescedVersionCheckedAndSentThroughTheOutbox() {
+        Doctor previous = doctor("Jean", "Dupont", "Cardiologie");
+        service.doctorSaved(previous, doctor("Jean", "Dupont", "Cardiologie"));
+        assertEquals(0L, service.getStats().get("enqueued"));
+
+        service.doctorSaved(previous, doctor("Jean", "Martin", "Cardiologie"));
+        service.doctorSaved(previous, doctor("Jean", "Durand", "Cardiologie"));
+        @SuppressWarnings("unchecked")
+        Queue<NamePropagationService.NameChange> queue =
+                (Queue<NamePropagationService.NameChange>) ReflectionTestUtils.getField(service, "queue");
+        assertEquals(2, queue.size());
+        List<NamePropagationService.NameChange> batch = List.copyOf(queue);
+
+        Appointment rewritten = appointment("Jean Durand", 4L);
+        // Stale page, the page read back after the update, then nothing stale is left
+        when(mongoOperations.find(any(Query.class), eq(Appointment.class)))
+                .thenReturn(List.of(appointment("Jean Dupont", 3L)), List.of(rewritten), List.of());
+        when(mongoOperations.find(any(Query.class), eq(AppointmentRequest.class))).thenReturn(List.of());
+
+        service.apply(batch);
+
+        // Two queued renames of the same doctor become one update, only if the version is unchanged
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(appointments, times(1)).updateOne(query.capture(), update.capture());
+        assertEquals(3L, query.getValue().getQueryObject().get("version"));
+        assertEquals("Jean Durand", ((Document) update.getValue().getUpdateObject().get("$set")).get("doctorName"));
+        assertEquals(1, ((Document) update.getValue().getUpdateObject().get("$inc")).get("version"));
+        // Documents keyed by either identifier are matched
+        ArgumentCaptor<Query> stale = ArgumentCaptor.forClass(Query.class);
+        verify(mongoOperations, times(3)).find(stale.capture(), eq(Appointment.class));
+        assertEquals(List.of("d1", "D00001"), ((Document) ((Document) ((List<?>) stale.getAllValues().get(0)
+                .getQueryObject().get("$or")).get(0)).get("doctorId")).get("$in"));
+        verify(appointmentChangeService).appointmentsUpdated(List.of(rewritten));
+        verify(appointmentChangeService, never()).requestsUpdated(any());
+
+        Map<String, Object> stats = service.getStats();
+        assertEquals(2L, stats.get("applied"));
+        assertEquals(1L, stats.get("batches"));
+        assertEquals(1L, stats.get("documentsUpdated"));
+        assertEquals(2, stats.get("lastBatchSize"));
+    }
+
+    private static Appointment appointment(String doctorName, Long version) {
+        Appointment appointment = new Appointment();
+        appointment.setId("a1");
+        appointment.setVersion(version);
+        appointment.setDoctorId("D00001");
+        appointment.setDoctorName(doctorName);
+        appointment.setDoctorSpecialization("Cardiologie");
+        return appointment;
+    }
+
+    private static Doctor doctor(String firstName, String lastName, String specialization) {
+        Doctor doctor = new Doctor();
+        doctor.setId("d1");
+        doctor.setDoctorId("D00001");
+        doctor.setFirstName(firstName);
+        doctor.setLastName(lastName);
+        doctor.setSpecialization(specialization);
+        return doctor;
+    }
+}
@@ -0,0 +1,81 @@
+package com.hendisantika.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReminderWheelTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long MINUTE = 60_000L;
+
+    private ReminderWheel wheel;
+
+    @BeforeEach
+    void setUp() {
+        wheel = new ReminderWheel(30_000, 10, NOW);
+    }
+
+    @Test
+    void entriesAreHandedOutOnceDue() {
+        assertTrue(wheel.schedule(new ReminderWheel.Entry("a1", NOW + 121 * MINUTE, 120)));
+        assertFalse(wheel.schedule(new ReminderWheel.Entry("a1", NOW + 121 * MINUTE, 120)));
+
+        assertTrue(wheel.advance(NOW + 30_000).isEmpty());
+        List<ReminderWheel.Entry> due = wheel.advance(NOW + MINUTE);
+        assertEquals(1, due.size());
+        assertEquals("a1", due.get(0).getAppointmentId());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void overdueEntriesGoToNextTick() {
+        wheel.schedule(new ReminderWheel.Entry("a1", NOW + 60 * MINUTE, 120));
+
+        assertEquals(1, wheel.advance(NOW).size());
+    }
+
+    @Test
+    void entriesBeyondOneTurnWaitForTheirTick() {
+        // 10 slots of 30 s: due one hour ahead shares a slot with earlier ticks
+        wheel.schedule(new ReminderWheel.Entry("a1", NOW + 1500 * MINUTE, 1440));
+
+        assertTrue(wheel.advance(NOW + 30 * MINUTE).isEmpty());
+        assertEquals(1, wheel.size());
+        assertEquals(1, wheel.advance(NOW + 60 * MINUTE).size());
+    }
+
+    @Test
+    void retryWaitsForItsSendTime() {
+        ReminderWheel.Entry entry = new ReminderWheel.Entry("a1", NOW + 121 * MINUTE, 120);
+        wheel.schedule(entry);
+        ReminderWheel.Entry first = wheel.advance(NOW + MINUTE).get(0);
+
+        assertTrue(wheel.schedule(first.retry(NOW + 3 * MINUTE)));
+
+        assertTrue(wheel.advance(NOW + 2 * MINUTE).isEmpty());
+        List<ReminderWheel.Entry> due = wheel.advance(NOW + 3 * MINUTE);
+        assertEquals(1, due.size());
+        assertEquals(entry.getKey(), due.get(0).getKey());
+        assertEquals(1, due.get(0).getAttempts());
+    }
+
+    @Test
+    void cancelDropsEveryOffsetOfAnAppointment() {
+        wheel.schedule(new ReminderWheel.Entry("a1", NOW + 121 * MINUTE, 120));
+        wheel.schedule(new ReminderWheel.Entry("a1", NOW + 1441 * MINUTE, 1440));
+        wheel.schedule(new ReminderWheel.Entry("a2", NOW + 121 * MINUTE, 120));
+
+        wheel.cancel("a1");
+
+        assertEquals(1, wheel.size());
+        List<ReminderWheel.Entry> due = wheel.advance(NOW + MINUTE);
+        assertEquals(1, due.size());
+        assertEquals("a2", due.get(0).getAppointmentId());
+    }
+}
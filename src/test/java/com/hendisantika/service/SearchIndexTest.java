@@ -0,0 +1,55 @@
+package com.hendisantika.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchIndexTest {
+
+    @Test
+    void matchesWordPrefixesWithoutAccents() {
+        SearchIndex index = new SearchIndex();
+        index.put("1", null, "Hélène", "Lefèvre", "P00001");
+        index.put("2", null, "Hassan", "Mohammad", "P00002");
+
+        assertEquals(List.of("1"), index.search("helene", scope -> true, 10));
+        assertEquals(List.of("1"), index.search("LEFE", scope -> true, 10));
+        assertEquals(List.of("2"), index.search("has moh", scope -> true, 10));
+        assertEquals(List.of("1", "2"), index.search("p0000", scope -> true, 10));
+        assertEquals(List.of("1"), index.search("p0000", scope -> true, 1));
+    }
+
+    @Test
+    void keepsIndexInSyncOnUpdateAndRemove() {
+        SearchIndex index = new SearchIndex();
+        index.put("1", "D1", "Fatima", "Aziz");
+        index.put("1", "D1", "Fatima", "Bennani");
+        index.put("2", "D2", "Fatima", "Khalil");
+
+        assertTrue(index.search("aziz", scope -> true, 10).isEmpty());
+        assertEquals(List.of("1"), index.search("benn", scope -> true, 10));
+        assertEquals(List.of("2"), index.search("fatima", "D2"::equals, 10));
+
+        index.remove("2");
+        assertEquals(List.of("1"), index.search("", scope -> true, 10));
+    }
+
+    @Test
+    void removedDocumentsAreCompacted() {
+        SearchIndex index = new SearchIndex();
+        index.put("keep", "D1", "Nadia", "Alaoui");
+        for (int i = 0; i < 3000; i++) {
+            index.put("moved", "D2", "Youssef", "Tazi " + i);
+        }
+
+        assertTrue(index.capacity() < 2100);
+        assertEquals(2, index.size());
+        assertEquals(List.of("keep", "moved"), index.search("", scope -> true, 10));
+        assertEquals(List.of("moved"), index.search("tazi 2999", scope -> true, 10));
+        assertTrue(index.search("tazi 5", scope -> true, 10).isEmpty());
+        assertEquals(List.of("keep"), index.search("nad", "D1"::equals, 10));
+    }
+}
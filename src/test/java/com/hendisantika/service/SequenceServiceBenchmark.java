@@ -0,0 +1,85 @@
+package com.hendisantika.service;
+
+import com.hendisantika.entity.Sequence;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IDs/sec of the block-leasing SequenceService against the previous
+ * one-findAndModify-per-ID implementation.
+ * Needs a local MongoDB (mongodb://localhost:27017, database grh_bench);
+ * run the main method, it is not part of the unit test suite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class SequenceServiceBenchmark {
+
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private SequenceService sequenceService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        client = MongoClients.create("mongodb://localhost:27017");
+        mongoTemplate = new MongoTemplate(client, "grh_bench");
+        mongoTemplate.dropCollection(Sequence.class);
+
+        sequenceService = new SequenceService();
+        ReflectionTestUtils.setField(sequenceService, "mongoOperations", mongoTemplate);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mongoTemplate.dropCollection(Sequence.class);
+        client.close();
+    }
+
+    @Benchmark
+    public String blockLeasing() {
+        return sequenceService.getNextSequenceId("bench_block_seq", "A");
+    }
+
+    @Benchmark
+    public String findAndModifyPerId() {
+        Query query = new Query(Criteria.where("_id").is("bench_single_seq"));
+        Sequence sequence = mongoTemplate.findAndModify(query, new Update().inc("seq", 1), Sequence.class);
+        if (sequence == null) {
+            sequence = new Sequence("bench_single_seq", 1);
+            mongoTemplate.save(sequence);
+            return "A" + String.format("%05d", 1);
+        }
+        return "A" + String.format("%05d", sequence.getSeq() + 1);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(SequenceServiceBenchmark.class.getSimpleName())
+                .timeUnit(TimeUnit.SECONDS)
+                .build()).run();
+    }
+}